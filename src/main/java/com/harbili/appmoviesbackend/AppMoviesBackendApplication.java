@@ -2,8 +2,10 @@ package com.harbili.appmoviesbackend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AppMoviesBackendApplication {
 
     public static void main(String[] args) {
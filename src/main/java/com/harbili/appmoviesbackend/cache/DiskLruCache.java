@@ -0,0 +1,146 @@
+package com.harbili.appmoviesbackend.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded cache of files in a local directory, evicting the least recently used
+ *
+ * Keys are relative paths inside the directory, checked by the caller. The
+ * files already on disk are taken back at startup, oldest first, so the cache
+ * survives restarts. Writes go through a temporary file and an atomic move,
+ * so a reader never sees a partial file. Safe for concurrent use.
+ */
+public final class DiskLruCache {
+
+    private final Path directory;
+    private final long maxBytes;
+    // Key -> file size, in access order: the first entry is the least recently used
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private long evictions;
+
+    /**
+     * @param directory the cache directory, created if needed
+     * @param maxBytes the maximum total size of the files
+     * @throws IOException if the directory cannot be created or read
+     */
+    public DiskLruCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+        load();
+    }
+
+    /**
+     * @param key the relative path of the file
+     * @return the cached file, or null if it is not cached
+     */
+    public synchronized Path get(String key) {
+        Long size = entries.get(key);
+        if (size == null) {
+            return null;
+        }
+        Path file = directory.resolve(key);
+        if (!Files.exists(file)) {
+            // Removed behind our back: forget it
+            entries.remove(key);
+            totalBytes -= size;
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Store a file, replacing any previous one with the same key, and evict
+     * the least recently used files until the cache fits
+     * @param key the relative path of the file
+     * @param data the content
+     * @return the cached file
+     * @throws IOException if the file cannot be written
+     */
+    public Path put(String key, byte[] data) throws IOException {
+        Path file = directory.resolve(key);
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), "entry", ".tmp");
+        try {
+            Files.write(tmp, data);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        synchronized (this) {
+            Long previous = entries.put(key, (long) data.length);
+            totalBytes += data.length - (previous != null ? previous : 0);
+            evict(key);
+        }
+        return file;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(directory.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                System.err.println("Could not delete cached file " + eldest.getKey() + ": " + e.getMessage());
+            }
+            totalBytes -= eldest.getValue();
+            evictions++;
+            it.remove();
+        }
+    }
+
+    private void load() throws IOException {
+        Map<String, BasicFileAttributes> found = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    // Left over by a crash during a write
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                found.put(directory.relativize(file).toString().replace('\\', '/'), attributes);
+            }
+        }
+        List<Map.Entry<String, BasicFileAttributes>> oldestFirst = new ArrayList<>(found.entrySet());
+        oldestFirst.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        synchronized (this) {
+            for (Map.Entry<String, BasicFileAttributes> file : oldestFirst) {
+                entries.put(file.getKey(), file.getValue().size());
+                totalBytes += file.getValue().size();
+            }
+            evict(null);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.harbili.appmoviesbackend.cache;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Size-bounded in-process cache with a W-TinyLFU eviction policy
+ *
+ * New entries go through a small LRU window (1% of the capacity). An entry
+ * leaving the window only enters the main space if it has been asked for more
+ * often than the entry it would evict, according to a count-min sketch of
+ * recent accesses; the main space is a segmented LRU where entries read again
+ * move to a protected segment (80% of it). A burst of one-off reads therefore
+ * cannot flush the frequently read entries.
+ *
+ * Lookups go through a concurrent map without locking. The policy is updated
+ * under a lock; a read that finds the lock taken skips its update, which only
+ * makes the recency and frequency information slightly approximate.
+ */
+public final class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final long maximumSize;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    // LRU queues with a sentinel: head.next is the least recently used entry
+    private final Node<K, V> window = Node.sentinel();
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protectedQueue = Node.sentinel();
+    private long windowSize;
+    private long protectedSize;
+
+    // Bumped on every invalidation: a value loaded before one of them is not stored
+    private volatile long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize the maximum number of entries, at least 1
+     */
+    public TinyLfuCache(long maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (long) ((maximumSize - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @return the cached value, or null if there is none
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+                if (node.queue >= 0) {
+                    onHit(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Get the cached value, loading and caching it on a miss
+     *
+     * The loader runs outside of the lock, so concurrent misses on the same key
+     * may all load it. A value is not cached if it is null, or if an
+     * invalidation happened while it was loading, since it may predate a write.
+     *
+     * @param key the key
+     * @param loader computes the value of a missing key; may return null
+     * @return the value, or null if the loader returned null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long seen = invalidations;
+        value = loader.apply(key);
+        if (value != null) {
+            lock.lock();
+            try {
+                if (invalidations == seen) {
+                    putLocked(key, value);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Add or replace a value
+     */
+    public void put(K key, V value) {
+        Objects.requireNonNull(value);
+        lock.lock();
+        try {
+            putLocked(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidations++;
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations++;
+            for (Node<K, V> node : data.values()) {
+                unlink(node);
+            }
+            data.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void putLocked(K key, V value) {
+        sketch.increment(key.hashCode());
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            onHit(node);
+            return;
+        }
+        node = new Node<>(key, value);
+        data.put(key, node);
+        node.queue = WINDOW;
+        append(window, node);
+        windowSize++;
+        evict();
+    }
+
+    private void onHit(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> moveToTail(window, node);
+            case PROBATION -> {
+                unlink(node);
+                node.queue = PROTECTED;
+                append(protectedQueue, node);
+                protectedSize++;
+                while (protectedSize > protectedMaximum) {
+                    Node<K, V> demoted = protectedQueue.next;
+                    unlink(demoted);
+                    demoted.queue = PROBATION;
+                    append(probation, demoted);
+                }
+            }
+            default -> moveToTail(protectedQueue, node);
+        }
+    }
+
+    /**
+     * Move the window overflow to probation, then until the cache fits, evict
+     * the oldest probation entry or the newcomer, whichever is less frequent
+     */
+    private void evict() {
+        Node<K, V> candidate = null;
+        while (windowSize > windowMaximum) {
+            Node<K, V> moved = window.next;
+            unlink(moved);
+            moved.queue = PROBATION;
+            append(probation, moved);
+            if (candidate == null) {
+                candidate = moved;
+            }
+        }
+        while (data.size() > maximumSize) {
+            // The newcomers sit at the tail of probation: the victim is the oldest entry before them
+            Node<K, V> victim = probation.next != probation && probation.next != candidate ? probation.next
+                    : protectedQueue.next != protectedQueue ? protectedQueue.next
+                    : window.next != window ? window.next : null;
+            Node<K, V> evicted;
+            if (candidate == null) {
+                evicted = victim != null ? victim : probation.next;
+            } else if (victim == null
+                    || sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode())) {
+                evicted = candidate;
+            } else {
+                evicted = victim;
+            }
+            if (evicted == candidate) {
+                candidate = candidate.next != probation ? candidate.next : null;
+            }
+            unlink(evicted);
+            data.remove(evicted.key, evicted);
+            evictions.increment();
+        }
+    }
+
+    private void append(Node<K, V> queue, Node<K, V> node) {
+        node.prev = queue.prev;
+        node.next = queue;
+        queue.prev.next = node;
+        queue.prev = node;
+    }
+
+    private void moveToTail(Node<K, V> queue, Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        append(queue, node);
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.queue < 0) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        if (node.queue == WINDOW) {
+            windowSize--;
+        } else if (node.queue == PROTECTED) {
+            protectedSize--;
+        }
+        node.queue = -1;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        // WINDOW, PROBATION or PROTECTED; -1 once removed
+        private int queue = -1;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            Node<K, V> sentinel = new Node<>(null, null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, halved periodically so that old
+     * popularity fades
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final long sampleSize;
+        private long additions;
+
+        FrequencySketch(long maximumSize) {
+            // Sixteen counters per entry keep collisions rare
+            int words = (int) Math.min(1 << 26, Math.max(8, Long.highestOneBit(maximumSize - 1) << 1));
+            this.table = new long[words];
+            this.tableMask = table.length - 1;
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int counter = counterOf(hash, i);
+                frequency = Math.min(frequency, (int) (table[counter >>> 4] >>> ((counter & 15) << 2)) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int counter = counterOf(hash, i);
+                int index = counter >>> 4;
+                int shift = (counter & 15) << 2;
+                if (((table[index] >>> shift) & 15) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int counterOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & (tableMask << 4 | 15);
+        }
+    }
+}
@@ -112,7 +112,7 @@ public class DataInitializer implements CommandLineRunner {
                 .genres(Arrays.asList("Action", "Crime", "Drama", "Thriller"))
                 .build();
         
-        movieRepository.saveAll(Arrays.asList(movie1, movie2, movie3));
+        movieRepository.upsertAll(Arrays.asList(movie1, movie2, movie3));
     }
 
     private void createSampleWatchlists(List<User> users) {
@@ -0,0 +1,41 @@
+package com.harbili.appmoviesbackend.config;
+
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Component moving the genres of the movie_genres table to the genre mask of each movie, once
+ *
+ * Runs before the application is ready, so the indexes built then already
+ * see the masks. The sync only rewrites the movies TMDB reports as changed,
+ * so it would leave most existing movies without genres.
+ *
+ * The genre names are kept in movie_genres_legacy afterwards. That table is
+ * only dropped when movies.genres.drop-legacy-table is set, once the masks
+ * have been checked.
+ */
+@Component
+public class GenreMaskBackfill implements CommandLineRunner {
+
+    private final MovieRepository movieRepository;
+
+    @Value("${movies.genres.drop-legacy-table:false}")
+    private boolean dropLegacyTable;
+
+    public GenreMaskBackfill(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        int updated = movieRepository.backfillGenreMasks();
+        if (updated > 0) {
+            System.out.println("Genre masks backfilled from movie_genres: " + updated + " movies");
+        }
+        if (dropLegacyTable && movieRepository.dropLegacyGenres()) {
+            System.out.println("Dropped movie_genres_legacy");
+        }
+    }
+}
@@ -1,11 +1,34 @@
 package com.harbili.appmoviesbackend.controllers;
 
+import com.harbili.appmoviesbackend.dto.CacheStatsDTO;
+import com.harbili.appmoviesbackend.dto.IngestionStatusDTO;
 import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.dto.MovieFacetPageDTO;
+import com.harbili.appmoviesbackend.dto.MoviePageDTO;
+import com.harbili.appmoviesbackend.dto.MovieSearchPageDTO;
+import com.harbili.appmoviesbackend.dto.MovieSuggestionDTO;
 import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import com.harbili.appmoviesbackend.services.ContentVersionService;
+import com.harbili.appmoviesbackend.services.MovieExportService;
+import com.harbili.appmoviesbackend.services.MovieFacetService;
+import com.harbili.appmoviesbackend.services.MovieFullTextSearchService;
+import com.harbili.appmoviesbackend.services.MovieIngestionService;
 import com.harbili.appmoviesbackend.services.MovieService;
+import com.harbili.appmoviesbackend.services.MovieSimilarityService;
+import com.harbili.appmoviesbackend.services.MovieTypeaheadService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/movies")
@@ -13,21 +36,116 @@ import java.util.List;
 public class MovieController {
 
     private final MovieService movieService;
+    private final MovieIngestionService movieIngestionService;
+    private final MovieExportService movieExportService;
+    private final MovieTypeaheadService movieTypeaheadService;
+    private final MovieFullTextSearchService movieFullTextSearchService;
+    private final MovieSimilarityService movieSimilarityService;
+    private final MovieFacetService movieFacetService;
+    private final ContentVersionService contentVersionService;
 
-    public MovieController(MovieService movieService) {
+    @Value("${movies.export.timeout:PT1H}")
+    private Duration exportTimeout = Duration.ofHours(1);
+
+    public MovieController(MovieService movieService,
+                           MovieIngestionService movieIngestionService,
+                           MovieExportService movieExportService,
+                           MovieTypeaheadService movieTypeaheadService,
+                           MovieFullTextSearchService movieFullTextSearchService,
+                           MovieSimilarityService movieSimilarityService,
+                           MovieFacetService movieFacetService,
+                           ContentVersionService contentVersionService) {
         this.movieService = movieService;
+        this.movieIngestionService = movieIngestionService;
+        this.movieExportService = movieExportService;
+        this.movieTypeaheadService = movieTypeaheadService;
+        this.movieFullTextSearchService = movieFullTextSearchService;
+        this.movieSimilarityService = movieSimilarityService;
+        this.movieFacetService = movieFacetService;
+        this.contentVersionService = contentVersionService;
     }
 
+    // Les lectures du catalogue renvoient 304 sans rien relire tant que le catalogue n'a pas change
     @GetMapping
-    public List<MovieDTO> getAllMovies() {
+    public List<MovieDTO> getAllMovies(WebRequest request) {
+        if (request.checkNotModified(contentVersionService.catalogETag())) {
+            return null;
+        }
         return movieService.getAllMovies();
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<Object> getMoviePage(@RequestParam(defaultValue = MovieService.SORT_ID) String sort,
+                                               @RequestParam(required = false) Integer size,
+                                               @RequestParam(required = false) String cursor,
+                                               WebRequest request) {
+        if (request.checkNotModified(contentVersionService.catalogETag())) {
+            return null;
+        }
+        try {
+            MoviePageDTO page = movieService.getMoviePage(sort, size, cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<Object> getFacetPage(@RequestParam(required = false) List<String> genres,
+                                               @RequestParam(required = false) Integer fromYear,
+                                               @RequestParam(required = false) Integer toYear,
+                                               @RequestParam(required = false) Long userId,
+                                               @RequestParam(required = false) WatchlistStatus status,
+                                               @RequestParam(required = false) Long afterId,
+                                               @RequestParam(required = false) Integer size,
+                                               WebRequest request) {
+        // Les compteurs par statut dependent aussi des watchlists de l'utilisateur
+        String etag = userId != null ? contentVersionService.userETag(userId) : contentVersionService.catalogETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            MovieFacetPageDTO page = movieFacetService.getFacetPage(genres, fromYear, toYear, userId, status, afterId, size);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping(value = "/export", produces = MovieExportService.NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportMovies(@RequestParam(required = false) Long afterId,
+                                                              WebRequest request) {
+        // Le streaming du catalogue complet depasse le delai asynchrone global : seul l'export a le sien
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(exportTimeout.toMillis());
+        StreamingResponseBody body = out -> movieExportService.exportNdjson(afterId, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MovieExportService.NDJSON))
+                .body(body);
+    }
+
+    @GetMapping("/cache/stats")
+    public CacheStatsDTO getCacheStats() {
+        return movieService.getCacheStats();
+    }
+
     @GetMapping("/{id}")
-    public MovieDTO getMovieById(@PathVariable Long id) {
+    public MovieDTO getMovieById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(contentVersionService.catalogETag())) {
+            return null;
+        }
         return movieService.getMovieById(id);
     }
 
+    @GetMapping("/{id}/similar")
+    public List<MovieDTO> getSimilarMovies(@PathVariable Long id,
+                                           @RequestParam(required = false) Integer limit,
+                                           WebRequest request) {
+        if (request.checkNotModified(contentVersionService.catalogETag())) {
+            return null;
+        }
+        return movieSimilarityService.getSimilarMovies(id, limit);
+    }
+
     @PostMapping
     public MovieDTO createMovie(@RequestBody Movie movie) {
         return movieService.saveMovie(movie);
@@ -47,4 +165,33 @@ public class MovieController {
     public List<MovieDTO> searchMovies(@RequestParam String query) {
         return movieService.searchMovies(query);
     }
-}
+
+    @GetMapping("/typeahead")
+    public List<MovieSuggestionDTO> typeahead(@RequestParam String q,
+                                              @RequestParam(required = false) Integer limit) {
+        return movieTypeaheadService.suggest(q, limit);
+    }
+
+    @GetMapping("/fuzzy")
+    public List<MovieSuggestionDTO> fuzzySearch(@RequestParam String q,
+                                                @RequestParam(required = false) Integer limit) {
+        return movieTypeaheadService.suggestFuzzy(q, limit);
+    }
+
+    @GetMapping("/fulltext")
+    public MovieSearchPageDTO fullTextSearch(@RequestParam String q,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "20") int size) throws IOException {
+        return movieFullTextSearchService.search(q, page, size);
+    }
+
+    @PostMapping("/ingestion")
+    public IngestionStatusDTO startIngestion() {
+        return movieIngestionService.startIngestion();
+    }
+
+    @GetMapping("/ingestion")
+    public IngestionStatusDTO getIngestionStatus() {
+        return movieIngestionService.getStatus();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.harbili.appmoviesbackend.controllers;
+
+import com.harbili.appmoviesbackend.services.PosterService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * REST controller serving movie posters through the local poster cache
+ *
+ * A poster is addressed by the file name of its TMDB poster path, the last
+ * segment of a movie's posterUrl. TMDB never reuses a file name for another
+ * image, so responses are cacheable forever.
+ */
+@RestController
+@RequestMapping("/api/posters")
+@CrossOrigin(origins = "*")
+public class PosterController {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final PosterService posterService;
+
+    public PosterController(PosterService posterService) {
+        this.posterService = posterService;
+    }
+
+    /**
+     * Get a poster
+     * @param fileName the poster file name (e.g. "abc.jpg")
+     * @param width the width in pixels, or null for the default
+     */
+    @GetMapping("/{fileName:.+}")
+    public void getPoster(@PathVariable String fileName,
+                          @RequestParam(required = false) Integer width,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        String etag = "\"" + (width != null ? width : "default") + "-" + fileName + "\"";
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        FileChannel channel;
+        try {
+            channel = openPoster(fileName, width);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        } catch (HttpClientErrorException.NotFound e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        } catch (RestClientException | UncheckedIOException e) {
+            System.err.println("Error serving poster " + fileName + ": " + e.getMessage());
+            response.sendError(HttpStatus.BAD_GATEWAY.value());
+            return;
+        }
+
+        try (channel) {
+            long length = channel.size();
+            response.setContentType(PosterService.contentType(fileName));
+            response.setContentLengthLong(length);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+
+            // Sent from the channel opened here, not by file name (e.g. Tomcat sendfile): the cache
+            // may evict the file at any time, and an open channel still reads an evicted file
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = 0; position < length; ) {
+                position += channel.transferTo(position, length - position, out);
+            }
+        }
+    }
+
+    /**
+     * Open a cached poster, fetching it again if it was evicted before it could be opened
+     */
+    private FileChannel openPoster(String fileName, Integer width) throws IOException {
+        try {
+            return FileChannel.open(posterService.getPoster(fileName, width), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return FileChannel.open(posterService.getPoster(fileName, width), StandardOpenOption.READ);
+        }
+    }
+}
@@ -1,13 +1,25 @@
 package com.harbili.appmoviesbackend.controllers;
 
+import com.harbili.appmoviesbackend.dto.WatchlistBatchOperation;
+import com.harbili.appmoviesbackend.dto.WatchlistBatchResultDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistChangesDTO;
 import com.harbili.appmoviesbackend.dto.WatchlistDTO;
 import com.harbili.appmoviesbackend.dto.WatchlistItemDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistItemPageDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistSummaryDTO;
 import com.harbili.appmoviesbackend.entities.Watchlist;
 import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import com.harbili.appmoviesbackend.services.WatchlistBatchService;
+import com.harbili.appmoviesbackend.services.WatchlistChangeService;
+import com.harbili.appmoviesbackend.services.WatchlistChangeStreamService;
+import com.harbili.appmoviesbackend.services.WatchlistItemService;
 import com.harbili.appmoviesbackend.services.WatchlistService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -15,25 +27,40 @@ import java.util.Map;
 
 /**
  * REST controller for watchlist-related operations
+ *
+ * The reads carry an ETag known before the watchlists are read: a request
+ * whose If-None-Match matches gets a 304 without any DTO being built.
  */
 @RestController
 @RequestMapping("/api/watchlists")
 @CrossOrigin(origins = "*")
 public class WatchlistController {
     private final WatchlistService watchlistService;
+    private final WatchlistBatchService watchlistBatchService;
+    private final WatchlistChangeService watchlistChangeService;
+    private final WatchlistChangeStreamService watchlistChangeStreamService;
 
-    public WatchlistController(WatchlistService watchlistService) {
+    public WatchlistController(WatchlistService watchlistService, WatchlistBatchService watchlistBatchService,
+                               WatchlistChangeService watchlistChangeService,
+                               WatchlistChangeStreamService watchlistChangeStreamService) {
         this.watchlistService = watchlistService;
+        this.watchlistBatchService = watchlistBatchService;
+        this.watchlistChangeService = watchlistChangeService;
+        this.watchlistChangeStreamService = watchlistChangeStreamService;
     }
 
     /**
      * Get all watchlists for a user
      * @param userId the user ID
-     * @return list of watchlists
+     * @param request the request, for its If-None-Match header
+     * @return list of watchlists, or 304 if the client's copy is current
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<WatchlistDTO>> getWatchlistsByUserId(@PathVariable Long userId) {
+    public ResponseEntity<List<WatchlistDTO>> getWatchlistsByUserId(@PathVariable Long userId, WebRequest request) {
         try {
+            if (isNotModified(watchlistService.getWatchlistsETag(userId), request)) {
+                return null;
+            }
             List<WatchlistDTO> watchlists = watchlistService.getWatchlistsByUserId(userId);
             return ResponseEntity.ok(watchlists);
         } catch (Exception e) {
@@ -44,11 +71,15 @@ public class WatchlistController {
     /**
      * Get a watchlist by ID
      * @param id the watchlist ID
-     * @return the watchlist if found
+     * @param request the request, for its If-None-Match header
+     * @return the watchlist if found, or 304 if the client's copy is current
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getWatchlistById(@PathVariable Long id) {
+    public ResponseEntity<Object> getWatchlistById(@PathVariable Long id, WebRequest request) {
         try {
+            if (isNotModified(watchlistService.getWatchlistETag(id), request)) {
+                return null;
+            }
             WatchlistDTO watchlist = watchlistService.getWatchlistById(id);
             if (watchlist == null) {
                 Map<String, String> response = new HashMap<>();
@@ -63,6 +94,108 @@ public class WatchlistController {
         }
     }
 
+    /**
+     * Get the item counts per status and the average rating of every watchlist of a user, without their items
+     * @param userId the user ID
+     * @param request the request, for its If-None-Match header
+     * @return list of watchlist summaries, or 304 if the client's copy is current
+     */
+    @GetMapping("/user/{userId}/summary")
+    public ResponseEntity<Object> getWatchlistSummariesByUserId(@PathVariable Long userId, WebRequest request) {
+        try {
+            if (isNotModified(watchlistService.getWatchlistsETag(userId), request)) {
+                return null;
+            }
+            List<WatchlistSummaryDTO> summaries = watchlistService.getWatchlistSummariesByUserId(userId);
+            return ResponseEntity.ok(summaries);
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Error retrieving watchlist summaries: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Get the changes to the watchlists of a user since a version
+     *
+     * A client keeps the version of its last response and sends it back as
+     * since; without it, or when the changes since that version are no longer
+     * known, the response holds the whole state of the watchlists and reset is true.
+     *
+     * @param userId the user ID
+     * @param since the version returned by the previous call, absent for the whole state
+     * @return the changed watchlists and items with the IDs of the deleted ones, or 304 if since is the current version
+     */
+    @GetMapping("/user/{userId}/changes")
+    public ResponseEntity<Object> getWatchlistChanges(@PathVariable Long userId,
+                                                      @RequestParam(required = false) Long since) {
+        try {
+            // The version comes from the database, so it holds the changes made through every instance
+            if (since != null && since == watchlistChangeService.getVersion(userId)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            WatchlistChangesDTO changes = watchlistChangeService.getChanges(userId, since);
+            return ResponseEntity.ok(changes);
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Error retrieving watchlist changes: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Stream the changes to the watchlists of a user as server-sent events
+     *
+     * Each "changes" event has the same content as the changes endpoint, and
+     * the version as its ID. A reconnecting EventSource sends that ID back in
+     * Last-Event-ID, which then takes over the since parameter.
+     *
+     * @param userId the user ID
+     * @param since the version the client has, absent for the whole state in the first event
+     * @param lastEventId the ID of the last event received before a reconnection
+     * @return the event stream
+     */
+    @GetMapping(value = "/user/{userId}/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamWatchlistChanges(@PathVariable Long userId,
+                                             @RequestParam(required = false) Long since,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long version = since;
+        if (lastEventId != null) {
+            try {
+                version = Long.valueOf(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // Not one of our IDs: start from the since parameter
+            }
+        }
+        return watchlistChangeStreamService.subscribe(userId, version);
+    }
+
+    /**
+     * Get the item counts per status and the average rating of a watchlist, without its items
+     * @param id the watchlist ID
+     * @param request the request, for its If-None-Match header
+     * @return the watchlist summary if found, or 304 if the client's copy is current
+     */
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<Object> getWatchlistSummary(@PathVariable Long id, WebRequest request) {
+        try {
+            if (isNotModified(watchlistService.getWatchlistETag(id), request)) {
+                return null;
+            }
+            WatchlistSummaryDTO summary = watchlistService.getWatchlistSummary(id);
+            if (summary == null) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "Watchlist not found with id: " + id);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Error retrieving watchlist summary: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Create a new watchlist
      * @param watchlist the watchlist to create
@@ -86,6 +219,34 @@ public class WatchlistController {
         }
     }
 
+    /**
+     * Apply a list of add, update, remove and move operations to the watchlists of a user
+     *
+     * The operations are applied in one transaction; each one succeeds or
+     * fails on its own, e.g. when it refers to an item that is not in the
+     * user's watchlists.
+     *
+     * @param userId the user owning the watchlists
+     * @param operations the operations, in order
+     * @return one result per operation, in the same order
+     */
+    @PostMapping("/user/{userId}/batch")
+    public ResponseEntity<Object> applyBatch(@PathVariable Long userId,
+                                             @RequestBody List<WatchlistBatchOperation> operations) {
+        try {
+            List<WatchlistBatchResultDTO> results = watchlistBatchService.apply(userId, operations);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Error applying watchlist operations: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Update a watchlist
      * @param id the watchlist ID
@@ -134,11 +295,15 @@ public class WatchlistController {
     /**
      * Get all items in a watchlist
      * @param watchlistId the watchlist ID
-     * @return list of watchlist items
+     * @param request the request, for its If-None-Match header
+     * @return list of watchlist items, or 304 if the client's copy is current
      */
     @GetMapping("/{watchlistId}/items")
-    public ResponseEntity<Object> getWatchlistItems(@PathVariable Long watchlistId) {
+    public ResponseEntity<Object> getWatchlistItems(@PathVariable Long watchlistId, WebRequest request) {
         try {
+            if (isNotModified(watchlistService.getWatchlistETag(watchlistId), request)) {
+                return null;
+            }
             List<WatchlistItemDTO> items = watchlistService.getWatchlistItems(watchlistId);
             return ResponseEntity.ok(items);
         } catch (Exception e) {
@@ -148,17 +313,55 @@ public class WatchlistController {
         }
     }
 
+    /**
+     * Get a page of the items in a watchlist, sorted
+     * @param watchlistId the watchlist ID
+     * @param sort added (default), rating, title or releaseDate
+     * @param size the page size
+     * @param cursor the nextCursor of the previous page, absent for the first page
+     * @param request the request, for its If-None-Match header
+     * @return the page of watchlist items, or 304 if the client's copy is current
+     */
+    @GetMapping("/{watchlistId}/items/page")
+    public ResponseEntity<Object> getWatchlistItemPage(
+            @PathVariable Long watchlistId,
+            @RequestParam(defaultValue = WatchlistItemService.SORT_ADDED) String sort,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        try {
+            if (isNotModified(watchlistService.getWatchlistETag(watchlistId), request)) {
+                return null;
+            }
+            WatchlistItemPageDTO page = watchlistService.getWatchlistItemPage(watchlistId, sort, size, cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Error retrieving watchlist items: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Get all items with a specific status in a watchlist
      * @param watchlistId the watchlist ID
      * @param status the status to filter by
-     * @return list of watchlist items
+     * @param request the request, for its If-None-Match header
+     * @return list of watchlist items, or 304 if the client's copy is current
      */
     @GetMapping("/{watchlistId}/items/status/{status}")
     public ResponseEntity<Object> getWatchlistItemsByStatus(
             @PathVariable Long watchlistId,
-            @PathVariable String status) {
+            @PathVariable String status,
+            WebRequest request) {
         try {
+            if (isNotModified(watchlistService.getWatchlistETag(watchlistId), request)) {
+                return null;
+            }
             WatchlistStatus watchlistStatus;
             try {
                 watchlistStatus = WatchlistStatus.valueOf(status);
@@ -274,4 +477,13 @@ public class WatchlistController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Check the If-None-Match header against an ETag, and set the ETag on the response
+     * @param etag the ETag, or null if the resource does not exist
+     * @return true if a 304 has been prepared: the handler must then return null
+     */
+    private static boolean isNotModified(String etag, WebRequest request) {
+        return etag != null && request.checkNotModified(etag);
+    }
+}
@@ -0,0 +1,22 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+@Getter
+public final class CacheStatsDTO {
+    private final long size;
+    private final long maximumSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final double hitRate;
+
+    public CacheStatsDTO(long size, long maximumSize, long hits, long misses, long evictions) {
+        this.size = size;
+        this.maximumSize = maximumSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.hitRate = hits + misses > 0 ? (double) hits / (hits + misses) : 0; // 0 tant qu'aucune lecture
+    }
+}
@@ -0,0 +1,31 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+public final class IngestionStatusDTO {
+    private final String state;
+    private final int totalPages;
+    private final int completedPages;
+    private final List<Integer> failedPages;
+    private final long moviesSaved;
+    private final Instant startedAt;
+    private final Instant finishedAt;
+    private final String error;
+
+    public IngestionStatusDTO(String state, int totalPages, int completedPages,
+                              List<Integer> failedPages, long moviesSaved,
+                              Instant startedAt, Instant finishedAt, String error) {
+        this.state = state;
+        this.totalPages = totalPages;
+        this.completedPages = completedPages;
+        this.failedPages = failedPages != null ? failedPages : List.of();
+        this.moviesSaved = moviesSaved;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.error = error;
+    }
+}
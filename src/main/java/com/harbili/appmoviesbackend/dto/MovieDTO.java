@@ -22,6 +22,6 @@ public final class MovieDTO {
         this.overview = overview;
         this.posterUrl = posterUrl;
         this.releaseDate = releaseDate;
-        this.genres = genres != null ? genres : List.of(); // Initialisation safe
+        this.genres = genres != null ? List.copyOf(genres) : List.of(); // Immuable : les DTO sont partagés par le cache
     }
 }
\ No newline at end of file
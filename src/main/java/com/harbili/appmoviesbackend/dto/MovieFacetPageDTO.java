@@ -0,0 +1,30 @@
+package com.harbili.appmoviesbackend.dto;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+public final class MovieFacetPageDTO {
+    private final List<MovieDTO> items;
+    private final long totalHits;
+    private final int size;
+    private final Long nextAfterId;
+    private final Map<String, Integer> genreCounts;
+    private final Map<Integer, Integer> yearCounts;
+    private final Map<WatchlistStatus, Integer> statusCounts;
+
+    public MovieFacetPageDTO(List<MovieDTO> items, long totalHits, int size, Long nextAfterId,
+                             Map<String, Integer> genreCounts, Map<Integer, Integer> yearCounts,
+                             Map<WatchlistStatus, Integer> statusCounts) {
+        this.items = items != null ? items : List.of();
+        this.totalHits = totalHits;
+        this.size = size;
+        this.nextAfterId = nextAfterId; // null quand il n'y a plus de page
+        this.genreCounts = genreCounts != null ? genreCounts : Map.of();
+        this.yearCounts = yearCounts != null ? yearCounts : Map.of();
+        this.statusCounts = statusCounts != null ? statusCounts : Map.of(); // vide sans utilisateur
+    }
+}
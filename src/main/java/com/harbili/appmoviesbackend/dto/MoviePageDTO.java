@@ -0,0 +1,20 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public final class MoviePageDTO {
+    private final List<MovieDTO> items;
+    private final String sort;
+    private final int size;
+    private final String nextCursor;
+
+    public MoviePageDTO(List<MovieDTO> items, String sort, int size, String nextCursor) {
+        this.items = items != null ? items : List.of();
+        this.sort = sort;
+        this.size = size;
+        this.nextCursor = nextCursor; // null quand il n'y a plus de page
+    }
+}
@@ -0,0 +1,20 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public final class MovieSearchPageDTO {
+    private final List<MovieDTO> items;
+    private final long totalHits;
+    private final int page;
+    private final int size;
+
+    public MovieSearchPageDTO(List<MovieDTO> items, long totalHits, int page, int size) {
+        this.items = items != null ? items : List.of();
+        this.totalHits = totalHits;
+        this.page = page;
+        this.size = size;
+    }
+}
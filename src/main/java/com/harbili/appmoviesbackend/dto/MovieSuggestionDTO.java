@@ -0,0 +1,14 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+@Getter
+public final class MovieSuggestionDTO {
+    private final Long id;
+    private final String title;
+
+    public MovieSuggestionDTO(Long id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+}
@@ -0,0 +1,39 @@
+package com.harbili.appmoviesbackend.dto;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One operation of a watchlist batch, as sent by the client
+ *
+ * ADD uses watchlistId, movieId and status; UPDATE uses itemId and any of
+ * status, rating and notes (null leaves a field unchanged); REMOVE uses
+ * itemId; MOVE uses itemId and targetWatchlistId.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WatchlistBatchOperation {
+
+    public enum Type {
+        ADD,
+        UPDATE,
+        REMOVE,
+        MOVE
+    }
+
+    private Type type;
+    private Long watchlistId;
+    private Long movieId;
+    private Long itemId;
+    private Long targetWatchlistId;
+    private WatchlistStatus status;
+    private Integer rating;
+    private String notes;
+}
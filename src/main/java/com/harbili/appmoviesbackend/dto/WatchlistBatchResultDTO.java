@@ -0,0 +1,23 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+/**
+ * Outcome of one operation of a watchlist batch
+ */
+@Getter
+public final class WatchlistBatchResultDTO {
+    private final int index;
+    private final String type;
+    private final boolean success;
+    private final Long itemId;      // L'item créé ou modifié
+    private final String message;   // Raison de l'échec, null en cas de succès
+
+    public WatchlistBatchResultDTO(int index, String type, boolean success, Long itemId, String message) {
+        this.index = index;
+        this.type = type;
+        this.success = success;
+        this.itemId = itemId;
+        this.message = message;
+    }
+}
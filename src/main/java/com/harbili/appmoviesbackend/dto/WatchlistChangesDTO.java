@@ -0,0 +1,33 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Changes to the watchlists of a user since a version
+ *
+ * The watchlists and items are given with their current values. When reset
+ * is true, they are the whole state of the user's watchlists and replace
+ * what the client has.
+ */
+@Getter
+public final class WatchlistChangesDTO {
+    private final long version;                         // À renvoyer comme "since" à la prochaine synchronisation
+    private final boolean reset;
+    private final List<WatchlistHeaderDTO> watchlists;  // Watchlists créées ou modifiées
+    private final List<WatchlistSyncItemDTO> items;     // Items ajoutés, modifiés ou déplacés
+    private final List<Long> deletedWatchlistIds;       // Leurs items sont supprimés avec elles
+    private final List<Long> deletedItemIds;
+
+    public WatchlistChangesDTO(long version, boolean reset, List<WatchlistHeaderDTO> watchlists,
+                               List<WatchlistSyncItemDTO> items, List<Long> deletedWatchlistIds,
+                               List<Long> deletedItemIds) {
+        this.version = version;
+        this.reset = reset;
+        this.watchlists = watchlists != null ? watchlists : List.of();
+        this.items = items != null ? items : List.of();
+        this.deletedWatchlistIds = deletedWatchlistIds != null ? deletedWatchlistIds : List.of();
+        this.deletedItemIds = deletedItemIds != null ? deletedItemIds : List.of();
+    }
+}
@@ -0,0 +1,19 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+/**
+ * A watchlist without its items
+ */
+@Getter
+public final class WatchlistHeaderDTO {
+    private final Long id;
+    private final String name;
+    private final String description;
+
+    public WatchlistHeaderDTO(Long id, String name, String description) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+    }
+}
@@ -0,0 +1,28 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Item counts and average rating of a watchlist, without its items
+ */
+@Getter
+public final class WatchlistSummaryDTO {
+    private final Long id;
+    private final String name;
+    private final Map<String, Integer> statusCounts;   // Statut -> nombre d'items, tous les statuts présents
+    private final int itemCount;
+    private final int ratingCount;                     // Nombre d'items notés
+    private final Double averageRating;                // null si aucun item n'est noté
+
+    public WatchlistSummaryDTO(Long id, String name, Map<String, Integer> statusCounts,
+                               int itemCount, int ratingCount, Double averageRating) {
+        this.id = id;
+        this.name = name;
+        this.statusCounts = statusCounts;
+        this.itemCount = itemCount;
+        this.ratingCount = ratingCount;
+        this.averageRating = averageRating;
+    }
+}
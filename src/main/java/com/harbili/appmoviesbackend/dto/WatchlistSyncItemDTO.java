@@ -0,0 +1,28 @@
+package com.harbili.appmoviesbackend.dto;
+
+import lombok.Getter;
+
+/**
+ * A watchlist item with the watchlist holding it, as sent by the delta synchronization
+ */
+@Getter
+public final class WatchlistSyncItemDTO {
+    private final Long id;
+    private final Long watchlistId;
+    private final Long movieId;
+    private final String movieTitle;
+    private final String status;
+    private final Integer rating;
+    private final String notes;
+
+    public WatchlistSyncItemDTO(Long id, Long watchlistId, Long movieId, String movieTitle,
+                                String status, Integer rating, String notes) {
+        this.id = id;
+        this.watchlistId = watchlistId;
+        this.movieId = movieId;
+        this.movieTitle = movieTitle;
+        this.status = status;
+        this.rating = rating;
+        this.notes = notes;
+    }
+}
@@ -1,5 +1,6 @@
 package com.harbili.appmoviesbackend.entities;
 
+import com.harbili.appmoviesbackend.tmdb.TmdbGenres;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -7,6 +8,10 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity @AllArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_movie_title_id", columnList = "title, id"),
+        @Index(name = "idx_movie_release_date_id", columnList = "releaseDate, id")
+})
 @NoArgsConstructor
 @Builder
 @Getter
@@ -21,8 +26,21 @@ public class Movie {
     private String posterPath;
     private LocalDate releaseDate;
 
-    @ElementCollection
-    private List<String> genres;
+    // Genres TMDB, un bit par genre (voir TmdbGenres) : pas de table de jointure à charger
+    @Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long genreMask;
 
+    public List<String> getGenres() {
+        return TmdbGenres.namesOf(genreMask);
+    }
 
+    public void setGenres(List<String> genres) {
+        this.genreMask = TmdbGenres.maskOfNames(genres);
+    }
+
+    public static class MovieBuilder {
+        public MovieBuilder genres(List<String> genres) {
+            return genreMask(TmdbGenres.maskOfNames(genres));
+        }
+    }
 }
\ No newline at end of file
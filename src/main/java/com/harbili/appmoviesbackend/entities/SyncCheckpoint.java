@@ -0,0 +1,22 @@
+package com.harbili.appmoviesbackend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Progress marker of a background synchronization job
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+public class SyncCheckpoint {
+    @Id
+    private String name;
+
+    private Instant lastSyncedAt;
+}
@@ -24,5 +24,23 @@ public class Watchlist {
     @OneToMany(mappedBy = "watchlist", cascade = CascadeType.ALL)
     private List<WatchlistItem> items;
 
+    // Compteurs des items, tenus à jour dans la transaction de chaque écriture d'item
+    // updatable = false : un save() de la watchlist ne doit jamais écraser un incrément concurrent
+    @Column(updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int toWatchCount;
+
+    @Column(updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int watchedCount;
+
+    @Column(updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int inProgressCount;
+
+    // Somme et nombre des notes renseignées, pour la moyenne
+    @Column(updatable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long ratingSum;
+
+    @Column(updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int ratingCount;
+
 
 }
\ No newline at end of file
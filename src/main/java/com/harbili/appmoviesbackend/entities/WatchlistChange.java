@@ -0,0 +1,45 @@
+package com.harbili.appmoviesbackend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Entry of the change log of a user's watchlists, read by the delta synchronization
+ */
+@Entity
+// Lecture des changements d'un utilisateur depuis une version, et purge des plus anciens
+@Table(indexes = {
+        @Index(name = "idx_watchlist_change_user_version", columnList = "userId, version"),
+        @Index(name = "idx_watchlist_change_created_at", columnList = "createdAt")
+})
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+public class WatchlistChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Pas de clé étrangère : le journal survit à la suppression des watchlists, des items et de l'utilisateur
+    @Column(nullable = false)
+    private Long userId;
+
+    // Version de l'utilisateur atteinte par la transaction qui a fait le changement
+    @Column(nullable = false)
+    private long version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WatchlistChangeType type;
+
+    // ID de la watchlist ou de l'item, selon le type
+    @Column(nullable = false)
+    private Long entityId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,8 @@
+package com.harbili.appmoviesbackend.entities;
+
+public enum WatchlistChangeType {
+    WATCHLIST_UPSERTED,
+    WATCHLIST_DELETED,
+    ITEM_UPSERTED,
+    ITEM_DELETED
+}
@@ -0,0 +1,23 @@
+package com.harbili.appmoviesbackend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Current change version of a user's watchlists
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+public class WatchlistChangeVersion {
+    // Pas de clé étrangère vers user : son contrôle poserait un verrou partagé sur l'utilisateur
+    @Id
+    private Long userId;
+
+    // Incrémentée une fois par transaction, uniquement en SQL
+    @Column(nullable = false)
+    private long version;
+}
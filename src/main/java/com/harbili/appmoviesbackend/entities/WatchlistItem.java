@@ -2,7 +2,20 @@ package com.harbili.appmoviesbackend.entities;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDate;
+
 @Entity
+// Un film n'apparaît qu'une fois par watchlist, même en cas d'ajouts concurrents ; sert aussi d'index sur watchlist_id
+// Les autres index servent les pages triées d'une watchlist (l'ID joue le rôle de date d'ajout)
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_watchlist_item_watchlist_movie",
+        columnNames = {"watchlist_id", "movieId"}),
+        indexes = {
+                @Index(name = "idx_watchlist_item_watchlist_id", columnList = "watchlist_id, id"),
+                @Index(name = "idx_watchlist_item_watchlist_rating_id", columnList = "watchlist_id, rating, id"),
+                @Index(name = "idx_watchlist_item_watchlist_title_id", columnList = "watchlist_id, movieTitle, id"),
+                @Index(name = "idx_watchlist_item_watchlist_release_date_id", columnList = "watchlist_id, movieReleaseDate, id"),
+                @Index(name = "idx_watchlist_item_movie_id", columnList = "movieId")
+        })
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
@@ -24,4 +37,12 @@ public class WatchlistItem {
 
     private Integer rating;
     private String notes;
+
+    // Copie du titre et de la date de sortie du film, pour trier sur un index de watchlist_item
+    // Écrites uniquement en SQL (insertion, événements du catalogue), jamais par JPA
+    @Column(insertable = false, updatable = false)
+    private String movieTitle;
+
+    @Column(insertable = false, updatable = false)
+    private LocalDate movieReleaseDate;
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.harbili.appmoviesbackend.events;
+
+import lombok.Getter;
+
+/**
+ * Published once a movie has been deleted from the database
+ */
+@Getter
+public final class MovieDeletedEvent {
+    private final Long movieId;
+
+    public MovieDeletedEvent(Long movieId) {
+        this.movieId = movieId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.harbili.appmoviesbackend.events;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published once movies have been created or updated in the database
+ */
+@Getter
+public final class MoviesUpsertedEvent {
+    private final List<Movie> movies;
+
+    public MoviesUpsertedEvent(List<Movie> movies) {
+        this.movies = movies != null ? List.copyOf(movies) : List.of();
+    }
+}
@@ -0,0 +1,15 @@
+package com.harbili.appmoviesbackend.events;
+
+import lombok.Getter;
+
+/**
+ * Published once a transaction that changed the watchlists of a user has committed
+ */
+@Getter
+public final class WatchlistsChangedEvent {
+    private final Long userId;
+
+    public WatchlistsChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+}
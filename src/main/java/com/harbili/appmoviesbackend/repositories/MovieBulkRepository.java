@@ -0,0 +1,42 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+
+import java.util.Collection;
+
+/**
+ * Bulk write operations for Movie, implemented with plain JDBC batches
+ */
+public interface MovieBulkRepository {
+    /**
+     * Insert or update movies in JDBC batches
+     *
+     * Unlike saveAll, this does not select each movie before writing it:
+     * every chunk is sent as one batched INSERT ... ON DUPLICATE KEY UPDATE,
+     * genre mask included.
+     *
+     * @param movies the movies to write
+     * @return the number of movies written
+     */
+    int upsertAll(Collection<Movie> movies);
+
+    /**
+     * Set the genre mask of the movies from the movie_genres table, then rename that table to movie_genres_legacy
+     *
+     * movie_genres held the genre names before the mask replaced it. Only
+     * movies whose mask is still 0 are updated, so a mask written by a sync
+     * is kept. A movie with a genre name matching no genre is left alone and
+     * the names are logged; the table then keeps its name, so the next start
+     * tries again. Does nothing once the table is renamed.
+     *
+     * @return the number of movies updated
+     */
+    int backfillGenreMasks();
+
+    /**
+     * Drop movie_genres_legacy, the genre names left by {@link #backfillGenreMasks()}
+     *
+     * @return whether the table existed
+     */
+    boolean dropLegacyGenres();
+}
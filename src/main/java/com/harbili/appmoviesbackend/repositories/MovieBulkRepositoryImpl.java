@@ -0,0 +1,138 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.tmdb.TmdbGenres;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * JDBC implementation of {@link MovieBulkRepository}
+ *
+ * With rewriteBatchedStatements enabled on the MySQL driver, each batch below
+ * is sent to the server as a single multi-row statement.
+ */
+class MovieBulkRepositoryImpl implements MovieBulkRepository {
+
+    private static final String UPSERT_MOVIE =
+            "INSERT INTO movie (id, title, overview, poster_path, release_date, genre_mask) VALUES (?, ?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE title = VALUES(title), overview = VALUES(overview), "
+                    + "poster_path = VALUES(poster_path), release_date = VALUES(release_date), "
+                    + "genre_mask = VALUES(genre_mask)";
+
+    private static final String TABLE_EXISTS =
+            "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
+
+    private static final String SELECT_LEGACY_GENRES =
+            "SELECT g.movie_id, g.genres FROM movie_genres g JOIN movie m ON m.id = g.movie_id WHERE m.genre_mask = 0";
+
+    private static final String UPDATE_GENRE_MASK = "UPDATE movie SET genre_mask = ? WHERE id = ? AND genre_mask = 0";
+
+    // Movie IDs listed per unmapped genre name in the backfill log
+    private static final int LOGGED_IDS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+
+    MovieBulkRepositoryImpl(JdbcTemplate jdbcTemplate,
+                            @Value("${movies.bulk.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Override
+    @Transactional
+    public int upsertAll(Collection<Movie> movies) {
+        if (movies == null || movies.isEmpty()) {
+            return 0;
+        }
+        List<Movie> all = new ArrayList<>(movies);
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            writeChunk(all.subList(from, Math.min(from + chunkSize, all.size())));
+        }
+        return all.size();
+    }
+
+    @Override
+    @Transactional
+    public int backfillGenreMasks() {
+        if (!tableExists("movie_genres")) {
+            return 0;
+        }
+        Map<Long, Long> masks = new HashMap<>();
+        // Genre name -> movies having it, for the names no genre bit matches
+        Map<String, List<Long>> unmapped = new TreeMap<>();
+        jdbcTemplate.query(SELECT_LEGACY_GENRES, rs -> {
+            long movieId = rs.getLong(1);
+            String name = rs.getString(2);
+            long mask = TmdbGenres.maskOfNames(List.of(name));
+            if (mask == 0) {
+                unmapped.computeIfAbsent(name, n -> new ArrayList<>()).add(movieId);
+            }
+            masks.merge(movieId, mask, (a, b) -> a | b);
+        });
+        // A movie with an unmapped genre keeps a mask of 0, so that the next start reads all its genres again
+        Set<Long> incomplete = new HashSet<>();
+        unmapped.values().forEach(incomplete::addAll);
+        List<long[]> updates = new ArrayList<>();
+        masks.forEach((id, mask) -> {
+            if (mask != 0 && !incomplete.contains(id)) {
+                updates.add(new long[]{mask, id});
+            }
+        });
+        for (int from = 0; from < updates.size(); from += chunkSize) {
+            List<long[]> chunk = updates.subList(from, Math.min(from + chunkSize, updates.size()));
+            jdbcTemplate.batchUpdate(UPDATE_GENRE_MASK, chunk, chunk.size(), (ps, update) -> {
+                ps.setLong(1, update[0]);
+                ps.setLong(2, update[1]);
+            });
+        }
+        if (!unmapped.isEmpty()) {
+            unmapped.forEach((name, ids) -> System.err.println("Unmapped genre '" + name + "' on " + ids.size()
+                    + " movies, kept in movie_genres: " + ids.subList(0, Math.min(LOGGED_IDS, ids.size()))
+                    + (ids.size() > LOGGED_IDS ? " ..." : "")));
+        } else if (tableExists("movie_genres_legacy")) {
+            System.err.println("movie_genres kept: movie_genres_legacy already exists");
+        } else {
+            // A DDL statement commits the updates above with it. Should it fail, the next start only
+            // reads the genres of the movies still without a mask again.
+            jdbcTemplate.execute("RENAME TABLE movie_genres TO movie_genres_legacy");
+        }
+        return updates.size();
+    }
+
+    @Override
+    public boolean dropLegacyGenres() {
+        if (!tableExists("movie_genres_legacy")) {
+            return false;
+        }
+        jdbcTemplate.execute("DROP TABLE movie_genres_legacy");
+        return true;
+    }
+
+    private boolean tableExists(String table) {
+        Long tables = jdbcTemplate.queryForObject(TABLE_EXISTS, Long.class, table);
+        return tables != null && tables > 0;
+    }
+
+    private void writeChunk(List<Movie> chunk) {
+        jdbcTemplate.batchUpdate(UPSERT_MOVIE, chunk, chunk.size(), (ps, movie) -> {
+            ps.setLong(1, movie.getId());
+            ps.setString(2, movie.getTitle());
+            ps.setString(3, movie.getOverview());
+            ps.setString(4, movie.getPosterPath());
+            ps.setDate(5, movie.getReleaseDate() != null ? Date.valueOf(movie.getReleaseDate()) : null);
+            ps.setLong(6, movie.getGenreMask());
+        });
+    }
+}
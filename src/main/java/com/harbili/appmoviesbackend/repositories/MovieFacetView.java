@@ -0,0 +1,14 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a movie on the values it can be filtered on, for in-memory indexes
+ */
+public interface MovieFacetView {
+    Long getId();
+
+    long getGenreMask();
+
+    LocalDate getReleaseDate();
+}
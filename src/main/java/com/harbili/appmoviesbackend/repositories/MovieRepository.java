@@ -1,16 +1,27 @@
 package com.harbili.appmoviesbackend.repositories;
 
 import com.harbili.appmoviesbackend.entities.Movie;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 /**
  * Repository for Movie entity
  */
-public interface MovieRepository extends JpaRepository<Movie, Long> {
+public interface MovieRepository extends JpaRepository<Movie, Long>, MovieBulkRepository {
     /**
      * Find a movie by its exact title
      * @param title the title to search for
@@ -45,4 +56,96 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
      */
     @Query("SELECT m FROM Movie m ORDER BY m.id DESC")
     List<Movie> findRecentMovies();
+
+    /**
+     * Keep only the IDs of movies that are stored locally
+     * @param ids the candidate movie IDs
+     * @return the subset of IDs present in the catalog
+     */
+    @Query("SELECT m.id FROM Movie m WHERE m.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Keyset page of movies ordered by ID
+     * @param afterId the ID of the last movie of the previous page
+     * @param limit the maximum number of movies
+     * @return the movies with an ID greater than afterId
+     */
+    @Query("SELECT m FROM Movie m WHERE m.id > :afterId ORDER BY m.id ASC")
+    List<Movie> findPageById(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Keyset page of movies ordered by title, then ID (served by idx_movie_title_id)
+     * @param title the title of the last movie of the previous page
+     * @param afterId the ID of the last movie of the previous page
+     * @param limit the maximum number of movies
+     * @return the movies after (title, afterId); movies without title are not included
+     */
+    @Query("SELECT m FROM Movie m WHERE m.title > :title OR (m.title = :title AND m.id > :afterId) "
+            + "ORDER BY m.title ASC, m.id ASC")
+    List<Movie> findPageByTitle(@Param("title") String title, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Keyset page of movies without title, ordered by ID
+     */
+    @Query("SELECT m FROM Movie m WHERE m.title IS NULL AND m.id > :afterId ORDER BY m.id ASC")
+    List<Movie> findPageWithoutTitle(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Keyset page of movies from the newest to the oldest release (served by idx_movie_release_date_id)
+     * @param releaseDate the release date of the last movie of the previous page
+     * @param beforeId the ID of the last movie of the previous page
+     * @param limit the maximum number of movies
+     * @return the movies after (releaseDate, beforeId); movies without release date are not included
+     */
+    @Query("SELECT m FROM Movie m WHERE m.releaseDate < :releaseDate OR (m.releaseDate = :releaseDate AND m.id < :beforeId) "
+            + "ORDER BY m.releaseDate DESC, m.id DESC")
+    List<Movie> findPageByReleaseDate(@Param("releaseDate") LocalDate releaseDate, @Param("beforeId") Long beforeId, Limit limit);
+
+    /**
+     * Keyset page of movies without release date, ordered by ID
+     */
+    @Query("SELECT m FROM Movie m WHERE m.releaseDate IS NULL AND m.id > :afterId ORDER BY m.id ASC")
+    List<Movie> findPageWithoutReleaseDate(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Stream every movie with an ID greater than afterId, ordered by ID
+     *
+     * The fetch size of Integer.MIN_VALUE makes the MySQL driver stream rows one
+     * at a time instead of buffering the whole result. The stream must be
+     * consumed and closed inside a transaction, and no other query can run on
+     * the connection until it is closed.
+     *
+     * @param afterId the ID to resume after
+     * @return the movies
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT m FROM Movie m WHERE m.id > :afterId ORDER BY m.id ASC")
+    Stream<Movie> streamAllAfter(@Param("afterId") Long afterId);
+
+    /**
+     * Stream the ID and title of every movie, without loading the entities
+     * @return the titles; the stream must be consumed and closed inside a transaction
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m.id AS id, m.title AS title FROM Movie m")
+    Stream<MovieTitleView> streamTitles();
+
+    /**
+     * Stream the ID, genre mask and release date of every movie, without loading the entities
+     * @return the facets; the stream must be consumed and closed inside a transaction
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m.id AS id, m.genreMask AS genreMask, m.releaseDate AS releaseDate FROM Movie m")
+    Stream<MovieFacetView> streamFacets();
 }
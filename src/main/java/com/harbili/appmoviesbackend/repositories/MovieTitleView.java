@@ -0,0 +1,10 @@
+package com.harbili.appmoviesbackend.repositories;
+
+/**
+ * Projection of a movie on its ID and title, for in-memory indexes
+ */
+public interface MovieTitleView {
+    Long getId();
+
+    String getTitle();
+}
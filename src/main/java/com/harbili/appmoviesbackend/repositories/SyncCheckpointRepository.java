@@ -0,0 +1,10 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.SyncCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository for SyncCheckpoint entity
+ */
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, String> {
+}
@@ -0,0 +1,35 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import java.util.Map;
+
+/**
+ * Updates of the item counters of Watchlist, implemented with plain JDBC
+ *
+ * The counters are only written through these increments, inside the
+ * transaction that writes the items, never by saving the entity.
+ */
+public interface WatchlistBulkRepository {
+    /**
+     * Apply a change to the counters of a watchlist, locking its row until the end of the transaction
+     * @param watchlistId the watchlist ID
+     * @param delta the change
+     * @return false if the watchlist does not exist
+     */
+    boolean addToCounters(long watchlistId, WatchlistCounterDelta delta);
+
+    /**
+     * Apply changes to the counters of several watchlists in one JDBC batch, in ID order
+     * @param deltas watchlist ID -> change; empty changes are skipped
+     */
+    void addAllToCounters(Map<Long, WatchlistCounterDelta> deltas);
+
+    /**
+     * Recompute the counters of every watchlist from its items, in one statement
+     *
+     * Repairs the counters after items were written without going through
+     * the services, e.g. by the data initializer or by hand.
+     *
+     * @return the number of watchlists
+     */
+    int recomputeCounters();
+}
@@ -0,0 +1,71 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JDBC implementation of {@link WatchlistBulkRepository}
+ */
+class WatchlistBulkRepositoryImpl implements WatchlistBulkRepository {
+
+    private static final String ADD_TO_COUNTERS =
+            "UPDATE watchlist SET to_watch_count = to_watch_count + ?, watched_count = watched_count + ?, "
+                    + "in_progress_count = in_progress_count + ?, rating_sum = rating_sum + ?, "
+                    + "rating_count = rating_count + ? WHERE id = ?";
+
+    private static final String RECOMPUTE_COUNTERS =
+            "UPDATE watchlist w LEFT JOIN ("
+                    + "SELECT watchlist_id, SUM(status = ?) AS to_watch, SUM(status = ?) AS watched, "
+                    + "SUM(status = ?) AS in_progress, SUM(rating) AS rating_sum, COUNT(rating) AS rating_count "
+                    + "FROM watchlist_item GROUP BY watchlist_id) c ON c.watchlist_id = w.id "
+                    + "SET w.to_watch_count = COALESCE(c.to_watch, 0), w.watched_count = COALESCE(c.watched, 0), "
+                    + "w.in_progress_count = COALESCE(c.in_progress, 0), w.rating_sum = COALESCE(c.rating_sum, 0), "
+                    + "w.rating_count = COALESCE(c.rating_count, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    WatchlistBulkRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean addToCounters(long watchlistId, WatchlistCounterDelta delta) {
+        // Found rows, not changed rows: the driver counts a matched row even when the delta is zero
+        return jdbcTemplate.update(ADD_TO_COUNTERS, delta.getToWatch(), delta.getWatched(), delta.getInProgress(),
+                delta.getRatingSum(), delta.getRatingCount(), watchlistId) > 0;
+    }
+
+    @Override
+    public void addAllToCounters(Map<Long, WatchlistCounterDelta> deltas) {
+        // Locking the rows in ID order keeps two batches from waiting on each other
+        List<Map.Entry<Long, WatchlistCounterDelta>> changes = new ArrayList<>();
+        for (Map.Entry<Long, WatchlistCounterDelta> change : new TreeMap<>(deltas).entrySet()) {
+            if (!change.getValue().isEmpty()) {
+                changes.add(change);
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_TO_COUNTERS, changes, changes.size(), (ps, change) -> {
+            WatchlistCounterDelta delta = change.getValue();
+            ps.setInt(1, delta.getToWatch());
+            ps.setInt(2, delta.getWatched());
+            ps.setInt(3, delta.getInProgress());
+            ps.setLong(4, delta.getRatingSum());
+            ps.setInt(5, delta.getRatingCount());
+            ps.setLong(6, change.getKey());
+        });
+    }
+
+    @Override
+    public int recomputeCounters() {
+        return jdbcTemplate.update(RECOMPUTE_COUNTERS,
+                WatchlistStatus.À_VOIR.name(), WatchlistStatus.VU.name(), WatchlistStatus.EN_COURS.name());
+    }
+}
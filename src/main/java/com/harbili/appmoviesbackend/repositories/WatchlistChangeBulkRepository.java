@@ -0,0 +1,33 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistChangeType;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes of the watchlist change log, implemented with plain JDBC
+ */
+public interface WatchlistChangeBulkRepository {
+    /**
+     * Bump the change version of a user and log changes under the new version
+     *
+     * The version row of the user stays locked until the end of the
+     * transaction: the writes of one user get their versions in commit order,
+     * so a reader never sees a version before all the lower ones.
+     *
+     * @param userId the owner of the changed watchlists
+     * @param types the type of each change
+     * @param entityIds the ID of the changed watchlist or item, one per change
+     * @param at the time of the changes
+     */
+    void record(long userId, List<WatchlistChangeType> types, List<Long> entityIds, Instant at);
+
+    /**
+     * Delete log entries older than a given time, at most a given number of them
+     * @param before the time before which entries are deleted
+     * @param limit the maximum number of entries to delete
+     * @return the number of deleted entries
+     */
+    int deleteOlderThan(Instant before, int limit);
+}
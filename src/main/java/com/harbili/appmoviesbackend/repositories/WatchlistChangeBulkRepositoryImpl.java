@@ -0,0 +1,52 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistChangeType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link WatchlistChangeBulkRepository}
+ */
+class WatchlistChangeBulkRepositoryImpl implements WatchlistChangeBulkRepository {
+
+    private static final String BUMP_VERSION =
+            "INSERT INTO watchlist_change_version (user_id, version) VALUES (?, 1) "
+                    + "ON DUPLICATE KEY UPDATE version = version + 1";
+
+    // The version is read back by the statement itself, under the lock taken by the bump
+    private static final String INSERT_CHANGE =
+            "INSERT INTO watchlist_change (user_id, version, type, entity_id, created_at) "
+                    + "SELECT v.user_id, v.version, ?, ?, ? FROM watchlist_change_version v WHERE v.user_id = ?";
+
+    private static final String DELETE_OLDER_THAN = "DELETE FROM watchlist_change WHERE created_at < ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    WatchlistChangeBulkRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void record(long userId, List<WatchlistChangeType> types, List<Long> entityIds, Instant at) {
+        if (types.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(BUMP_VERSION, userId);
+        // Every change of the transaction has the same time, so a version is never pruned by halves
+        Timestamp createdAt = Timestamp.from(at);
+        List<Object[]> rows = new ArrayList<>(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            rows.add(new Object[]{types.get(i).name(), entityIds.get(i), createdAt, userId});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, rows);
+    }
+
+    @Override
+    public int deleteOlderThan(Instant before, int limit) {
+        return jdbcTemplate.update(DELETE_OLDER_THAN, Timestamp.from(before), limit);
+    }
+}
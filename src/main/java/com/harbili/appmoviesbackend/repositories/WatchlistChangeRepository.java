@@ -0,0 +1,45 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for the WatchlistChange log and the change versions of the users
+ */
+public interface WatchlistChangeRepository extends JpaRepository<WatchlistChange, Long>, WatchlistChangeBulkRepository {
+
+    /**
+     * Find the current change version of a user
+     * @param userId the user ID
+     * @return the version, empty if the user's watchlists never changed since the log exists
+     */
+    @Query("SELECT v.version FROM WatchlistChangeVersion v WHERE v.userId = :userId")
+    Optional<Long> findVersionByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find the lowest version still in the log of a user
+     * @param userId the user ID
+     * @return the version, or null if the log of the user is empty
+     */
+    @Query("SELECT MIN(c.version) FROM WatchlistChange c WHERE c.userId = :userId")
+    Long findOldestVersionByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find the changes of a user between two versions (served by idx_watchlist_change_user_version)
+     * @param userId the user ID
+     * @param since the version the client has, excluded
+     * @param until the last version to return, included
+     * @param limit the maximum number of changes
+     * @return the changes, oldest first
+     */
+    @Query("SELECT c FROM WatchlistChange c WHERE c.userId = :userId AND c.version > :since "
+            + "AND c.version <= :until ORDER BY c.version, c.id")
+    List<WatchlistChange> findByUserIdBetweenVersions(@Param("userId") Long userId, @Param("since") long since,
+                                                      @Param("until") long until, Limit limit);
+}
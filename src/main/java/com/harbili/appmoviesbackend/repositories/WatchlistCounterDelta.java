@@ -0,0 +1,50 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import lombok.Getter;
+
+/**
+ * Change to apply to the item counters of a watchlist
+ */
+@Getter
+public final class WatchlistCounterDelta {
+    private int toWatch;
+    private int watched;
+    private int inProgress;
+    private long ratingSum;
+    private int ratingCount;
+
+    /**
+     * Count an item entering the watchlist, or an item's new values after an update
+     */
+    public WatchlistCounterDelta add(WatchlistStatus status, Integer rating) {
+        apply(status, rating, 1);
+        return this;
+    }
+
+    /**
+     * Uncount an item leaving the watchlist, or an item's old values before an update
+     */
+    public WatchlistCounterDelta remove(WatchlistStatus status, Integer rating) {
+        apply(status, rating, -1);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return toWatch == 0 && watched == 0 && inProgress == 0 && ratingSum == 0 && ratingCount == 0;
+    }
+
+    private void apply(WatchlistStatus status, Integer rating, int sign) {
+        if (status != null) {
+            switch (status) {
+                case À_VOIR -> toWatch += sign;
+                case VU -> watched += sign;
+                case EN_COURS -> inProgress += sign;
+            }
+        }
+        if (rating != null) {
+            ratingSum += (long) sign * rating;
+            ratingCount += sign;
+        }
+    }
+}
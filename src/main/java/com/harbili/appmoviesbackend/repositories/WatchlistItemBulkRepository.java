@@ -0,0 +1,79 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistItem;
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Write operations for WatchlistItem that JPA cannot express in one statement, implemented with plain JDBC
+ */
+public interface WatchlistItemBulkRepository {
+    /**
+     * Add a movie to a watchlist in a single statement, unless it is already there
+     *
+     * The row is only inserted if the watchlist and the movie exist, and the
+     * unique key on (watchlist_id, movie_id) makes a duplicate, even one
+     * inserted concurrently, a no-op. The title and release date of the movie
+     * are copied into the row in the same statement. The watchlist row stays
+     * locked until the end of the transaction, even if nothing is inserted.
+     *
+     * @param watchlistId the watchlist ID
+     * @param movieId the movie ID
+     * @param status the status of the movie in the watchlist
+     * @return the ID of the new item, or null if nothing was inserted
+     */
+    Long insertIfAbsent(long watchlistId, long movieId, WatchlistStatus status);
+
+    /**
+     * Lock items until the end of the current transaction, in ID order
+     *
+     * Items are always locked before the watchlists holding them, whose
+     * counters are updated next.
+     *
+     * @param itemIds the item IDs; unknown IDs are skipped
+     * @return the IDs of the locked items
+     */
+    List<Long> lockAll(Collection<Long> itemIds);
+
+    /**
+     * Insert items in one JDBC batch, skipping those whose movie is already in their watchlist
+     *
+     * The batch reports no per-row outcome: the caller reads the new items
+     * back to tell which were inserted.
+     *
+     * @param items the items; only the watchlist ID, the movie ID and the status are written,
+     *              with the title and release date of the movie
+     */
+    void insertAll(Collection<WatchlistItem> items);
+
+    /**
+     * Update the status, rating and notes of items in one JDBC batch, in order
+     * @param items the items, by ID; a null field leaves the stored value unchanged
+     */
+    void updateAll(Collection<WatchlistItem> items);
+
+    /**
+     * Move items to other watchlists in one JDBC batch, in order, skipping those whose movie is already in
+     * their new watchlist
+     *
+     * As with {@link #insertAll}, the caller reads the items back to tell
+     * which were moved.
+     *
+     * @param items the items, by ID, with their new watchlist; only its ID is read
+     */
+    void moveAll(Collection<WatchlistItem> items);
+
+    /**
+     * Copy the current title and release date of some movies into the items holding them
+     * @param movieIds the movie IDs; the values of a movie missing from the catalog are cleared
+     */
+    void refreshMovieValues(Collection<Long> movieIds);
+
+    /**
+     * Copy the title and release date of their movie into every item where they differ, in one statement
+     * @return the number of items updated
+     */
+    int refreshAllMovieValues();
+}
@@ -0,0 +1,150 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistItem;
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link WatchlistItemBulkRepository}
+ *
+ * With rewriteBatchedStatements enabled on the MySQL driver, the batched
+ * inserts are sent as a single multi-row statement; the driver then reports
+ * no per-row update count, so callers read the outcome back instead.
+ */
+class WatchlistItemBulkRepositoryImpl implements WatchlistItemBulkRepository {
+
+    // IGNORE rather than ON DUPLICATE KEY UPDATE: the driver reports a no-op update as one found row,
+    // while an ignored row counts as zero and has no generated key. FOR UPDATE OF w takes the exclusive
+    // lock on the watchlist right away, instead of a shared one that its counter update would upgrade
+    private static final String INSERT_IF_ABSENT =
+            "INSERT IGNORE INTO watchlist_item (watchlist_id, movie_id, status, movie_title, movie_release_date) "
+                    + "SELECT w.id, m.id, ?, m.title, m.release_date FROM watchlist w JOIN movie m ON m.id = ? WHERE w.id = ? "
+                    + "FOR UPDATE OF w";
+
+    // Subqueries rather than INSERT ... SELECT: the row is inserted even if the movie was deleted meanwhile,
+    // as the counters of the watchlist expect
+    private static final String INSERT_ITEM =
+            "INSERT IGNORE INTO watchlist_item (watchlist_id, movie_id, status, movie_title, movie_release_date) "
+                    + "VALUES (?, ?, ?, (SELECT title FROM movie WHERE id = ?), (SELECT release_date FROM movie WHERE id = ?))";
+
+    private static final String REFRESH_MOVIE_VALUES =
+            "UPDATE watchlist_item i LEFT JOIN movie m ON m.id = i.movie_id "
+                    + "SET i.movie_title = m.title, i.movie_release_date = m.release_date WHERE i.movie_id IN (%s)";
+
+    private static final String REFRESH_ALL_MOVIE_VALUES =
+            "UPDATE watchlist_item i LEFT JOIN movie m ON m.id = i.movie_id "
+                    + "SET i.movie_title = m.title, i.movie_release_date = m.release_date "
+                    + "WHERE NOT (i.movie_title <=> m.title) OR NOT (i.movie_release_date <=> m.release_date)";
+
+    // Maximum number of IDs in one IN (...) list
+    private static final int MAX_IDS_PER_STATEMENT = 1000;
+
+    private static final String UPDATE_ITEM =
+            "UPDATE watchlist_item SET status = COALESCE(?, status), rating = COALESCE(?, rating), "
+                    + "notes = COALESCE(?, notes) WHERE id = ?";
+
+    // IGNORE: a movie added concurrently to the target watchlist skips the move instead of failing the batch
+    private static final String MOVE_ITEM = "UPDATE IGNORE watchlist_item SET watchlist_id = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    WatchlistItemBulkRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Long insertIfAbsent(long watchlistId, long movieId, WatchlistStatus status) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int inserted = jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_IF_ABSENT, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, status != null ? status.name() : null);
+            ps.setLong(2, movieId);
+            ps.setLong(3, watchlistId);
+            return ps;
+        }, keyHolder);
+        if (inserted == 0 || keyHolder.getKey() == null) {
+            return null;
+        }
+        return keyHolder.getKey().longValue();
+    }
+
+    @Override
+    public List<Long> lockAll(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(itemIds.size(), "?"));
+        return jdbcTemplate.queryForList("SELECT id FROM watchlist_item WHERE id IN (" + placeholders + ") "
+                + "ORDER BY id FOR UPDATE", Long.class, itemIds.toArray());
+    }
+
+    @Override
+    public void insertAll(Collection<WatchlistItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<WatchlistItem> all = new ArrayList<>(items);
+        jdbcTemplate.batchUpdate(INSERT_ITEM, all, all.size(), (ps, item) -> {
+            ps.setLong(1, item.getWatchlist().getId());
+            ps.setLong(2, item.getMovieId());
+            ps.setString(3, item.getStatus() != null ? item.getStatus().name() : null);
+            ps.setLong(4, item.getMovieId());
+            ps.setLong(5, item.getMovieId());
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<WatchlistItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<WatchlistItem> all = new ArrayList<>(items);
+        jdbcTemplate.batchUpdate(UPDATE_ITEM, all, all.size(), (ps, item) -> {
+            ps.setString(1, item.getStatus() != null ? item.getStatus().name() : null);
+            if (item.getRating() != null) {
+                ps.setInt(2, item.getRating());
+            } else {
+                ps.setNull(2, Types.INTEGER);
+            }
+            ps.setString(3, item.getNotes());
+            ps.setLong(4, item.getId());
+        });
+    }
+
+    @Override
+    public void moveAll(Collection<WatchlistItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<WatchlistItem> all = new ArrayList<>(items);
+        jdbcTemplate.batchUpdate(MOVE_ITEM, all, all.size(), (ps, item) -> {
+            ps.setLong(1, item.getWatchlist().getId());
+            ps.setLong(2, item.getId());
+        });
+    }
+
+    @Override
+    public void refreshMovieValues(Collection<Long> movieIds) {
+        List<Long> all = new ArrayList<>(movieIds);
+        for (int from = 0; from < all.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Long> chunk = all.subList(from, Math.min(from + MAX_IDS_PER_STATEMENT, all.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.update(String.format(REFRESH_MOVIE_VALUES, placeholders), chunk.toArray());
+        }
+    }
+
+    @Override
+    public int refreshAllMovieValues() {
+        return jdbcTemplate.update(REFRESH_ALL_MOVIE_VALUES);
+    }
+}
@@ -0,0 +1,12 @@
+package com.harbili.appmoviesbackend.repositories;
+
+/**
+ * Projection of a watchlist item on the keys that place it: its watchlist and its movie
+ */
+public interface WatchlistItemKeyView {
+    Long getId();
+
+    Long getWatchlistId();
+
+    Long getMovieId();
+}
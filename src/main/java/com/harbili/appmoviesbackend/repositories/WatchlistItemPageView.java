@@ -0,0 +1,13 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a watchlist item on the values it is listed and sorted by
+ *
+ * The title and release date are the copies kept in the item row, not
+ * joined from the catalog: a page is read from one index of watchlist_item.
+ */
+public interface WatchlistItemPageView extends WatchlistItemView {
+    LocalDate getMovieReleaseDate();
+}
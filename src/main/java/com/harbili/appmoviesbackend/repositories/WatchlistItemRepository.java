@@ -2,14 +2,22 @@ package com.harbili.appmoviesbackend.repositories;
 
 import com.harbili.appmoviesbackend.entities.WatchlistItem;
 import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for WatchlistItem entity
  */
-public interface WatchlistItemRepository extends JpaRepository<WatchlistItem, Long> {
+public interface WatchlistItemRepository extends JpaRepository<WatchlistItem, Long>, WatchlistItemBulkRepository {
 
     /**
      * Find all items in a specific watchlist
@@ -33,4 +41,193 @@ public interface WatchlistItemRepository extends JpaRepository<WatchlistItem, Lo
      * @return list of watchlist items
      */
     List<WatchlistItem> findByWatchlistIdAndStatus(Long watchlistId, WatchlistStatus status);
+
+    /**
+     * Find the items of a watchlist with the title of their movie, in a single statement
+     * @param watchlistId the watchlist ID
+     * @return the items, ordered by ID
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, m.title AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes "
+            + "FROM WatchlistItem i LEFT JOIN Movie m ON m.id = i.movieId "
+            + "WHERE i.watchlist.id = :watchlistId ORDER BY i.id")
+    List<WatchlistItemView> findViewsByWatchlistId(@Param("watchlistId") Long watchlistId);
+
+    /**
+     * Find the items with a specific status in a watchlist with the title of their movie, in a single statement
+     * @param watchlistId the watchlist ID
+     * @param status the status to filter by
+     * @return the items, ordered by ID
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, m.title AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes "
+            + "FROM WatchlistItem i LEFT JOIN Movie m ON m.id = i.movieId "
+            + "WHERE i.watchlist.id = :watchlistId AND i.status = :status ORDER BY i.id")
+    List<WatchlistItemView> findViewsByWatchlistIdAndStatus(@Param("watchlistId") Long watchlistId,
+                                                            @Param("status") WatchlistStatus status);
+
+    /**
+     * Keyset page of the items of a watchlist, from the last added (served by idx_watchlist_item_watchlist_id)
+     *
+     * Item IDs grow with each insert, so they order the items by the time they were added.
+     *
+     * @param watchlistId the watchlist ID
+     * @param beforeId the ID of the last item of the previous page
+     * @param limit the maximum number of items
+     * @return the items with an ID lower than beforeId
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, i.movieTitle AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes, i.movieReleaseDate AS movieReleaseDate FROM WatchlistItem i "
+            + "WHERE i.watchlist.id = :watchlistId AND i.id < :beforeId ORDER BY i.id DESC")
+    List<WatchlistItemPageView> findPageByAdded(@Param("watchlistId") Long watchlistId,
+                                                @Param("beforeId") Long beforeId, Limit limit);
+
+    /**
+     * Keyset page of the items of a watchlist from the best to the worst rating (served by
+     * idx_watchlist_item_watchlist_rating_id)
+     * @param watchlistId the watchlist ID
+     * @param rating the rating of the last item of the previous page
+     * @param beforeId the ID of the last item of the previous page
+     * @param limit the maximum number of items
+     * @return the items after (rating, beforeId); items without rating are not included
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, i.movieTitle AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes, i.movieReleaseDate AS movieReleaseDate FROM WatchlistItem i "
+            + "WHERE i.watchlist.id = :watchlistId AND (i.rating < :rating OR (i.rating = :rating AND i.id < :beforeId)) "
+            + "ORDER BY i.rating DESC, i.id DESC")
+    List<WatchlistItemPageView> findPageByRating(@Param("watchlistId") Long watchlistId, @Param("rating") Integer rating,
+                                                 @Param("beforeId") Long beforeId, Limit limit);
+
+    /**
+     * Keyset page of the items of a watchlist without rating, ordered by ID
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, i.movieTitle AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes, i.movieReleaseDate AS movieReleaseDate FROM WatchlistItem i "
+            + "WHERE i.watchlist.id = :watchlistId AND i.rating IS NULL AND i.id > :afterId ORDER BY i.id ASC")
+    List<WatchlistItemPageView> findPageWithoutRating(@Param("watchlistId") Long watchlistId,
+                                                      @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Keyset page of the items of a watchlist ordered by movie title, then ID (served by
+     * idx_watchlist_item_watchlist_title_id)
+     * @param watchlistId the watchlist ID
+     * @param title the movie title of the last item of the previous page
+     * @param afterId the ID of the last item of the previous page
+     * @param limit the maximum number of items
+     * @return the items after (title, afterId); items without movie title are not included
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, i.movieTitle AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes, i.movieReleaseDate AS movieReleaseDate FROM WatchlistItem i "
+            + "WHERE i.watchlist.id = :watchlistId AND (i.movieTitle > :title OR (i.movieTitle = :title AND i.id > :afterId)) "
+            + "ORDER BY i.movieTitle ASC, i.id ASC")
+    List<WatchlistItemPageView> findPageByTitle(@Param("watchlistId") Long watchlistId, @Param("title") String title,
+                                                @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Keyset page of the items of a watchlist without movie title, ordered by ID
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, i.movieTitle AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes, i.movieReleaseDate AS movieReleaseDate FROM WatchlistItem i "
+            + "WHERE i.watchlist.id = :watchlistId AND i.movieTitle IS NULL AND i.id > :afterId ORDER BY i.id ASC")
+    List<WatchlistItemPageView> findPageWithoutTitle(@Param("watchlistId") Long watchlistId,
+                                                     @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Keyset page of the items of a watchlist from the newest to the oldest movie release (served by
+     * idx_watchlist_item_watchlist_release_date_id)
+     * @param watchlistId the watchlist ID
+     * @param releaseDate the release date of the movie of the last item of the previous page
+     * @param beforeId the ID of the last item of the previous page
+     * @param limit the maximum number of items
+     * @return the items after (releaseDate, beforeId); items without release date are not included
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, i.movieTitle AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes, i.movieReleaseDate AS movieReleaseDate FROM WatchlistItem i "
+            + "WHERE i.watchlist.id = :watchlistId AND (i.movieReleaseDate < :releaseDate "
+            + "OR (i.movieReleaseDate = :releaseDate AND i.id < :beforeId)) "
+            + "ORDER BY i.movieReleaseDate DESC, i.id DESC")
+    List<WatchlistItemPageView> findPageByReleaseDate(@Param("watchlistId") Long watchlistId,
+                                                      @Param("releaseDate") LocalDate releaseDate,
+                                                      @Param("beforeId") Long beforeId, Limit limit);
+
+    /**
+     * Keyset page of the items of a watchlist without release date, ordered by ID
+     */
+    @Query("SELECT i.id AS id, i.movieId AS movieId, i.movieTitle AS movieTitle, i.status AS status, "
+            + "i.rating AS rating, i.notes AS notes, i.movieReleaseDate AS movieReleaseDate FROM WatchlistItem i "
+            + "WHERE i.watchlist.id = :watchlistId AND i.movieReleaseDate IS NULL AND i.id > :afterId ORDER BY i.id ASC")
+    List<WatchlistItemPageView> findPageWithoutReleaseDate(@Param("watchlistId") Long watchlistId,
+                                                           @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Find the items of every watchlist of a user with the title of their movie, in a single statement
+     * @param userId the user ID
+     * @return the items, ordered by ID
+     */
+    @Query("SELECT i.watchlist.id AS watchlistId, i.id AS id, i.movieId AS movieId, m.title AS movieTitle, "
+            + "i.status AS status, i.rating AS rating, i.notes AS notes "
+            + "FROM WatchlistItem i LEFT JOIN Movie m ON m.id = i.movieId "
+            + "WHERE i.watchlist.user.id = :userId ORDER BY i.id")
+    List<WatchlistTreeItemView> findTreeViewsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find items by ID with the title of their movie and their watchlist, in a single statement
+     * @param ids the item IDs
+     * @return the items that still exist, ordered by ID
+     */
+    @Query("SELECT i.watchlist.id AS watchlistId, i.id AS id, i.movieId AS movieId, m.title AS movieTitle, "
+            + "i.status AS status, i.rating AS rating, i.notes AS notes "
+            + "FROM WatchlistItem i LEFT JOIN Movie m ON m.id = i.movieId "
+            + "WHERE i.id IN :ids ORDER BY i.id")
+    List<WatchlistTreeItemView> findTreeViewsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find the keys, status and rating of every item in the watchlists of a user
+     * @param userId the user ID
+     * @return the ID, watchlist, movie, status and rating of each item
+     */
+    @Query("SELECT i.id AS id, i.watchlist.id AS watchlistId, i.movieId AS movieId, "
+            + "i.status AS status, i.rating AS rating "
+            + "FROM WatchlistItem i WHERE i.watchlist.user.id = :userId")
+    List<WatchlistItemStateView> findStatesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find the keys of the items holding some movies in some watchlists
+     * @param watchlistIds the watchlist IDs
+     * @param movieIds the movie IDs
+     * @return the ID, watchlist and movie of each matching item
+     */
+    @Query("SELECT i.id AS id, i.watchlist.id AS watchlistId, i.movieId AS movieId "
+            + "FROM WatchlistItem i WHERE i.watchlist.id IN :watchlistIds AND i.movieId IN :movieIds")
+    List<WatchlistItemKeyView> findKeysByWatchlistIdsAndMovieIds(@Param("watchlistIds") Collection<Long> watchlistIds,
+                                                                 @Param("movieIds") Collection<Long> movieIds);
+
+    /**
+     * Find the keys of some items
+     * @param ids the item IDs; unknown IDs are skipped
+     * @return the ID, watchlist and movie of each item
+     */
+    @Query("SELECT i.id AS id, i.watchlist.id AS watchlistId, i.movieId AS movieId FROM WatchlistItem i WHERE i.id IN :ids")
+    List<WatchlistItemKeyView> findKeysByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find the movie and status of every item in the watchlists of a user
+     * @param userId the user ID
+     * @return one row per item; a movie in several watchlists appears several times
+     */
+    @Query("SELECT i.movieId AS movieId, i.status AS status FROM WatchlistItem i WHERE i.watchlist.user.id = :userId")
+    List<WatchlistMovieStatusView> findMovieStatusesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find an item and lock it until the end of the current transaction
+     *
+     * The counters of its watchlist are then updated from values that no
+     * other transaction can change in the meantime.
+     *
+     * @param id the watchlist item ID
+     * @return the item, or empty if it does not exist
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM WatchlistItem i WHERE i.id = :id")
+    Optional<WatchlistItem> findByIdForUpdate(@Param("id") Long id);
 }
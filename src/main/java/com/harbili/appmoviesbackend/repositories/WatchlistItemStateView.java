@@ -0,0 +1,12 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+
+/**
+ * Projection of a watchlist item on its keys and on the values counted in its watchlist
+ */
+public interface WatchlistItemStateView extends WatchlistItemKeyView {
+    WatchlistStatus getStatus();
+
+    Integer getRating();
+}
@@ -0,0 +1,23 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+
+/**
+ * Projection of a watchlist item joined to the title of its movie
+ */
+public interface WatchlistItemView {
+    Long getId();
+
+    Long getMovieId();
+
+    /**
+     * @return the movie title, or null if the movie is not in the catalog
+     */
+    String getMovieTitle();
+
+    WatchlistStatus getStatus();
+
+    Integer getRating();
+
+    String getNotes();
+}
@@ -0,0 +1,12 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+
+/**
+ * Projection of a watchlist item on its movie and status
+ */
+public interface WatchlistMovieStatusView {
+    Long getMovieId();
+
+    WatchlistStatus getStatus();
+}
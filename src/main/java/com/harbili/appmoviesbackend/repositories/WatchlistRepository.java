@@ -2,6 +2,8 @@ package com.harbili.appmoviesbackend.repositories;
 
 import com.harbili.appmoviesbackend.entities.Watchlist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -9,7 +11,7 @@ import java.util.Optional;
 /**
  * Repository for Watchlist entity
  */
-public interface WatchlistRepository extends JpaRepository<Watchlist, Long> {
+public interface WatchlistRepository extends JpaRepository<Watchlist, Long>, WatchlistBulkRepository {
 
     /**
      * Find a watchlist by its name
@@ -24,4 +26,40 @@ public interface WatchlistRepository extends JpaRepository<Watchlist, Long> {
      * @return list of watchlists
      */
     List<Watchlist> findByUserId(Long userId);
+
+    /**
+     * Find the owner of a watchlist without loading it
+     * @param id the watchlist ID
+     * @return the user ID, or empty if the watchlist does not exist
+     */
+    @Query("SELECT w.user.id FROM Watchlist w WHERE w.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    /**
+     * Find the IDs of the watchlists of a user without loading them
+     * @param userId the user ID
+     * @return the watchlist IDs
+     */
+    @Query("SELECT w.id FROM Watchlist w WHERE w.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find the name and item counters of a watchlist, without reading its items
+     * @param id the watchlist ID
+     * @return the summary, or empty if the watchlist does not exist
+     */
+    @Query("SELECT w.id AS id, w.name AS name, w.toWatchCount AS toWatchCount, w.watchedCount AS watchedCount, "
+            + "w.inProgressCount AS inProgressCount, w.ratingSum AS ratingSum, w.ratingCount AS ratingCount "
+            + "FROM Watchlist w WHERE w.id = :id")
+    Optional<WatchlistSummaryView> findSummaryById(@Param("id") Long id);
+
+    /**
+     * Find the name and item counters of every watchlist of a user, without reading their items
+     * @param userId the user ID
+     * @return the summaries, ordered by watchlist ID
+     */
+    @Query("SELECT w.id AS id, w.name AS name, w.toWatchCount AS toWatchCount, w.watchedCount AS watchedCount, "
+            + "w.inProgressCount AS inProgressCount, w.ratingSum AS ratingSum, w.ratingCount AS ratingCount "
+            + "FROM Watchlist w WHERE w.user.id = :userId ORDER BY w.id")
+    List<WatchlistSummaryView> findSummariesByUserId(@Param("userId") Long userId);
 }
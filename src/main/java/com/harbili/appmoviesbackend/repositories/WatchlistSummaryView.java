@@ -0,0 +1,20 @@
+package com.harbili.appmoviesbackend.repositories;
+
+/**
+ * Projection of a watchlist on its name and its item counters
+ */
+public interface WatchlistSummaryView {
+    Long getId();
+
+    String getName();
+
+    int getToWatchCount();
+
+    int getWatchedCount();
+
+    int getInProgressCount();
+
+    long getRatingSum();
+
+    int getRatingCount();
+}
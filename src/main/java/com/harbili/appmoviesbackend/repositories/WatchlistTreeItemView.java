@@ -0,0 +1,8 @@
+package com.harbili.appmoviesbackend.repositories;
+
+/**
+ * Projection of a watchlist item joined to the title of its movie, with the watchlist holding it
+ */
+public interface WatchlistTreeItemView extends WatchlistItemView {
+    Long getWatchlistId();
+}
@@ -0,0 +1,570 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.dto.MovieSuggestionDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Typo-tolerant title lookup based on symmetric delete (SymSpell)
+ *
+ * Every distinct word of the folded titles is registered under all the
+ * strings obtained by deleting up to {@code maxDistance} characters from its
+ * first {@code prefixLength} characters. A query word generates its own
+ * deletes the same way: the words sharing one of them are the only possible
+ * matches, and their optimal string alignment distance (Damerau-Levenshtein
+ * restricted to adjacent transpositions) is then checked. A title matches
+ * when each query word is close enough to one of its words; titles are
+ * ranked by total distance.
+ *
+ * Deletes are stored by hash in a primitive multimap: a collision only adds
+ * a candidate that the distance check rejects. Safe for concurrent use.
+ */
+public final class FuzzyTitleIndex {
+
+    private static final int MIN_COMPACTION = 1024;
+
+    private final int maxDistance;
+    private final int prefixLength;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Titles, by internal ordinal; a null folded title is a tombstone
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] ids = new long[1024];
+    private String[] titles = new String[1024];
+    private String[] folded = new String[1024];
+    private int[][] titleWords = new int[1024][];
+    private int[] lengths = new int[1024];
+    private int next;
+
+    // Dictionary: word -> word ID -> ordinals of the titles using it
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<Postings> wordTitles = new ArrayList<>();
+    private final DeleteTable deletes = new DeleteTable();
+
+    public FuzzyTitleIndex() {
+        this(2, 7);
+    }
+
+    /**
+     * @param maxDistance the largest edit distance accepted for long words
+     * @param prefixLength the number of leading characters deletes are generated from
+     */
+    public FuzzyTitleIndex(int maxDistance, int prefixLength) {
+        this.maxDistance = maxDistance;
+        this.prefixLength = Math.max(prefixLength, maxDistance + 1);
+    }
+
+    /**
+     * Add or replace the title of a movie
+     * @param id the movie ID
+     * @param title the title; a null or blank title removes the movie
+     */
+    public void put(long id, String title) {
+        String key = TextNormalizer.fold(title);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (!key.isEmpty()) {
+                add(id, title, key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the titles closest to a possibly misspelled query
+     *
+     * Words of up to 2 characters must match exactly, words of up to 5
+     * characters may be one edit away, longer words up to maxDistance.
+     *
+     * @param query the text typed by the user
+     * @param limit the maximum number of suggestions
+     * @return the suggestions, closest first
+     */
+    public List<MovieSuggestionDTO> search(String query, int limit) {
+        String q = TextNormalizer.fold(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String[] queryWords = q.split(" ");
+        lock.readLock().lock();
+        try {
+            WordMatches[] matches = new WordMatches[queryWords.length];
+            int rarest = -1;
+            long rarestPostings = Long.MAX_VALUE;
+            for (int i = 0; i < queryWords.length; i++) {
+                matches[i] = lookup(queryWords[i]);
+                if (matches[i].size() == 0) {
+                    return List.of();
+                }
+                long postings = 0;
+                for (int wordId : matches[i].wordIds) {
+                    postings += wordTitles.get(wordId).size;
+                }
+                if (postings < rarestPostings) {
+                    rarestPostings = postings;
+                    rarest = i;
+                }
+            }
+
+            // Candidates come from the query word with the fewest titles, closest words first; the
+            // other query words are checked per title. A title's distance is at least the distance
+            // of its word matching the rarest query word, so the scan stops once nothing can enter the top-k.
+            PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+            WordMatches sources = matches[rarest];
+            Integer[] order = new Integer[sources.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> sources.distances[i]));
+            int[] rank = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                rank[order[i]] = i;
+            }
+            for (int source : order) {
+                if (best.size() == limit && best.peek().distance < sources.distances[source]) {
+                    break;
+                }
+                Postings postings = wordTitles.get(sources.wordIds[source]);
+                for (int length = 0; length < postings.buckets.length; length++) {
+                    if (best.size() == limit && cannotBeat(sources.distances[source], length, best.peek())) {
+                        // Buckets go by title length: the rest of this word's titles cannot do better
+                        break;
+                    }
+                    int[] bucket = postings.buckets[length];
+                    for (int i = 0; i < postings.sizes[length]; i++) {
+                        int ordinal = bucket[i];
+                        if (folded[ordinal] == null) {
+                            continue;
+                        }
+                        if (reachedEarlier(titleWords[ordinal], sources, rank, rank[source])) {
+                            continue;
+                        }
+                        int distance = distance(titleWords[ordinal], matches);
+                        if (distance < 0) {
+                            continue;
+                        }
+                        Candidate candidate = new Candidate(ordinal, distance, lengths[ordinal]);
+                        if (best.size() < limit) {
+                            best.add(candidate);
+                        } else if (candidate.compareTo(best.peek()) < 0) {
+                            best.poll();
+                            best.add(candidate);
+                        }
+                    }
+                }
+            }
+
+            List<Candidate> sorted = new ArrayList<>(best);
+            sorted.sort(null);
+            List<MovieSuggestionDTO> suggestions = new ArrayList<>(sorted.size());
+            for (Candidate candidate : sorted) {
+                suggestions.add(new MovieSuggestionDTO(ids[candidate.ordinal], titles[candidate.ordinal]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the title also uses a source word scanned before the current one, so it was already considered
+     */
+    private static boolean reachedEarlier(int[] title, WordMatches sources, int[] rank, int current) {
+        if (current == 0) {
+            return false;
+        }
+        for (int wordId : title) {
+            int i = Arrays.binarySearch(sources.wordIds, wordId);
+            if (i >= 0 && rank[i] < current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean cannotBeat(int minDistance, int minLength, Candidate worst) {
+        return minDistance > worst.distance || (minDistance == worst.distance && minLength > worst.length);
+    }
+
+    /**
+     * Sum over the query words of the distance to their closest word in the title, or -1 if one has none
+     */
+    private static int distance(int[] title, WordMatches[] matches) {
+        int total = 0;
+        for (WordMatches close : matches) {
+            int bestDistance = -1;
+            for (int wordId : title) {
+                int d = close.distanceOf(wordId);
+                if (d >= 0 && (bestDistance < 0 || d < bestDistance)) {
+                    bestDistance = d;
+                }
+            }
+            if (bestDistance < 0) {
+                return -1;
+            }
+            total += bestDistance;
+        }
+        return total;
+    }
+
+    /**
+     * Dictionary words within the allowed distance of a query word
+     */
+    private WordMatches lookup(String word) {
+        int allowed = word.length() <= 2 ? 0 : word.length() <= 5 ? Math.min(1, maxDistance) : maxDistance;
+        Map<Integer, Integer> close = new HashMap<>();
+        Integer exact = wordIds.get(word);
+        if (allowed == 0) {
+            if (exact != null) {
+                close.put(exact, 0);
+            }
+            return new WordMatches(close);
+        }
+        Set<Integer> checked = new HashSet<>();
+        for (String delete : deletes(word, allowed)) {
+            deletes.forEach(delete.hashCode(), wordId -> {
+                if (!checked.add(wordId)) {
+                    return;
+                }
+                String candidate = words.get(wordId);
+                if (Math.abs(candidate.length() - word.length()) > allowed) {
+                    return;
+                }
+                int d = osaDistance(word, candidate, allowed);
+                if (d >= 0) {
+                    close.put(wordId, d);
+                }
+            });
+        }
+        return new WordMatches(close);
+    }
+
+    /**
+     * The prefix of the word and every string obtained by deleting up to maxDeletes of its characters
+     */
+    private Set<String> deletes(String word, int maxDeletes) {
+        String prefix = word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+        Set<String> result = new HashSet<>();
+        result.add(prefix);
+        List<String> frontier = List.of(prefix);
+        for (int d = 0; d < maxDeletes; d++) {
+            List<String> nextFrontier = new ArrayList<>();
+            for (String s : frontier) {
+                if (s.length() <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < s.length(); i++) {
+                    String deleted = s.substring(0, i) + s.substring(i + 1);
+                    if (result.add(deleted)) {
+                        nextFrontier.add(deleted);
+                    }
+                }
+            }
+            frontier = nextFrontier;
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance, or -1 when it exceeds max
+     */
+    static int osaDistance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return -1;
+        }
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return -1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m] <= max ? previous[m] : -1;
+    }
+
+    private void add(long id, String title, String key) {
+        if (next == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            folded = Arrays.copyOf(folded, capacity);
+            titleWords = Arrays.copyOf(titleWords, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        int ordinal = next++;
+        lengths[ordinal] = key.length();
+        ids[ordinal] = id;
+        titles[ordinal] = title;
+        folded[ordinal] = key;
+        ordinals.put(id, ordinal);
+        int[] wordsOfTitle = Arrays.stream(key.split(" ")).mapToInt(this::wordId).distinct().toArray();
+        titleWords[ordinal] = wordsOfTitle;
+        for (int wordId : wordsOfTitle) {
+            wordTitles.get(wordId).add(ordinal, key.length());
+        }
+    }
+
+    private int wordId(String word) {
+        Integer existing = wordIds.get(word);
+        if (existing != null) {
+            return existing;
+        }
+        int wordId = words.size();
+        words.add(word);
+        wordTitles.add(new Postings());
+        wordIds.put(word, wordId);
+        for (String delete : deletes(word, maxDistance)) {
+            deletes.add(delete.hashCode(), wordId);
+        }
+        return wordId;
+    }
+
+    private void removeLocked(long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        titles[ordinal] = null;
+        folded[ordinal] = null;
+        titleWords[ordinal] = null;
+        int dead = next - ordinals.size();
+        if (dead > MIN_COMPACTION && dead > ordinals.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuild the title postings from the live titles; the dictionary is kept
+     */
+    private void compact() {
+        long[] oldIds = ids;
+        String[] oldTitles = titles;
+        String[] oldFolded = folded;
+        int oldNext = next;
+        int capacity = Math.max(1024, ordinals.size() * 2);
+        ids = new long[capacity];
+        titles = new String[capacity];
+        folded = new String[capacity];
+        titleWords = new int[capacity][];
+        lengths = new int[capacity];
+        next = 0;
+        ordinals.clear();
+        for (Postings postings : wordTitles) {
+            postings.clear();
+        }
+        for (int ordinal = 0; ordinal < oldNext; ordinal++) {
+            if (oldFolded[ordinal] != null) {
+                add(oldIds[ordinal], oldTitles[ordinal], oldFolded[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * Matching title, ordered by total distance, then shorter titles first
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int ordinal;
+        private final int distance;
+        private final int length;
+
+        Candidate(int ordinal, int distance, int length) {
+            this.ordinal = ordinal;
+            this.distance = distance;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (distance != other.distance) {
+                return Integer.compare(distance, other.distance);
+            }
+            if (length != other.length) {
+                return Integer.compare(length, other.length);
+            }
+            return Integer.compare(ordinal, other.ordinal);
+        }
+    }
+
+    /**
+     * Dictionary words close to one query word, as word IDs sorted for binary search
+     */
+    private static final class WordMatches {
+        private final int[] wordIds;
+        private final int[] distances;
+
+        WordMatches(Map<Integer, Integer> close) {
+            wordIds = close.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            distances = new int[wordIds.length];
+            for (int i = 0; i < wordIds.length; i++) {
+                distances[i] = close.get(wordIds[i]);
+            }
+        }
+
+        int size() {
+            return wordIds.length;
+        }
+
+        int distanceOf(int wordId) {
+            int i = Arrays.binarySearch(wordIds, wordId);
+            return i >= 0 ? distances[i] : -1;
+        }
+    }
+
+    /**
+     * Title ordinals using one word, bucketed by title length so that
+     * appending stays O(1); the last bucket holds every longer title
+     */
+    private static final class Postings {
+        private static final int LAST_BUCKET = 63;
+
+        private int[][] buckets = new int[0][];
+        private int[] sizes = new int[0];
+        private int size;
+
+        void add(int ordinal, int length) {
+            int b = Math.min(length, LAST_BUCKET);
+            if (b >= buckets.length) {
+                buckets = Arrays.copyOf(buckets, b + 1);
+                sizes = Arrays.copyOf(sizes, b + 1);
+            }
+            if (buckets[b] == null) {
+                buckets[b] = new int[2];
+            } else if (sizes[b] == buckets[b].length) {
+                buckets[b] = Arrays.copyOf(buckets[b], sizes[b] * 2);
+            }
+            buckets[b][sizes[b]++] = ordinal;
+            size++;
+        }
+
+        void clear() {
+            buckets = new int[0][];
+            sizes = new int[0];
+            size = 0;
+        }
+    }
+
+    /**
+     * Open-addressing multimap from a delete hash to word IDs, without boxing
+     */
+    private static final class DeleteTable {
+        private int[] slotKeys = new int[1 << 16];
+        private int[] slotHeads = filled(1 << 16);
+        private int usedSlots;
+        private int[] entryWords = new int[1 << 16];
+        private int[] entryNext = new int[1 << 16];
+        private int entries;
+
+        void add(int key, int wordId) {
+            if (usedSlots * 2 >= slotKeys.length) {
+                resize();
+            }
+            int slot = find(slotKeys, slotHeads, key);
+            if (slotHeads[slot] < 0) {
+                slotKeys[slot] = key;
+                usedSlots++;
+            }
+            if (entries == entryWords.length) {
+                entryWords = Arrays.copyOf(entryWords, entries * 2);
+                entryNext = Arrays.copyOf(entryNext, entries * 2);
+            }
+            entryWords[entries] = wordId;
+            entryNext[entries] = slotHeads[slot];
+            slotHeads[slot] = entries++;
+        }
+
+        void forEach(int key, IntConsumer action) {
+            int slot = find(slotKeys, slotHeads, key);
+            for (int entry = slotHeads[slot]; entry >= 0; entry = entryNext[entry]) {
+                action.accept(entryWords[entry]);
+            }
+        }
+
+        private static int find(int[] keys, int[] heads, int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (heads[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            int[] newKeys = new int[slotKeys.length * 2];
+            int[] newHeads = filled(slotKeys.length * 2);
+            for (int slot = 0; slot < slotKeys.length; slot++) {
+                if (slotHeads[slot] >= 0) {
+                    int target = find(newKeys, newHeads, slotKeys[slot]);
+                    newKeys[target] = slotKeys[slot];
+                    newHeads[target] = slotHeads[slot];
+                }
+            }
+            slotKeys = newKeys;
+            slotHeads = newHeads;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private static int[] filled(int length) {
+            int[] array = new int[length];
+            Arrays.fill(array, -1);
+            return array;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package com.harbili.appmoviesbackend.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Compressed set of non-negative int IDs, in the style of Roaring bitmaps
+ *
+ * IDs are split into chunks of 65536 on their high 16 bits. A chunk keeps its
+ * low 16 bits in a sorted array while it holds at most 4096 of them, and in a
+ * plain 8 KB bitmap above that, so both a sparse year and a dense genre stay
+ * compact. Intersections and unions work chunk by chunk without decoding the
+ * IDs. Not safe for concurrent use.
+ */
+public final class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int size;
+
+    /**
+     * @param id the ID to add; negative IDs are not supported
+     * @return true if the ID was not in the set
+     */
+    public boolean add(int id) {
+        checkId(id);
+        char key = (char) (id >>> 16);
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                chunks = Arrays.copyOf(chunks, size * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(chunks, i, chunks, i + 1, size - i);
+            keys[i] = key;
+            chunks[i] = new Chunk();
+            size++;
+        }
+        return chunks[i].add((char) id);
+    }
+
+    /**
+     * @param id the ID to remove
+     * @return true if the ID was in the set
+     */
+    public boolean remove(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int i = indexOf((char) (id >>> 16));
+        if (i < 0 || !chunks[i].remove((char) id)) {
+            return false;
+        }
+        if (chunks[i].cardinality == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+            chunks[--size] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int i = indexOf((char) (id >>> 16));
+        return i >= 0 && chunks[i].contains((char) id);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += chunks[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param from the smallest ID to consider
+     * @return the smallest ID of the set that is greater than or equal to from, or -1 if none
+     */
+    public int next(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        char key = (char) (from >>> 16);
+        int i = indexOf(key);
+        if (i >= 0) {
+            int low = chunks[i].next((char) from);
+            if (low >= 0) {
+                return key << 16 | low;
+            }
+            i++;
+        } else {
+            i = -i - 1;
+        }
+        return i < size ? keys[i] << 16 | chunks[i].next((char) 0) : -1;
+    }
+
+    /**
+     * @return a new set with the same IDs
+     */
+    public IdBitmap copy() {
+        IdBitmap copy = new IdBitmap();
+        for (int i = 0; i < size; i++) {
+            copy.append(keys[i], chunks[i].copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Copy meant for many intersections: every chunk is stored as a bitmap, so
+     * intersecting it with an array chunk is a lookup per value instead of a merge
+     * @return a new set with the same IDs
+     */
+    public IdBitmap denseCopy() {
+        IdBitmap copy = new IdBitmap();
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunks[i].copy();
+            if (chunk.words == null) {
+                chunk.toBitmap();
+            }
+            copy.append(keys[i], chunk);
+        }
+        return copy;
+    }
+
+    /**
+     * @return a new set with the IDs present in both sets
+     */
+    public static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Chunk chunk = Chunk.and(a.chunks[i], b.chunks[j]);
+                if (chunk.cardinality > 0) {
+                    result.append(a.keys[i], chunk);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a new set with the IDs present in either set
+     */
+    public static IdBitmap or(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], a.chunks[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.chunks[j].copy());
+                j++;
+            } else {
+                result.append(a.keys[i], Chunk.or(a.chunks[i], b.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Union of many sets in one pass: each chunk is accumulated in a single bitmap
+     * instead of being copied once per set
+     * @return a new set with the IDs present in any of the sets
+     */
+    public static IdBitmap orAll(Collection<IdBitmap> bitmaps) {
+        IdBitmap result = new IdBitmap();
+        IdBitmap[] sets = bitmaps.toArray(new IdBitmap[0]);
+        int[] positions = new int[sets.length];
+        while (true) {
+            int key = Integer.MAX_VALUE;
+            for (int s = 0; s < sets.length; s++) {
+                if (positions[s] < sets[s].size) {
+                    key = Math.min(key, sets[s].keys[positions[s]]);
+                }
+            }
+            if (key == Integer.MAX_VALUE) {
+                return result;
+            }
+            Chunk union = null;
+            int from = -1;
+            for (int s = 0; s < sets.length; s++) {
+                if (positions[s] < sets[s].size && sets[s].keys[positions[s]] == key) {
+                    Chunk chunk = sets[s].chunks[positions[s]++];
+                    if (union == null) {
+                        union = chunk;
+                        from = s;
+                    } else {
+                        if (from >= 0) {
+                            union = union.copy();
+                            if (union.words == null) {
+                                union.toBitmap();
+                            }
+                            from = -1;
+                        }
+                        union.orInto(chunk);
+                    }
+                }
+            }
+            if (from >= 0) {
+                union = union.copy();
+            } else {
+                union.recount();
+            }
+            result.append((char) key, union);
+        }
+    }
+
+    /**
+     * @return the number of IDs present in both sets, without building their intersection
+     */
+    public static int andCardinality(IdBitmap a, IdBitmap b) {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                cardinality += Chunk.andCardinality(a.chunks[i], b.chunks[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    private void append(char key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        keys[size] = key;
+        chunks[size++] = chunk;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private static void checkId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative ID: " + id);
+        }
+    }
+
+    /**
+     * Low 16 bits of the IDs of one chunk: a sorted array, or a bitmap when words is not null
+     */
+    private static final class Chunk {
+        private char[] values = new char[4];
+        private long[] words;
+        private int cardinality;
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & 1L << low) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before | 1L << low;
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before & ~(1L << low);
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                if (--cardinality == ARRAY_MAX) {
+                    toArray();
+                }
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+            return true;
+        }
+
+        /**
+         * @return the smallest low value greater than or equal to from, or -1 if none
+         */
+        int next(char from) {
+            if (words != null) {
+                int w = from >>> 6;
+                long word = words[w] & -1L << from;
+                while (word == 0) {
+                    if (++w == WORDS) {
+                        return -1;
+                    }
+                    word = words[w];
+                }
+                return w << 6 | Long.numberOfTrailingZeros(word);
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, from);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return i < cardinality ? values[i] : -1;
+        }
+
+        Chunk copy() {
+            Chunk copy = new Chunk();
+            copy.cardinality = cardinality;
+            if (words != null) {
+                copy.words = words.clone();
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(cardinality, 1));
+            }
+            return copy;
+        }
+
+        private void toBitmap() {
+            words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            values = new char[cardinality];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    values[n++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+                }
+            }
+            words = null;
+        }
+
+        static Chunk and(Chunk a, Chunk b) {
+            Chunk result = new Chunk();
+            if (a.words != null && b.words != null) {
+                long[] words = new long[WORDS];
+                int cardinality = 0;
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] = a.words[w] & b.words[w];
+                    cardinality += Long.bitCount(words[w]);
+                }
+                result.words = words;
+                result.cardinality = cardinality;
+                if (cardinality <= ARRAY_MAX) {
+                    result.toArray();
+                }
+                return result;
+            }
+            if (a.words != null) {
+                return and(b, a);
+            }
+            // a is an array: the intersection always fits in an array
+            char[] values = new char[Math.max(Math.min(a.cardinality, b.cardinality), 1)];
+            int n = 0;
+            if (b.words != null) {
+                for (int i = 0; i < a.cardinality; i++) {
+                    if (b.contains(a.values[i])) {
+                        values[n++] = a.values[i];
+                    }
+                }
+            } else {
+                int i = 0;
+                int j = 0;
+                while (i < a.cardinality && j < b.cardinality) {
+                    if (a.values[i] < b.values[j]) {
+                        i++;
+                    } else if (a.values[i] > b.values[j]) {
+                        j++;
+                    } else {
+                        values[n++] = a.values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            result.values = values;
+            result.cardinality = n;
+            return result;
+        }
+
+        static Chunk or(Chunk a, Chunk b) {
+            if (a.words == null && b.words == null && a.cardinality + b.cardinality <= ARRAY_MAX) {
+                Chunk result = new Chunk();
+                char[] values = new char[Math.max(a.cardinality + b.cardinality, 1)];
+                int n = 0;
+                int i = 0;
+                int j = 0;
+                while (i < a.cardinality || j < b.cardinality) {
+                    if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                        values[n++] = a.values[i++];
+                    } else if (i == a.cardinality || a.values[i] > b.values[j]) {
+                        values[n++] = b.values[j++];
+                    } else {
+                        values[n++] = a.values[i++];
+                        j++;
+                    }
+                }
+                result.values = values;
+                result.cardinality = n;
+                return result;
+            }
+            // One side is a bitmap, or the union no longer fits in an array
+            Chunk bitmap = a.words != null ? a : b;
+            Chunk other = bitmap == a ? b : a;
+            Chunk result = bitmap.copy();
+            if (result.words == null) {
+                result.toBitmap();
+            }
+            result.orInto(other);
+            result.recount();
+            return result;
+        }
+
+        /**
+         * OR the IDs of a chunk into this bitmap chunk; the cardinality is left stale until recount()
+         */
+        void orInto(Chunk other) {
+            if (other.words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] |= other.words[w];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    words[other.values[i] >>> 6] |= 1L << other.values[i];
+                }
+            }
+        }
+
+        /**
+         * Recompute the cardinality of a bitmap chunk, going back to an array if it fits
+         */
+        void recount() {
+            int cardinality = 0;
+            for (int w = 0; w < WORDS; w++) {
+                cardinality += Long.bitCount(words[w]);
+            }
+            this.cardinality = cardinality;
+            if (cardinality <= ARRAY_MAX) {
+                toArray();
+            }
+        }
+
+        static int andCardinality(Chunk a, Chunk b) {
+            if (a.words != null && b.words != null) {
+                int cardinality = 0;
+                for (int w = 0; w < WORDS; w++) {
+                    cardinality += Long.bitCount(a.words[w] & b.words[w]);
+                }
+                return cardinality;
+            }
+            if (a.words != null) {
+                return andCardinality(b, a);
+            }
+            int cardinality = 0;
+            if (b.words != null) {
+                long[] words = b.words;
+                for (int i = 0; i < a.cardinality; i++) {
+                    char low = a.values[i];
+                    cardinality += (int) (words[low >>> 6] >>> low) & 1;
+                }
+                return cardinality;
+            }
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    cardinality++;
+                    i++;
+                    j++;
+                }
+            }
+            return cardinality;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.harbili.appmoviesbackend.search;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap index of the catalog for faceted filtering
+ *
+ * Each genre bit and each release year owns an {@link IdBitmap} of movie IDs.
+ * A filter intersects the bitmaps of the selected genres with the union of
+ * the years of the range, then reads a page of IDs and the number of matches
+ * per genre and per year from the result, without touching the database.
+ * Movie IDs outside the int range are not indexed. Safe for concurrent use.
+ */
+public final class MovieFacetIndex {
+
+    private static final int GENRE_BITS = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IdBitmap all = new IdBitmap();
+    private final IdBitmap[] genres = new IdBitmap[GENRE_BITS];
+    private final TreeMap<Integer, IdBitmap> years = new TreeMap<>();
+
+    /**
+     * Add or replace the facets of a movie
+     * @param id the movie ID
+     * @param genreMask the genre mask of the movie
+     * @param releaseDate the release date, or null if unknown
+     */
+    public void put(long id, long genreMask, LocalDate releaseDate) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            return;
+        }
+        int key = (int) id;
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            all.add(key);
+            for (long rest = genreMask; rest != 0; rest &= rest - 1) {
+                int bit = Long.numberOfTrailingZeros(rest);
+                if (genres[bit] == null) {
+                    genres[bit] = new IdBitmap();
+                }
+                genres[bit].add(key);
+            }
+            if (releaseDate != null) {
+                years.computeIfAbsent(releaseDate.getYear(), y -> new IdBitmap()).add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked((int) id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return all.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filter the catalog
+     * @param genreMask the genres a movie must all have; 0 for any genre
+     * @param fromYear the first release year, inclusive, or null for no lower bound
+     * @param toYear the last release year, inclusive, or null for no upper bound
+     * @param restrictTo the only IDs that may match, or null for the whole catalog
+     * @param afterId the ID of the last movie of the previous page, or null for the first page
+     * @param limit the maximum number of IDs in the page
+     * @return the page of matching IDs in ascending order, and the counts of the matches
+     */
+    public Result filter(long genreMask, Integer fromYear, Integer toYear, IdBitmap restrictTo,
+                         Long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            IdBitmap matches = restrictTo != null ? IdBitmap.and(all, restrictTo) : all;
+            for (long rest = genreMask; rest != 0 && !matches.isEmpty(); rest &= rest - 1) {
+                IdBitmap genre = genres[Long.numberOfTrailingZeros(rest)];
+                matches = genre != null ? IdBitmap.and(matches, genre) : new IdBitmap();
+            }
+            if ((fromYear != null || toYear != null) && !matches.isEmpty()) {
+                matches = IdBitmap.and(matches, yearRange(fromYear, toYear));
+            }
+
+            List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+            int from = afterId == null || afterId < 0 ? 0 : afterId >= Integer.MAX_VALUE ? -1 : (int) (afterId + 1);
+            int id = from < 0 ? -1 : matches.next(from);
+            while (id >= 0 && ids.size() < limit) {
+                ids.add((long) id);
+                id = id == Integer.MAX_VALUE ? -1 : matches.next(id + 1);
+            }
+
+            // Every facet value is intersected with the matches: bitmaps make each one a lookup per value
+            matches = matches.denseCopy();
+            Map<Integer, Integer> genreCounts = new TreeMap<>();
+            for (int bit = 0; bit < GENRE_BITS && !matches.isEmpty(); bit++) {
+                int count = genres[bit] != null ? IdBitmap.andCardinality(matches, genres[bit]) : 0;
+                if (count > 0) {
+                    genreCounts.put(bit, count);
+                }
+            }
+            SortedMap<Integer, Integer> yearCounts = new TreeMap<>();
+            for (Map.Entry<Integer, IdBitmap> year : years.entrySet()) {
+                if (matches.isEmpty()) {
+                    break;
+                }
+                int count = IdBitmap.andCardinality(matches, year.getValue());
+                if (count > 0) {
+                    yearCounts.put(year.getKey(), count);
+                }
+            }
+            return new Result(matches, ids, id >= 0, genreCounts, yearCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IdBitmap yearRange(Integer fromYear, Integer toYear) {
+        if (years.isEmpty() || (fromYear != null && toYear != null && fromYear > toYear)) {
+            return new IdBitmap();
+        }
+        NavigableMap<Integer, IdBitmap> range = years.subMap(
+                fromYear != null ? fromYear : years.firstKey(), true,
+                toYear != null ? toYear : years.lastKey(), true);
+        return IdBitmap.orAll(range.values());
+    }
+
+    private void removeLocked(int id) {
+        if (!all.remove(id)) {
+            return;
+        }
+        for (IdBitmap genre : genres) {
+            if (genre != null) {
+                genre.remove(id);
+            }
+        }
+        // The previous year is not kept: removing an absent ID only costs a lookup per year
+        years.values().removeIf(year -> year.remove(id) && year.isEmpty());
+    }
+
+    /**
+     * The outcome of a filter: a page of IDs and the counts over all the matches
+     */
+    public static final class Result {
+        private final IdBitmap matches;
+        private final List<Long> ids;
+        private final boolean hasMore;
+        private final Map<Integer, Integer> genreCounts;
+        private final SortedMap<Integer, Integer> yearCounts;
+
+        private Result(IdBitmap matches, List<Long> ids, boolean hasMore,
+                       Map<Integer, Integer> genreCounts, SortedMap<Integer, Integer> yearCounts) {
+            this.matches = matches;
+            this.ids = Collections.unmodifiableList(ids);
+            this.hasMore = hasMore;
+            this.genreCounts = Collections.unmodifiableMap(genreCounts);
+            this.yearCounts = Collections.unmodifiableSortedMap(yearCounts);
+        }
+
+        public int getTotal() {
+            return matches.cardinality();
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public boolean hasMore() {
+            return hasMore;
+        }
+
+        /**
+         * @return the number of matches per genre bit, for the genres with at least one match
+         */
+        public Map<Integer, Integer> getGenreCounts() {
+            return genreCounts;
+        }
+
+        /**
+         * @return the number of matches per release year, for the years with at least one match
+         */
+        public SortedMap<Integer, Integer> getYearCounts() {
+            return yearCounts;
+        }
+
+        /**
+         * @param other a set of IDs
+         * @return the number of matches in the set
+         */
+        public int countIn(IdBitmap other) {
+            return IdBitmap.andCardinality(matches, other);
+        }
+    }
+}
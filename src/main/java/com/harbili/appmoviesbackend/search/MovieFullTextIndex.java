@@ -0,0 +1,200 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import lombok.Getter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk-backed Lucene index over movie titles, overviews and genres
+ *
+ * Writes go to an {@link IndexWriter} and become searchable at the next
+ * {@link #refresh()} (near-real-time, without a commit); {@link #commit()}
+ * makes them durable. Safe for concurrent use.
+ */
+public final class MovieFullTextIndex implements Closeable {
+
+    static final String ID = "id";
+    static final String TITLE = "title";
+    static final String OVERVIEW = "overview";
+    static final String GENRES = "genres";
+
+    /**
+     * A title match weighs more than a genre match, which weighs more than a word of the plot
+     */
+    private static final Map<String, Float> BOOSTS = Map.of(TITLE, 4f, GENRES, 2f, OVERVIEW, 1f);
+
+    private final Directory directory;
+    private final Analyzer analyzer;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public MovieFullTextIndex(Path path) throws IOException {
+        this.directory = FSDirectory.open(path);
+        this.analyzer = new FoldingAnalyzer();
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Add or replace the documents of the given movies
+     */
+    public void index(Collection<Movie> movies) throws IOException {
+        for (Movie movie : movies) {
+            if (movie.getId() != null) {
+                writer.updateDocument(new Term(ID, movie.getId().toString()), toDocument(movie));
+            }
+        }
+    }
+
+    public void delete(long id) throws IOException {
+        writer.deleteDocuments(new Term(ID, Long.toString(id)));
+    }
+
+    public void deleteAll() throws IOException {
+        writer.deleteAll();
+    }
+
+    /**
+     * @return the number of searchable documents, as of the last refresh
+     */
+    public int size() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Make the latest writes searchable
+     */
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    /**
+     * Make the latest writes durable
+     */
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * Run a ranked search over title, overview and genres
+     * @param text the user query; every word must match in at least one field
+     * @param offset the number of hits to skip
+     * @param count the maximum number of hits to return
+     * @return the IDs of the hits, best first, and the total number of hits
+     */
+    public Hits search(String text, int offset, int count) throws IOException {
+        Query query;
+        try {
+            MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                    new String[]{TITLE, GENRES, OVERVIEW}, analyzer, BOOSTS);
+            parser.setDefaultOperator(QueryParser.Operator.AND);
+            query = parser.parse(QueryParser.escape(text));
+        } catch (ParseException e) {
+            return new Hits(List.of(), 0);
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(query, offset + count);
+            StoredFields storedFields = searcher.storedFields();
+            List<Long> ids = new ArrayList<>(count);
+            for (int i = offset; i < top.scoreDocs.length; i++) {
+                ScoreDoc hit = top.scoreDocs[i];
+                ids.add(Long.parseLong(storedFields.document(hit.doc).get(ID)));
+            }
+            return new Hits(ids, top.totalHits.value);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private static Document toDocument(Movie movie) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, movie.getId().toString(), Field.Store.YES));
+        if (movie.getTitle() != null) {
+            doc.add(new TextField(TITLE, movie.getTitle(), Field.Store.NO));
+        }
+        if (movie.getOverview() != null) {
+            doc.add(new TextField(OVERVIEW, movie.getOverview(), Field.Store.NO));
+        }
+        if (movie.getGenres() != null && !movie.getGenres().isEmpty()) {
+            doc.add(new TextField(GENRES, String.join(" ", movie.getGenres()), Field.Store.NO));
+        }
+        return doc;
+    }
+
+    /**
+     * IDs of the hits of one search page, best first, and the number of
+     * matching movies (a lower bound beyond 1000 hits)
+     */
+    @Getter
+    public static final class Hits {
+        private final List<Long> ids;
+        private final long totalHits;
+
+        Hits(List<Long> ids, long totalHits) {
+            this.ids = ids;
+            this.totalHits = totalHits;
+        }
+    }
+
+    /**
+     * Standard tokenizer, lower case and accent folding, so "Amelie" finds "Amélie"
+     */
+    private static final class FoldingAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new LowerCaseFilter(tokenizer);
+            stream = new ASCIIFoldingFilter(stream);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    }
+}
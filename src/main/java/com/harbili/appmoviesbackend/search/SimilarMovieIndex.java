@@ -0,0 +1,460 @@
+package com.harbili.appmoviesbackend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory "more like this" index over movie overviews and genres
+ *
+ * Every movie is stored as a sparse TF-IDF vector, normalized to unit length
+ * when the movie is added: the overview words weigh (1 + ln tf) * idf and each
+ * genre weighs {@code GENRE_WEIGHT} * idf. The IDF is the one of the catalog at
+ * that time; vectors are not recomputed when it drifts.
+ *
+ * A lookup walks the inverted lists of the movie's heaviest terms, skipping the
+ * terms too common to discriminate (most genres, frequent words), to
+ * accumulate partial dot products. The best candidates are then rescored with
+ * the exact cosine similarity over the whole vectors.
+ *
+ * Updates and deletions leave a tombstone, and the inverted lists are rebuilt
+ * once tombstones outnumber live movies. Safe for concurrent use.
+ */
+public final class SimilarMovieIndex {
+
+    private static final int MIN_COMPACTION = 1024;
+    private static final float GENRE_WEIGHT = 2f;
+    private static final int MAX_QUERY_TERMS = 32;
+    private static final int MAX_CANDIDATES = 256;
+    private static final int MAX_SCANNED_POSTINGS = 10_000;
+
+    /**
+     * A term generates candidates if it appears in at most this many movies, or in at most 0.2% of the catalog
+     */
+    private static final int MIN_CANDIDATE_DF = 1000;
+    private static final int CANDIDATE_DF_DIVISOR = 500;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "with", "his", "her", "their", "they", "them", "this", "that", "from", "into",
+            "who", "whom", "whose", "which", "what", "when", "where", "while", "after", "before", "about", "but",
+            "are", "was", "were", "has", "have", "had", "been", "being", "its", "one", "all", "out", "not", "him",
+            "she", "himself", "herself", "themselves", "than", "then", "there", "only", "over", "also", "can",
+            "will", "would", "must", "more", "most", "other", "some", "such", "each", "both", "through", "during");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Movies, by internal ordinal; a null vector is a tombstone
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] ids = new long[1024];
+    private int[][] vectorTerms = new int[1024][];
+    private float[][] vectorWeights = new float[1024][];
+    private int next;
+
+    // Terms: text -> term ID -> number of live movies using it, and the movies using it
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private int[] documentFrequencies = new int[1024];
+    private final List<Postings> postings = new ArrayList<>();
+
+    /**
+     * Add or replace the vector of a movie
+     * @param id the movie ID
+     * @param overview the plot summary, may be null
+     * @param genres the genre names, may be null
+     */
+    public void put(long id, String overview, Collection<String> genres) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : TextNormalizer.fold(overview).split(" ")) {
+            if (word.length() >= 3 && !STOP_WORDS.contains(word)) {
+                counts.merge(word, 1, Integer::sum);
+            }
+        }
+        Map<String, Integer> genreTerms = new HashMap<>();
+        if (genres != null) {
+            for (String genre : genres) {
+                String folded = TextNormalizer.fold(genre);
+                if (!folded.isEmpty()) {
+                    // Kept apart from the words: the "drama" genre is not the word "drama"
+                    genreTerms.put("#" + folded, 1);
+                }
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (counts.isEmpty() && genreTerms.isEmpty()) {
+                return;
+            }
+            int[] terms = new int[counts.size() + genreTerms.size()];
+            float[] weights = new float[terms.length];
+            int n = 0;
+            for (Map.Entry<String, Integer> word : counts.entrySet()) {
+                terms[n] = termId(word.getKey());
+                weights[n++] = (float) (1 + Math.log(word.getValue()));
+            }
+            for (String genre : genreTerms.keySet()) {
+                terms[n] = termId(genre);
+                weights[n++] = GENRE_WEIGHT;
+            }
+            int movies = ordinals.size() + 1;
+            double norm = 0;
+            for (int i = 0; i < n; i++) {
+                documentFrequencies[terms[i]]++;
+                weights[i] *= (float) idf(documentFrequencies[terms[i]], movies);
+                norm += weights[i] * weights[i];
+            }
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < n; i++) {
+                weights[i] *= scale;
+            }
+            sortByTerm(terms, weights);
+            add(id, terms, weights);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a movie from the index
+     * @param id the movie ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed movies
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the movies whose overview and genres are closest to the given movie's
+     * @param id the movie ID
+     * @param limit the maximum number of movies
+     * @return the IDs of the similar movies, most similar first; empty for an unknown movie
+     */
+    public List<Long> similar(long id, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Integer self = ordinals.get(id);
+            if (self == null) {
+                return List.of();
+            }
+            int[] terms = vectorTerms[self];
+            float[] weights = vectorWeights[self];
+
+            // Partial dot products over the discriminating terms, heaviest first
+            Integer[] order = new Integer[terms.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(weights[b], weights[a]));
+            int maxDf = Math.max(MIN_CANDIDATE_DF, ordinals.size() / CANDIDATE_DF_DIVISOR);
+            ScoreAccumulator scores = new ScoreAccumulator();
+            int queried = 0;
+            int scanned = 0;
+            for (int i : order) {
+                if (queried == MAX_QUERY_TERMS || scanned >= MAX_SCANNED_POSTINGS) {
+                    break;
+                }
+                if (documentFrequencies[terms[i]] > maxDf) {
+                    continue;
+                }
+                queried++;
+                Postings list = postings.get(terms[i]);
+                for (int p = 0; p < list.size; p++) {
+                    scores.add(list.ordinals[p], weights[i] * list.weights[p]);
+                }
+                scanned += list.size;
+            }
+
+            // Exact cosine similarity of the best candidates
+            int[] candidates = scores.top(MAX_CANDIDATES, ordinal -> ordinal != self && vectorTerms[ordinal] != null);
+            PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+            for (int ordinal : candidates) {
+                best.add(new Scored(ordinal, dot(terms, weights, vectorTerms[ordinal], vectorWeights[ordinal])));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Scored> sorted = new ArrayList<>(best);
+            sorted.sort(null);
+            List<Long> result = new ArrayList<>(sorted.size());
+            for (Scored scored : sorted) {
+                result.add(ids[scored.ordinal]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inverse document frequency, smoothed so that it stays positive
+     */
+    private static double idf(int documentFrequency, int movies) {
+        return Math.log((double) (movies + 1) / (documentFrequency + 1)) + 1;
+    }
+
+    /**
+     * Dot product of two sparse vectors sorted by term ID
+     */
+    private static float dot(int[] termsA, float[] weightsA, int[] termsB, float[] weightsB) {
+        float sum = 0;
+        int a = 0;
+        int b = 0;
+        while (a < termsA.length && b < termsB.length) {
+            if (termsA[a] == termsB[b]) {
+                sum += weightsA[a++] * weightsB[b++];
+            } else if (termsA[a] < termsB[b]) {
+                a++;
+            } else {
+                b++;
+            }
+        }
+        return sum;
+    }
+
+    private static void sortByTerm(int[] terms, float[] weights) {
+        Integer[] order = new Integer[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> terms[i]));
+        int[] sortedTerms = new int[terms.length];
+        float[] sortedWeights = new float[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedTerms[i] = terms[order[i]];
+            sortedWeights[i] = weights[order[i]];
+        }
+        System.arraycopy(sortedTerms, 0, terms, 0, terms.length);
+        System.arraycopy(sortedWeights, 0, weights, 0, weights.length);
+    }
+
+    private int termId(String term) {
+        Integer existing = termIds.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        int termId = postings.size();
+        termIds.put(term, termId);
+        postings.add(new Postings());
+        if (termId == documentFrequencies.length) {
+            documentFrequencies = Arrays.copyOf(documentFrequencies, termId * 2);
+        }
+        return termId;
+    }
+
+    private void add(long id, int[] terms, float[] weights) {
+        if (next == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            vectorTerms = Arrays.copyOf(vectorTerms, capacity);
+            vectorWeights = Arrays.copyOf(vectorWeights, capacity);
+        }
+        int ordinal = next++;
+        ids[ordinal] = id;
+        vectorTerms[ordinal] = terms;
+        vectorWeights[ordinal] = weights;
+        ordinals.put(id, ordinal);
+        for (int i = 0; i < terms.length; i++) {
+            postings.get(terms[i]).add(ordinal, weights[i]);
+        }
+    }
+
+    private void removeLocked(long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        for (int term : vectorTerms[ordinal]) {
+            documentFrequencies[term]--;
+        }
+        vectorTerms[ordinal] = null;
+        vectorWeights[ordinal] = null;
+        int dead = next - ordinals.size();
+        if (dead > MIN_COMPACTION && dead > ordinals.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuild the inverted lists from the live vectors; the term dictionary is kept
+     */
+    private void compact() {
+        long[] oldIds = ids;
+        int[][] oldTerms = vectorTerms;
+        float[][] oldWeights = vectorWeights;
+        int oldNext = next;
+        int capacity = Math.max(1024, ordinals.size() * 2);
+        ids = new long[capacity];
+        vectorTerms = new int[capacity][];
+        vectorWeights = new float[capacity][];
+        next = 0;
+        ordinals.clear();
+        for (Postings list : postings) {
+            list.size = 0;
+        }
+        for (int ordinal = 0; ordinal < oldNext; ordinal++) {
+            if (oldTerms[ordinal] != null) {
+                add(oldIds[ordinal], oldTerms[ordinal], oldWeights[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * Candidate movie with its similarity, best first, then by ordinal
+     */
+    private static final class Scored implements Comparable<Scored> {
+        private final int ordinal;
+        private final float score;
+
+        Scored(int ordinal, float score) {
+            this.ordinal = ordinal;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Scored other) {
+            if (score != other.score) {
+                return Float.compare(other.score, score);
+            }
+            return Integer.compare(ordinal, other.ordinal);
+        }
+    }
+
+    /**
+     * Movies using one term, with the term's weight in each of them
+     */
+    private static final class Postings {
+        private int[] ordinals = new int[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        void add(int ordinal, float weight) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ordinals[size] = ordinal;
+            weights[size++] = weight;
+        }
+    }
+
+    /**
+     * Open-addressing map from an ordinal to a partial score, without boxing
+     */
+    private static final class ScoreAccumulator {
+        private int[] keys = new int[1 << 15];
+        private float[] values = new float[1 << 15];
+        private boolean[] used = new boolean[1 << 15];
+        private int size;
+
+        void add(int key, float value) {
+            if (size * 2 >= keys.length) {
+                resize();
+            }
+            int slot = slot(keys, used, key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] += value;
+        }
+
+        /**
+         * The accepted keys with the highest scores, in no particular order
+         */
+        int[] top(int k, IntPredicate accept) {
+            // Min-heap of slots on their score: the root is the worst of the best so far
+            int[] heap = new int[k];
+            int count = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (!used[slot] || (count == k && values[slot] <= values[heap[0]]) || !accept.test(keys[slot])) {
+                    continue;
+                }
+                if (count < k) {
+                    heap[count] = slot;
+                    for (int i = count++; i > 0 && values[heap[i]] < values[heap[(i - 1) / 2]]; i = (i - 1) / 2) {
+                        swap(heap, i, (i - 1) / 2);
+                    }
+                } else {
+                    heap[0] = slot;
+                    for (int i = 0; 2 * i + 1 < count; ) {
+                        int child = 2 * i + 1;
+                        if (child + 1 < count && values[heap[child + 1]] < values[heap[child]]) {
+                            child++;
+                        }
+                        if (values[heap[i]] <= values[heap[child]]) {
+                            break;
+                        }
+                        swap(heap, i, child);
+                        i = child;
+                    }
+                }
+            }
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = keys[heap[i]];
+            }
+            return result;
+        }
+
+        private static void swap(int[] array, int i, int j) {
+            int value = array[i];
+            array[i] = array[j];
+            array[j] = value;
+        }
+
+        private static int slot(int[] keys, boolean[] used, int key) {
+            int mask = keys.length - 1;
+            int h = key * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            int[] newKeys = new int[keys.length * 2];
+            float[] newValues = new float[keys.length * 2];
+            boolean[] newUsed = new boolean[keys.length * 2];
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    int target = slot(newKeys, newUsed, keys[slot]);
+                    newUsed[target] = true;
+                    newKeys[target] = keys[slot];
+                    newValues[target] = values[slot];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+            used = newUsed;
+        }
+    }
+}
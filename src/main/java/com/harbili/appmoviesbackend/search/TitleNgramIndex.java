@@ -0,0 +1,298 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.dto.MovieSuggestionDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory substring index over movie titles, built on trigrams
+ *
+ * Every folded title is cut into its trigrams, plus the one and two letter
+ * prefixes of each of its words. A query of three characters or more is
+ * answered by intersecting the posting lists of its trigrams and checking the
+ * few remaining candidates, which gives the same matches as LIKE '%q%'; a
+ * shorter query matches the titles with a word starting with it.
+ *
+ * Titles are stored under an internal ordinal that only grows, so posting
+ * lists stay sorted by construction. Updates and deletions leave a tombstone
+ * on the old ordinal; the index is compacted once tombstones outnumber live
+ * titles. Safe for concurrent use.
+ */
+public final class TitleNgramIndex {
+
+    private static final int GRAM = 3;
+    private static final int MIN_COMPACTION = 1024;
+
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingInt((Candidate c) -> c.rank)
+            .thenComparingInt(c -> c.length)
+            .thenComparingInt(c -> c.ordinal);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Map<String, IntList> postings = new HashMap<>();
+    private long[] ids = new long[1024];
+    private String[] titles = new String[1024];
+    private String[] folded = new String[1024];
+    private int next;
+
+    /**
+     * Add or replace the title of a movie
+     * @param id the movie ID
+     * @param title the title; a null or blank title removes the movie
+     */
+    public void put(long id, String title) {
+        String key = TextNormalizer.fold(title);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (key.isEmpty()) {
+                return;
+            }
+            if (next == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                folded = Arrays.copyOf(folded, capacity);
+            }
+            int ordinal = next++;
+            ids[ordinal] = id;
+            titles[ordinal] = title;
+            folded[ordinal] = key;
+            ordinals.put(id, ordinal);
+            for (String gram : grams(key)) {
+                postings.computeIfAbsent(gram, g -> new IntList()).add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a movie from the index
+     * @param id the movie ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed titles
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the best titles containing the query
+     *
+     * Exact matches come first, then titles starting with the query, then
+     * titles with a word starting with it, then any other match; shorter titles
+     * win within each group.
+     *
+     * @param query the text typed by the user
+     * @param limit the maximum number of suggestions
+     * @return the suggestions, best first
+     */
+    public List<MovieSuggestionDTO> search(String query, int limit) {
+        String q = TextNormalizer.fold(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(q);
+            PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+            for (int ordinal : candidates) {
+                String title = folded[ordinal];
+                if (title == null || !title.contains(q)) {
+                    continue;
+                }
+                best.add(new Candidate(ordinal, rank(title, q), title.length()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Candidate> sorted = new ArrayList<>(best);
+            sorted.sort(BEST_FIRST);
+            List<MovieSuggestionDTO> suggestions = new ArrayList<>(sorted.size());
+            for (Candidate candidate : sorted) {
+                suggestions.add(new MovieSuggestionDTO(ids[candidate.ordinal], titles[candidate.ordinal]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] candidates(String q) {
+        if (q.length() < GRAM) {
+            IntList list = postings.get(q);
+            return list != null ? list.toArray() : new int[0];
+        }
+        List<IntList> lists = new ArrayList<>();
+        for (String gram : trigrams(q)) {
+            IntList list = postings.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] left, IntList right) {
+        int[] out = new int[Math.min(left.length, right.size)];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < left.length && j < right.size; ) {
+            int a = left[i];
+            int b = right.values[j];
+            if (a == b) {
+                out[n++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int rank(String title, String q) {
+        if (title.equals(q)) {
+            return 0;
+        }
+        if (title.startsWith(q)) {
+            return 1;
+        }
+        return title.contains(" " + q) ? 2 : 3;
+    }
+
+    private void removeLocked(long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        titles[ordinal] = null;
+        folded[ordinal] = null;
+        int dead = next - ordinals.size();
+        if (dead > MIN_COMPACTION && dead > ordinals.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuild the index from the live titles only
+     */
+    private void compact() {
+        long[] oldIds = ids;
+        String[] oldTitles = titles;
+        String[] oldFolded = folded;
+        int oldNext = next;
+        int capacity = Math.max(1024, ordinals.size() * 2);
+        ids = new long[capacity];
+        titles = new String[capacity];
+        folded = new String[capacity];
+        next = 0;
+        ordinals.clear();
+        postings.clear();
+        for (int ordinal = 0; ordinal < oldNext; ordinal++) {
+            if (oldFolded[ordinal] == null) {
+                continue;
+            }
+            int fresh = next++;
+            ids[fresh] = oldIds[ordinal];
+            titles[fresh] = oldTitles[ordinal];
+            folded[fresh] = oldFolded[ordinal];
+            ordinals.put(oldIds[ordinal], fresh);
+            for (String gram : grams(oldFolded[ordinal])) {
+                postings.computeIfAbsent(gram, g -> new IntList()).add(fresh);
+            }
+        }
+    }
+
+    /**
+     * Distinct keys of a folded title: its trigrams and the short prefixes of its words
+     */
+    private static Set<String> grams(String key) {
+        Set<String> grams = new HashSet<>(trigrams(key));
+        int start = 0;
+        while (start < key.length()) {
+            int end = key.indexOf(' ', start);
+            if (end < 0) {
+                end = key.length();
+            }
+            for (int length = 1; length < GRAM && start + length <= end; length++) {
+                grams.add(key.substring(start, start + length));
+            }
+            start = end + 1;
+        }
+        return grams;
+    }
+
+    private static Set<String> trigrams(String key) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            grams.add(key.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class Candidate {
+        private final int ordinal;
+        private final int rank;
+        private final int length;
+
+        Candidate(int ordinal, int rank, int length) {
+            this.ordinal = ordinal;
+            this.rank = rank;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Growable array of ints, in increasing order since ordinals only grow
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
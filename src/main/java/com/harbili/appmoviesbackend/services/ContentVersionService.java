@@ -0,0 +1,87 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Service giving the ETags of the catalog and watchlist reads
+ *
+ * An ETag is built from version counters bumped after every write, so it is
+ * known before the response body is built, and a conditional request that
+ * matches costs no database query. The catalog has one counter. Watchlists
+ * have one counter per user, shared by all the reads of their watchlists;
+ * the counters are striped, so two users on the same stripe only cause each
+ * other spurious full responses, never a stale one.
+ *
+ * Counters live in memory and restart with the application: a random prefix
+ * chosen at startup keeps the ETags of different runs apart. Writes made to
+ * the database by another process are not seen, like in the in-memory indexes.
+ *
+ * A change recorded inside a transaction only bumps its counter once the
+ * transaction has committed: a read racing with the commit could otherwise
+ * cache the old content under the new ETag.
+ */
+@Service
+public class ContentVersionService {
+
+    private static final int USER_STRIPES = 4096;
+
+    private final String prefix = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final AtomicLongArray userVersions = new AtomicLongArray(USER_STRIPES);
+
+    /**
+     * @return the ETag of the catalog reads
+     */
+    public String catalogETag() {
+        return "\"" + prefix + "-" + catalogVersion.get() + "\"";
+    }
+
+    /**
+     * ETag of the reads of a user's watchlists, which also embed movie titles
+     * @param userId the owner of the watchlists
+     * @return the ETag
+     */
+    public String userETag(long userId) {
+        return "\"" + prefix + "-" + catalogVersion.get() + "-" + userVersions.get(stripe(userId)) + "\"";
+    }
+
+    /**
+     * Record a change to the catalog, after the commit of the current transaction if there is one
+     */
+    public void catalogChanged() {
+        TransactionCallbacks.afterCommit(catalogVersion::incrementAndGet);
+    }
+
+    /**
+     * Record a change to the watchlists of a user, after the commit of the current transaction if there is one
+     * @param userId the owner of the watchlists, ignored if null
+     */
+    public void userChanged(Long userId) {
+        if (userId != null) {
+            int stripe = stripe(userId);
+            TransactionCallbacks.afterCommit(() -> userVersions.incrementAndGet(stripe));
+        }
+    }
+
+    @EventListener
+    public void onMoviesUpserted(MoviesUpsertedEvent event) {
+        catalogChanged();
+    }
+
+    @EventListener
+    public void onMovieDeleted(MovieDeletedEvent event) {
+        catalogChanged();
+    }
+
+    private static int stripe(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 52) & (USER_STRIPES - 1);
+    }
+}
@@ -0,0 +1,50 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import com.harbili.appmoviesbackend.tmdb.TmdbGenres;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service keeping the genre names in line with the TMDB genre list
+ *
+ * The list goes through the TMDB response cache, so a refresh is usually
+ * served from disk or answered by a 304.
+ */
+@Service
+public class GenreService {
+
+    private final TmdbClient tmdbClient;
+    private final MovieService movieService;
+    private final ContentVersionService contentVersionService;
+
+    public GenreService(TmdbClient tmdbClient, MovieService movieService,
+                        ContentVersionService contentVersionService) {
+        this.tmdbClient = tmdbClient;
+        this.movieService = movieService;
+        this.contentVersionService = contentVersionService;
+    }
+
+    @Scheduled(initialDelayString = "${tmdb.genres.initial-delay:PT0S}",
+            fixedDelayString = "${tmdb.genres.refresh-interval:P1D}")
+    public void refreshGenreNames() {
+        try {
+            Map<Integer, String> names = tmdbClient.getGenres();
+            if (names.isEmpty()) {
+                return;
+            }
+            List<Integer> unknown = TmdbGenres.updateNames(names);
+            // Cached movies carry the genre names they were converted with
+            movieService.clearCache();
+            contentVersionService.catalogChanged();
+            if (!unknown.isEmpty()) {
+                System.err.println("TMDB genres without a mask bit, ignored: " + unknown);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error loading the TMDB genre list: " + e.getMessage());
+        }
+    }
+}
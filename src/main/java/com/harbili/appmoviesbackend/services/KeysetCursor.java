@@ -0,0 +1,65 @@
+package com.harbili.appmoviesbackend.services;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated listing, exchanged with clients as an opaque token
+ *
+ * A cursor remembers the sort it belongs to, the sort value and the ID of the
+ * last row returned. Rows whose sort value is null are listed after all the
+ * others, ordered by ID: a cursor in that part of the listing has no value.
+ */
+@Getter
+public final class KeysetCursor {
+    private final String sort;
+    private final String value;
+    private final long id;
+
+    public KeysetCursor(String sort, String value, long id) {
+        this.sort = sort;
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * @return true if the cursor points into the rows without sort value
+     */
+    public boolean isInNullTail() {
+        return value == null;
+    }
+
+    public String encode() {
+        String raw = sort + "|" + id + "|" + (value != null ? "v" + value : "n");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}
+     * @param token the token
+     * @param expectedSort the sort of the listing the token is used with
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is malformed or belongs to another sort
+     */
+    public static KeysetCursor decode(String token, String expectedSort) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = raw.split("\\|", 3);
+        if (parts.length != 3 || !parts[0].equals(expectedSort) || parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor for sort " + expectedSort);
+        }
+        long id;
+        try {
+            id = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new KeysetCursor(parts[0], parts[2].charAt(0) == 'v' ? parts[2].substring(1) : null, id);
+    }
+}
@@ -0,0 +1,74 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Service exporting the whole catalog as newline-delimited JSON (one MovieDTO per line)
+ *
+ * Movies are read from a streamed database cursor and written as they come:
+ * each row is detached once written, so memory stays constant whatever the
+ * size of the catalog.
+ */
+@Service
+public class MovieExportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * Rows written between two flushes of the response
+     */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final MovieRepository movieRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+
+    public MovieExportService(MovieRepository movieRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.movieRepository = movieRepository;
+        this.entityManager = entityManager;
+        // Flushing is done here every FLUSH_INTERVAL rows, not after every value
+        this.writer = objectMapper.writerFor(MovieDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Write the movies with an ID greater than afterId, ordered by ID
+     * @param afterId the last ID already received by the client, or null to export everything
+     * @param out the stream receiving the NDJSON lines; it is flushed but not closed
+     * @return the number of movies written
+     * @throws IOException if the client went away
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(Long afterId, OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<Movie> movies = movieRepository.streamAllAfter(afterId != null ? afterId : Long.MIN_VALUE);
+             JsonGenerator generator = writer.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<Movie> it = movies.iterator();
+            while (it.hasNext()) {
+                Movie movie = it.next();
+                writer.writeValue(generator, MovieService.convertToDto(movie));
+                generator.writeRaw('\n');
+                entityManager.detach(movie);
+                if (++written % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+        return written;
+    }
+}
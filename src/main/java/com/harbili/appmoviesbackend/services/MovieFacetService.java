@@ -0,0 +1,152 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.dto.MovieFacetPageDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.MovieFacetView;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistMovieStatusView;
+import com.harbili.appmoviesbackend.search.IdBitmap;
+import com.harbili.appmoviesbackend.search.MovieFacetIndex;
+import com.harbili.appmoviesbackend.tmdb.TmdbGenres;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Service filtering the catalog by genre, release year and watchlist status
+ *
+ * Genres and years come from an in-memory bitmap index, loaded once the
+ * application is ready and then following the movie events. The statuses of
+ * a user are read with a single query per request, since watchlists change
+ * outside of the movie events and stay small.
+ */
+@Service
+public class MovieFacetService {
+
+    private final MovieRepository movieRepository;
+    private final WatchlistItemRepository watchlistItemRepository;
+    private final MovieFacetIndex index = new MovieFacetIndex();
+
+    @Value("${movies.facets.default-size:20}")
+    private int defaultSize = 20;
+
+    @Value("${movies.facets.max-size:100}")
+    private int maxSize = 100;
+
+    public MovieFacetService(MovieRepository movieRepository, WatchlistItemRepository watchlistItemRepository) {
+        this.movieRepository = movieRepository;
+        this.watchlistItemRepository = watchlistItemRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        try (Stream<MovieFacetView> facets = movieRepository.streamFacets()) {
+            facets.forEach(movie -> index.put(movie.getId(), movie.getGenreMask(), movie.getReleaseDate()));
+        }
+        System.out.println("Facet index built: " + index.size() + " movies in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    @EventListener
+    public void onMoviesUpserted(MoviesUpsertedEvent event) {
+        for (Movie movie : event.getMovies()) {
+            index.put(movie.getId(), movie.getGenreMask(), movie.getReleaseDate());
+        }
+    }
+
+    @EventListener
+    public void onMovieDeleted(MovieDeletedEvent event) {
+        index.remove(event.getMovieId());
+    }
+
+    /**
+     * Get a page of the movies matching every given facet, with the number of matches per facet value
+     * @param genres the genres a movie must all have, or null for any genre
+     * @param fromYear the first release year, inclusive, or null
+     * @param toYear the last release year, inclusive, or null
+     * @param userId the user whose watchlists give the status facet, or null
+     * @param status the status the movie must have in one of the user's watchlists, or null
+     * @param afterId the nextAfterId of the previous page, or null for the first page
+     * @param size the page size, or null for the default
+     * @return the page, ordered by ID
+     * @throws IllegalArgumentException if a genre is unknown, or a status is given without a user
+     */
+    public MovieFacetPageDTO getFacetPage(List<String> genres, Integer fromYear, Integer toYear,
+                                          Long userId, WatchlistStatus status, Long afterId, Integer size) {
+        long genreMask = 0;
+        if (genres != null) {
+            for (String genre : genres) {
+                long bit = TmdbGenres.maskOfNames(List.of(genre));
+                if (bit == 0) {
+                    throw new IllegalArgumentException("Unknown genre: " + genre);
+                }
+                genreMask |= bit;
+            }
+        }
+        if (status != null && userId == null) {
+            throw new IllegalArgumentException("A status filter needs a userId");
+        }
+        int pageSize = Math.max(1, Math.min(size != null ? size : defaultSize, maxSize));
+
+        Map<WatchlistStatus, IdBitmap> byStatus = userId != null ? statusBitmaps(userId) : Map.of();
+        IdBitmap restrictTo = status != null ? byStatus.getOrDefault(status, new IdBitmap()) : null;
+        MovieFacetIndex.Result result = index.filter(genreMask, fromYear, toYear, restrictTo, afterId, pageSize);
+
+        Map<Long, Movie> movies = new HashMap<>();
+        for (Movie movie : movieRepository.findAllById(result.getIds())) {
+            movies.put(movie.getId(), movie);
+        }
+        List<MovieDTO> items = new ArrayList<>(result.getIds().size());
+        for (Long id : result.getIds()) {
+            Movie movie = movies.get(id);
+            if (movie != null) {
+                items.add(MovieService.convertToDto(movie));
+            }
+        }
+
+        Map<String, Integer> genreCounts = new LinkedHashMap<>();
+        result.getGenreCounts().forEach((bit, count) -> {
+            for (String name : TmdbGenres.namesOf(1L << bit)) {
+                genreCounts.put(name, count);
+            }
+        });
+        Map<WatchlistStatus, Integer> statusCounts = new EnumMap<>(WatchlistStatus.class);
+        if (userId != null) {
+            for (WatchlistStatus value : WatchlistStatus.values()) {
+                IdBitmap bitmap = byStatus.get(value);
+                statusCounts.put(value, bitmap != null ? result.countIn(bitmap) : 0);
+            }
+        }
+        Long nextAfterId = result.hasMore() ? result.getIds().get(result.getIds().size() - 1) : null;
+        return new MovieFacetPageDTO(items, result.getTotal(), pageSize, nextAfterId,
+                genreCounts, result.getYearCounts(), statusCounts);
+    }
+
+    private Map<WatchlistStatus, IdBitmap> statusBitmaps(Long userId) {
+        Map<WatchlistStatus, IdBitmap> byStatus = new EnumMap<>(WatchlistStatus.class);
+        for (WatchlistMovieStatusView item : watchlistItemRepository.findMovieStatusesByUserId(userId)) {
+            Long movieId = item.getMovieId();
+            if (item.getStatus() != null && movieId != null && movieId >= 0 && movieId <= Integer.MAX_VALUE) {
+                byStatus.computeIfAbsent(item.getStatus(), s -> new IdBitmap()).add(movieId.intValue());
+            }
+        }
+        return byStatus;
+    }
+}
@@ -0,0 +1,162 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.dto.MovieSearchPageDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.search.MovieFullTextIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Service for ranked full-text search over titles, overviews and genres
+ *
+ * The Lucene index lives on disk and follows the movie events: writes are
+ * searchable after the next refresh (every second by default) and committed
+ * periodically. If the index does not hold as many movies as the database
+ * when the application starts, it is rebuilt in the background.
+ */
+@Service
+public class MovieFullTextSearchService {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final MovieRepository movieRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MovieFullTextIndex index;
+    private final ExecutorService rebuilder =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("fulltext-rebuild-"));
+
+    @Value("${movies.search.max-results:1000}")
+    private int maxResults = 1000;
+
+    @Value("${movies.search.max-page-size:100}")
+    private int maxPageSize = 100;
+
+    public MovieFullTextSearchService(MovieRepository movieRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${movies.search.index-dir:${java.io.tmpdir}/movie-index}") Path indexDir) {
+        this.movieRepository = movieRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        try {
+            this.index = new MovieFullTextIndex(indexDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the full-text index in " + indexDir, e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkIndex() throws IOException {
+        long movies = movieRepository.count();
+        if (index.size() != movies) {
+            rebuilder.submit(this::rebuild);
+        }
+    }
+
+    /**
+     * Re-index the whole catalog, one keyset page of movies per transaction
+     */
+    void rebuild() {
+        long start = System.nanoTime();
+        try {
+            index.deleteAll();
+            long afterId = Long.MIN_VALUE;
+            int indexed = 0;
+            while (true) {
+                long from = afterId;
+                List<Movie> page = readOnlyTransaction.execute(
+                        status -> movieRepository.findPageById(from, Limit.of(REBUILD_PAGE_SIZE)));
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                index.index(page);
+                indexed += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            }
+            index.commit();
+            index.refresh();
+            System.out.println("Full-text index rebuilt: " + indexed + " movies in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            System.err.println("Error rebuilding the full-text index: " + e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onMoviesUpserted(MoviesUpsertedEvent event) throws IOException {
+        index.index(event.getMovies());
+    }
+
+    @EventListener
+    public void onMovieDeleted(MovieDeletedEvent event) throws IOException {
+        index.delete(event.getMovieId());
+    }
+
+    @Scheduled(fixedDelayString = "${movies.search.refresh-interval:PT1S}")
+    public void refresh() throws IOException {
+        index.refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${movies.search.commit-interval:PT1M}")
+    public void commit() throws IOException {
+        index.commit();
+    }
+
+    /**
+     * Search movies by title, plot and genre, best matches first
+     * @param query the words to look for
+     * @param page the page number, from 0
+     * @param size the page size
+     * @return the page of results; pages beyond movies.search.max-results are empty
+     */
+    public MovieSearchPageDTO search(String query, int page, int size) throws IOException {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        int pageNumber = Math.max(0, page);
+        long offset = (long) pageNumber * pageSize;
+        if (query == null || query.isBlank() || offset >= maxResults) {
+            return new MovieSearchPageDTO(List.of(), 0, pageNumber, pageSize);
+        }
+
+        MovieFullTextIndex.Hits hits = index.search(query, (int) offset, (int) Math.min(pageSize, maxResults - offset));
+        Map<Long, Movie> movies = new HashMap<>();
+        for (Movie movie : movieRepository.findAllById(hits.getIds())) {
+            movies.put(movie.getId(), movie);
+        }
+        List<MovieDTO> items = new ArrayList<>(hits.getIds().size());
+        for (Long id : hits.getIds()) {
+            Movie movie = movies.get(id);
+            if (movie != null) {
+                items.add(MovieService.convertToDto(movie));
+            }
+        }
+        return new MovieSearchPageDTO(items, hits.getTotalHits(), pageNumber, pageSize);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        rebuilder.shutdownNow();
+        index.commit();
+        index.close();
+    }
+}
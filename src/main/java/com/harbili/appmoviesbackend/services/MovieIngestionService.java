@@ -0,0 +1,188 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.IngestionStatusDTO;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import com.harbili.appmoviesbackend.tmdb.TmdbPage;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service loading the TMDB catalog into the local database
+ *
+ * The crawl runs in the background: page 1 is fetched first to learn how many
+ * pages exist, then the remaining pages are fetched by a fixed pool of
+ * {@code tmdb.ingestion.parallelism} workers. Each page is saved as soon as it
+ * arrives, so only the pages currently in flight are held in memory.
+ */
+@Service
+public class MovieIngestionService {
+
+    /**
+     * TMDB refuses /discover/movie pages beyond this one
+     */
+    private static final int TMDB_MAX_PAGE = 500;
+
+    private static final int PROGRESS_LOG_INTERVAL = 25;
+
+    private final TmdbClient tmdbClient;
+    private final MovieRepository movieRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int parallelism;
+    private final int maxPages;
+    private final ExecutorService coordinator =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("tmdb-ingestion-"));
+
+    private IngestionRun currentRun;
+
+    public MovieIngestionService(TmdbClient tmdbClient,
+                                 MovieRepository movieRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${tmdb.ingestion.parallelism:4}") int parallelism,
+                                 @Value("${tmdb.ingestion.max-pages:500}") int maxPages) {
+        this.tmdbClient = tmdbClient;
+        this.movieRepository = movieRepository;
+        this.eventPublisher = eventPublisher;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxPages = Math.max(1, Math.min(maxPages, TMDB_MAX_PAGE));
+    }
+
+    /**
+     * Start a catalog ingestion in the background
+     *
+     * If an ingestion is already running, no new one is started and the status
+     * of the running one is returned.
+     *
+     * @return the status of the running ingestion
+     */
+    public synchronized IngestionStatusDTO startIngestion() {
+        if (currentRun != null && currentRun.isRunning()) {
+            return currentRun.toDto();
+        }
+        IngestionRun run = new IngestionRun();
+        currentRun = run;
+        coordinator.submit(() -> ingest(run));
+        return run.toDto();
+    }
+
+    /**
+     * Get the status of the last ingestion
+     * @return the status, or null if no ingestion was ever started
+     */
+    public synchronized IngestionStatusDTO getStatus() {
+        return currentRun != null ? currentRun.toDto() : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    private void ingest(IngestionRun run) {
+        System.out.println("Starting TMDB catalog ingestion with " + parallelism + " workers...");
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("tmdb-ingestion-worker-"));
+        try {
+            TmdbPage firstPage = tmdbClient.discoverMovies(1);
+            run.totalPages = Math.min(firstPage.getTotalPages(), maxPages);
+            store(run, firstPage);
+
+            List<Future<?>> pending = new ArrayList<>();
+            for (int page = 2; page <= run.totalPages; page++) {
+                int pageNumber = page;
+                pending.add(workers.submit(() -> ingestPage(run, pageNumber)));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+
+            // Second chance for the pages that still failed after the client's own retries
+            List<Integer> failed = new ArrayList<>(run.failedPages);
+            if (!failed.isEmpty()) {
+                System.out.println("Retrying " + failed.size() + " failed TMDB pages...");
+                run.failedPages.clear();
+                for (int page : failed) {
+                    ingestPage(run, page);
+                }
+            }
+
+            run.state = run.failedPages.isEmpty() ? "COMPLETED" : "COMPLETED_WITH_ERRORS";
+            System.out.println("TMDB catalog ingestion finished: " + run.completedPages.get() + "/" + run.totalPages
+                    + " pages, " + run.moviesSaved.get() + " movies, " + run.failedPages.size() + " failed pages");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail("Ingestion interrupted");
+        } catch (ExecutionException e) {
+            run.fail(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error during TMDB catalog ingestion: " + e.getMessage());
+            run.fail(e.getMessage());
+        } finally {
+            workers.shutdownNow();
+            run.finishedAt = Instant.now();
+        }
+    }
+
+    private void ingestPage(IngestionRun run, int page) {
+        try {
+            store(run, tmdbClient.discoverMovies(page));
+        } catch (Exception e) {
+            System.err.println("Error fetching TMDB page " + page + ": " + e.getMessage());
+            run.failedPages.add(page);
+        }
+    }
+
+    private void store(IngestionRun run, TmdbPage page) {
+        movieRepository.upsertAll(page.getMovies());
+        eventPublisher.publishEvent(new MoviesUpsertedEvent(page.getMovies()));
+        run.moviesSaved.addAndGet(page.getMovies().size());
+
+        int done = run.completedPages.incrementAndGet();
+        if (done % PROGRESS_LOG_INTERVAL == 0 || done == run.totalPages) {
+            System.out.println("TMDB ingestion progress: " + done + "/" + run.totalPages
+                    + " pages, " + run.moviesSaved.get() + " movies saved");
+        }
+    }
+
+    /**
+     * Mutable progress of one ingestion, updated concurrently by the workers
+     */
+    private static final class IngestionRun {
+        private final Instant startedAt = Instant.now();
+        private final AtomicInteger completedPages = new AtomicInteger();
+        private final AtomicLong moviesSaved = new AtomicLong();
+        private final ConcurrentLinkedQueue<Integer> failedPages = new ConcurrentLinkedQueue<>();
+        private volatile int totalPages;
+        private volatile String state = "RUNNING";
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        boolean isRunning() {
+            return "RUNNING".equals(state);
+        }
+
+        void fail(String message) {
+            error = message;
+            state = "FAILED";
+        }
+
+        IngestionStatusDTO toDto() {
+            return new IngestionStatusDTO(state, totalPages, completedPages.get(),
+                    new ArrayList<>(failedPages), moviesSaved.get(), startedAt, finishedAt, error);
+        }
+    }
+}
@@ -1,55 +1,157 @@
 package com.harbili.appmoviesbackend.services;
 
+import com.harbili.appmoviesbackend.cache.TinyLfuCache;
+import com.harbili.appmoviesbackend.dto.CacheStatsDTO;
 import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.dto.MoviePageDTO;
 import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
 import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class MovieService {
 
     private final MovieRepository movieRepository;
-    private final RestTemplate restTemplate;
+    private final MovieIngestionService movieIngestionService;
+    private final TmdbClient tmdbClient;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Value("${tmdb.api.key}")
-    private String apiKey;
+    // Récupérations TMDB en cours, par ID : les requêtes simultanées sur le même film partagent le même appel
+    private final ConcurrentHashMap<Long, CompletableFuture<Movie>> tmdbFetches = new ConcurrentHashMap<>();
 
-    @Value("${tmdb.api.base-url}")
-    private String baseUrl;
+    // Films déjà convertis, par ID : les listes de watchlist relisent sans cesse les mêmes films
+    private final TinyLfuCache<Long, MovieDTO> movieCache;
 
-    public MovieService(MovieRepository movieRepository) {
+    @Value("${movies.read-through.enabled:true}")
+    private boolean readThrough = true;
+
+    @Value("${movies.catalog.default-page-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${movies.catalog.max-page-size:200}")
+    private int maxPageSize = 200;
+
+    // Tris acceptés par le catalogue paginé
+    public static final String SORT_ID = "id";
+    public static final String SORT_TITLE = "title";
+    public static final String SORT_RELEASE_DATE = "releaseDate";
+
+    // Plus grande date acceptée par une colonne DATE MySQL
+    private static final LocalDate LAST_DATE = LocalDate.of(9999, 12, 31);
+
+    @Autowired
+    public MovieService(MovieRepository movieRepository,
+                        MovieIngestionService movieIngestionService,
+                        TmdbClient tmdbClient,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${movies.cache.maximum-size:10000}") long cacheMaximumSize) {
         this.movieRepository = movieRepository;
-        this.restTemplate = new RestTemplate();
+        this.movieIngestionService = movieIngestionService;
+        this.tmdbClient = tmdbClient;
+        this.eventPublisher = eventPublisher;
+        this.movieCache = new TinyLfuCache<>(cacheMaximumSize);
+    }
+
+    public MovieService(MovieRepository movieRepository,
+                        MovieIngestionService movieIngestionService,
+                        TmdbClient tmdbClient,
+                        ApplicationEventPublisher eventPublisher) {
+        this(movieRepository, movieIngestionService, tmdbClient, eventPublisher, 10_000);
     }
 
     // Opérations CRUD de base
 
     public MovieDTO getMovieById(Long id) {
+        if (id == null) return null;
+        return movieCache.get(id, this::loadMovie);
+    }
+
+    private MovieDTO loadMovie(Long id) {
         Movie movie = movieRepository.findById(id).orElse(null);
+        if (movie == null && readThrough) {
+            // Film absent du catalogue local : on le récupère depuis TMDB et on l'enregistre
+            movie = fetchFromTmdb(id);
+            if (movie != null) {
+                // Le film n'est mis en cache qu'une fois son enregistrement validé : l'invalidation
+                // empêche le cache de garder la valeur chargée, au cas où une transaction englobante
+                // serait annulée
+                MovieDTO dto = convertToDto(movie);
+                movieCache.invalidate(id);
+                TransactionCallbacks.afterCommit(() -> movieCache.put(id, dto));
+                return dto;
+            }
+        }
         return movie != null ? convertToDto(movie) : null;
     }
 
     public MovieDTO saveMovie(Movie movie) {
         if (movie == null) return null;
-        return convertToDto(movieRepository.save(movie));
+        Movie saved = movieRepository.save(movie);
+        movieCache.invalidate(saved.getId());
+        eventPublisher.publishEvent(new MoviesUpsertedEvent(List.of(saved)));
+        return convertToDto(saved);
     }
 
     public List<MovieDTO> getAllMovies() {
         List<Movie> movies = movieRepository.findAll();
         if (movies.isEmpty()) {
-            movies = fetchMoviesFromTMDB();
-            movieRepository.saveAll(movies);
+            // Catalogue vide : on lance l'ingestion TMDB en arrière-plan au lieu de bloquer la requête
+            movieIngestionService.startIngestion();
         }
         return convertToDtoList(movies);
     }
 
+    /**
+     * Page du catalogue en pagination par curseur (keyset) : chaque page reprend
+     * après le dernier film de la précédente, sans OFFSET, donc à coût constant
+     * quelle que soit la profondeur. Les films sans titre ou sans date de sortie
+     * sont listés à la fin, par ID.
+     *
+     * @throws IllegalArgumentException si le tri ou le curseur est invalide
+     */
+    public MoviePageDTO getMoviePage(String sort, Integer size, String cursor) {
+        if (sort == null || sort.isBlank()) sort = SORT_ID;
+        if (!sort.equals(SORT_ID) && !sort.equals(SORT_TITLE) && !sort.equals(SORT_RELEASE_DATE)) {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+        int pageSize = Math.max(1, Math.min(size != null ? size : defaultPageSize, maxPageSize));
+        KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor, sort) : null;
+
+        // Une ligne de plus que demandé pour savoir s'il existe une page suivante
+        List<Movie> movies = new ArrayList<>(pageSize + 1);
+        if (after == null || !after.isInNullTail()) {
+            movies.addAll(findValuePage(sort, after, pageSize + 1));
+        }
+        if (movies.size() <= pageSize && !sort.equals(SORT_ID)) {
+            long afterId = after != null && after.isInNullTail() ? after.getId() : Long.MIN_VALUE;
+            movies.addAll(findNullTailPage(sort, afterId, pageSize + 1 - movies.size()));
+        }
+
+        String nextCursor = null;
+        if (movies.size() > pageSize) {
+            movies = movies.subList(0, pageSize);
+            Movie last = movies.get(pageSize - 1);
+            nextCursor = new KeysetCursor(sort, sortValue(sort, last), last.getId()).encode();
+        }
+        return new MoviePageDTO(convertToDtoList(movies), sort, pageSize, nextCursor);
+    }
+
     public List<MovieDTO> searchMovies(String query) {
         if (query == null || query.trim().isEmpty()) {
             return new ArrayList<>();
@@ -67,61 +169,105 @@ public class MovieService {
         movie.setPosterPath(updatedMovie.getPosterPath());
         movie.setReleaseDate(updatedMovie.getReleaseDate());
 
-        return convertToDto(movieRepository.save(movie));
+        Movie saved = movieRepository.save(movie);
+        movieCache.invalidate(id);
+        eventPublisher.publishEvent(new MoviesUpsertedEvent(List.of(saved)));
+        return convertToDto(saved);
     }
 
     public boolean deleteMovie(Long id) {
         if (!movieRepository.existsById(id)) return false;
         movieRepository.deleteById(id);
+        movieCache.invalidate(id);
+        eventPublisher.publishEvent(new MovieDeletedEvent(id));
         return true;
     }
 
-    // Récupération des films depuis TMDB (version simplifiée)
-    private List<Movie> fetchMoviesFromTMDB() {
-        List<Movie> movies = new ArrayList<>();
-        int page = 1;
-        boolean hasMorePages = true;
+    // Écritures faites hors de ce service (synchronisation TMDB, ingestion)
+    @EventListener
+    public void onMoviesUpserted(MoviesUpsertedEvent event) {
+        for (Movie movie : event.getMovies()) {
+            movieCache.invalidate(movie.getId());
+        }
+    }
 
+    @EventListener
+    public void onMovieDeleted(MovieDeletedEvent event) {
+        movieCache.invalidate(event.getMovieId());
+    }
+
+    /**
+     * Vide le cache des films, par exemple quand les noms des genres changent
+     */
+    public void clearCache() {
+        movieCache.invalidateAll();
+    }
+
+    public CacheStatsDTO getCacheStats() {
+        return new CacheStatsDTO(movieCache.size(), movieCache.getMaximumSize(), movieCache.getHitCount(),
+                movieCache.getMissCount(), movieCache.getEvictionCount());
+    }
+
+    private List<Movie> findValuePage(String sort, KeysetCursor after, int limit) {
         try {
-            while (hasMorePages) {
-                String url = String.format("%s/discover/movie?api_key=%s&page=%d", baseUrl, apiKey, page);
-                Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-
-                if (response == null || !(response.get("results") instanceof List)) {
-                    break;
-                }
-
-                List<Map<String, Object>> results = (List<Map<String, Object>>) response.get("results");
-
-                for (Map<String, Object> movieData : results) {
-                    Movie movie = new Movie();
-                    movie.setId(((Number) movieData.get("id")).longValue());
-                    movie.setTitle((String) movieData.get("title"));
-                    movie.setOverview((String) movieData.get("overview"));
-                    movie.setPosterPath((String) movieData.get("poster_path"));
-
-                    String releaseDate = (String) movieData.get("release_date");
-                    if (releaseDate != null) {
-                        movie.setReleaseDate(LocalDate.parse(releaseDate));
-                    }
-
-                    movies.add(movie);
-                }
-
-                // Vérifie s'il y a encore des pages
-                int totalPages = (int) response.getOrDefault("total_pages", 1);
-                hasMorePages = page < totalPages;
-                page++;
+            return switch (sort) {
+                case SORT_TITLE -> movieRepository.findPageByTitle(
+                        after != null ? after.getValue() : "", after != null ? after.getId() : Long.MIN_VALUE, Limit.of(limit));
+                case SORT_RELEASE_DATE -> movieRepository.findPageByReleaseDate(
+                        after != null ? LocalDate.parse(after.getValue()) : LAST_DATE,
+                        after != null ? after.getId() : Long.MAX_VALUE, Limit.of(limit));
+                default -> movieRepository.findPageById(after != null ? after.getId() : Long.MIN_VALUE, Limit.of(limit));
+            };
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private List<Movie> findNullTailPage(String sort, long afterId, int limit) {
+        return sort.equals(SORT_TITLE)
+                ? movieRepository.findPageWithoutTitle(afterId, Limit.of(limit))
+                : movieRepository.findPageWithoutReleaseDate(afterId, Limit.of(limit));
+    }
+
+    private static String sortValue(String sort, Movie movie) {
+        return switch (sort) {
+            case SORT_TITLE -> movie.getTitle();
+            case SORT_RELEASE_DATE -> movie.getReleaseDate() != null ? movie.getReleaseDate().toString() : null;
+            default -> String.valueOf(movie.getId());
+        };
+    }
+
+    // Lecture à la demande depuis TMDB (single-flight)
+    private Movie fetchFromTmdb(Long id) {
+        CompletableFuture<Movie> fetch = new CompletableFuture<>();
+        CompletableFuture<Movie> running = tmdbFetches.putIfAbsent(id, fetch);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                return null;
             }
-        } catch (Exception e) {
-            System.err.println("Error fetching movies from TMDB: " + e.getMessage());
         }
 
-        return movies;
+        try {
+            Movie movie = tmdbClient.getMovie(id);
+            if (movie != null) {
+                movieRepository.upsertAll(List.of(movie));
+                TransactionCallbacks.afterCommit(() -> eventPublisher.publishEvent(new MoviesUpsertedEvent(List.of(movie))));
+            }
+            fetch.complete(movie);
+            return movie;
+        } catch (RuntimeException e) {
+            System.err.println("Error fetching movie " + id + " from TMDB: " + e.getMessage());
+            fetch.completeExceptionally(e);
+            return null;
+        } finally {
+            tmdbFetches.remove(id, fetch);
+        }
     }
 
     // Conversion en DTO
-    private MovieDTO convertToDto(Movie movie) {
+    static MovieDTO convertToDto(Movie movie) {
         if (movie == null) return null;
 
         return new MovieDTO(
@@ -131,7 +277,7 @@ public class MovieService {
                 movie.getPosterPath() != null ?
                         "https://image.tmdb.org/t/p/w500" + movie.getPosterPath() : null,
                 movie.getReleaseDate(),
-                new ArrayList<>()
+                movie.getGenres()
         );
     }
 
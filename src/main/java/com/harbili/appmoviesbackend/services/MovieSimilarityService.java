@@ -0,0 +1,132 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.search.SimilarMovieIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Service for "more like this" recommendations
+ *
+ * The TF-IDF vectors live in memory. They are loaded in the background once
+ * the application is ready, then computed for each movie as it is saved, so a
+ * lookup never compares against the whole catalog.
+ */
+@Service
+public class MovieSimilarityService {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final MovieRepository movieRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final SimilarMovieIndex index = new SimilarMovieIndex();
+    private final ExecutorService loader =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("similarity-load-"));
+
+    @Value("${movies.similar.default-limit:10}")
+    private int defaultLimit = 10;
+
+    @Value("${movies.similar.max-limit:50}")
+    private int maxLimit = 50;
+
+    public MovieSimilarityService(MovieRepository movieRepository, PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        loader.submit(this::load);
+    }
+
+    /**
+     * Compute the vectors of the whole catalog, one keyset page of movies per transaction
+     */
+    void load() {
+        long start = System.nanoTime();
+        try {
+            long afterId = Long.MIN_VALUE;
+            while (true) {
+                long from = afterId;
+                List<Movie> page = readOnlyTransaction.execute(
+                        status -> movieRepository.findPageById(from, Limit.of(LOAD_PAGE_SIZE)));
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                for (Movie movie : page) {
+                    index.put(movie.getId(), movie.getOverview(), movie.getGenres());
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            System.out.println("Similarity index built: " + index.size() + " movies in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            System.err.println("Error building the similarity index: " + e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onMoviesUpserted(MoviesUpsertedEvent event) {
+        for (Movie movie : event.getMovies()) {
+            index.put(movie.getId(), movie.getOverview(), movie.getGenres());
+        }
+    }
+
+    @EventListener
+    public void onMovieDeleted(MovieDeletedEvent event) {
+        index.remove(event.getMovieId());
+    }
+
+    /**
+     * Get the movies whose plot and genres are closest to the given movie
+     * @param id the movie ID
+     * @param limit the maximum number of movies, or null for the default
+     * @return the similar movies, most similar first; empty for an unknown movie
+     */
+    public List<MovieDTO> getSimilarMovies(Long id, Integer limit) {
+        if (id == null) {
+            return List.of();
+        }
+        int k = Math.max(1, Math.min(limit != null ? limit : defaultLimit, maxLimit));
+        List<Long> ids = index.similar(id, k);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Movie> movies = new HashMap<>();
+        for (Movie movie : movieRepository.findAllById(ids)) {
+            movies.put(movie.getId(), movie);
+        }
+        List<MovieDTO> similar = new ArrayList<>(ids.size());
+        for (Long similarId : ids) {
+            Movie movie = movies.get(similarId);
+            if (movie != null) {
+                similar.add(MovieService.convertToDto(movie));
+            }
+        }
+        return similar;
+    }
+
+    @PreDestroy
+    public void close() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,152 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.entities.SyncCheckpoint;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.SyncCheckpointRepository;
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Service keeping the local catalog in sync with TMDB
+ *
+ * Instead of re-crawling the whole catalog, the job asks TMDB which movies
+ * changed since the last checkpoint, refreshes only the ones we store, and then
+ * moves the checkpoint forward. The checkpoint is kept in the database so a
+ * restart resumes where the previous run stopped.
+ */
+@Service
+public class MovieSyncService {
+
+    static final String CHECKPOINT_NAME = "tmdb-movie-changes";
+
+    /**
+     * Largest window accepted by TMDB's /movie/changes endpoint
+     */
+    private static final int MAX_WINDOW_DAYS = 14;
+
+    private static final int ID_CHUNK_SIZE = 500;
+    private static final int UPSERT_CHUNK_SIZE = 100;
+
+    private final TmdbClient tmdbClient;
+    private final MovieRepository movieRepository;
+    private final SyncCheckpointRepository syncCheckpointRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+
+    @Value("${tmdb.sync.enabled:true}")
+    private boolean enabled = true;
+
+    @Autowired
+    public MovieSyncService(TmdbClient tmdbClient,
+                            MovieRepository movieRepository,
+                            SyncCheckpointRepository syncCheckpointRepository,
+                            ApplicationEventPublisher eventPublisher) {
+        this(tmdbClient, movieRepository, syncCheckpointRepository, eventPublisher, Clock.systemUTC());
+    }
+
+    MovieSyncService(TmdbClient tmdbClient,
+                     MovieRepository movieRepository,
+                     SyncCheckpointRepository syncCheckpointRepository,
+                     ApplicationEventPublisher eventPublisher,
+                     Clock clock) {
+        this.tmdbClient = tmdbClient;
+        this.movieRepository = movieRepository;
+        this.syncCheckpointRepository = syncCheckpointRepository;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+    }
+
+    @Scheduled(initialDelayString = "${tmdb.sync.initial-delay:PT5M}", fixedDelayString = "${tmdb.sync.interval:PT6H}")
+    public void scheduledSync() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            syncChanges();
+        } catch (Exception e) {
+            // The checkpoint was not moved: the same window is retried on the next run
+            System.err.println("Error during TMDB incremental sync: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Refresh the movies changed on TMDB since the last checkpoint
+     *
+     * On the very first run there is nothing to compare with, so the checkpoint
+     * is only initialized. The checkpoint is moved only when the whole window has
+     * been processed.
+     *
+     * @return the number of movies refreshed
+     */
+    public synchronized int syncChanges() {
+        Instant now = clock.instant();
+        SyncCheckpoint checkpoint = syncCheckpointRepository.findById(CHECKPOINT_NAME).orElse(null);
+        if (checkpoint == null || checkpoint.getLastSyncedAt() == null) {
+            syncCheckpointRepository.save(new SyncCheckpoint(CHECKPOINT_NAME, now));
+            return 0;
+        }
+
+        LocalDate endDate = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        LocalDate startDate = LocalDate.ofInstant(checkpoint.getLastSyncedAt(), ZoneOffset.UTC);
+        if (startDate.isBefore(endDate.minusDays(MAX_WINDOW_DAYS))) {
+            System.err.println("TMDB sync checkpoint is older than " + MAX_WINDOW_DAYS
+                    + " days, changes before " + endDate.minusDays(MAX_WINDOW_DAYS) + " are skipped");
+            startDate = endDate.minusDays(MAX_WINDOW_DAYS);
+        }
+
+        List<Long> changedIds = new ArrayList<>(new LinkedHashSet<>(tmdbClient.getChangedMovieIds(startDate, endDate)));
+        int refreshed = 0;
+        for (int from = 0; from < changedIds.size(); from += ID_CHUNK_SIZE) {
+            List<Long> knownIds = movieRepository.findExistingIds(
+                    changedIds.subList(from, Math.min(from + ID_CHUNK_SIZE, changedIds.size())));
+            refreshed += refresh(knownIds);
+        }
+
+        checkpoint.setLastSyncedAt(now);
+        syncCheckpointRepository.save(checkpoint);
+        System.out.println("TMDB incremental sync: " + changedIds.size() + " changed movies, " + refreshed + " refreshed");
+        return refreshed;
+    }
+
+    private int refresh(List<Long> ids) {
+        List<Movie> batch = new ArrayList<>(UPSERT_CHUNK_SIZE);
+        int refreshed = 0;
+        for (Long id : ids) {
+            // TMDB reported the movie as changed: a cached answer may predate the change, and the
+            // checkpoint then moves past it
+            Movie movie = tmdbClient.getMovie(id, false);
+            if (movie == null) {
+                continue;
+            }
+            batch.add(movie);
+            if (batch.size() == UPSERT_CHUNK_SIZE) {
+                refreshed += upsert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            refreshed += upsert(batch);
+        }
+        return refreshed;
+    }
+
+    private int upsert(List<Movie> batch) {
+        int count = movieRepository.upsertAll(batch);
+        eventPublisher.publishEvent(new MoviesUpsertedEvent(batch));
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.MovieSuggestionDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.MovieTitleView;
+import com.harbili.appmoviesbackend.search.FuzzyTitleIndex;
+import com.harbili.appmoviesbackend.search.TitleNgramIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Service answering search-box typeahead from in-memory title indexes
+ *
+ * A trigram index serves substring matches and a symmetric-delete index
+ * serves typo-tolerant ones. Both are loaded from the database once the
+ * application is ready and then follow the movie events, so suggestions
+ * never hit the database.
+ */
+@Service
+public class MovieTypeaheadService {
+
+    private final MovieRepository movieRepository;
+    private final TitleNgramIndex index = new TitleNgramIndex();
+    private final FuzzyTitleIndex fuzzyIndex = new FuzzyTitleIndex();
+
+    @Value("${movies.typeahead.default-limit:10}")
+    private int defaultLimit = 10;
+
+    @Value("${movies.typeahead.max-limit:50}")
+    private int maxLimit = 50;
+
+    public MovieTypeaheadService(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        try (Stream<MovieTitleView> titles = movieRepository.streamTitles()) {
+            titles.forEach(title -> {
+                index.put(title.getId(), title.getTitle());
+                fuzzyIndex.put(title.getId(), title.getTitle());
+            });
+        }
+        System.out.println("Title indexes built: " + index.size() + " titles in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    @EventListener
+    public void onMoviesUpserted(MoviesUpsertedEvent event) {
+        for (Movie movie : event.getMovies()) {
+            index.put(movie.getId(), movie.getTitle());
+            fuzzyIndex.put(movie.getId(), movie.getTitle());
+        }
+    }
+
+    @EventListener
+    public void onMovieDeleted(MovieDeletedEvent event) {
+        index.remove(event.getMovieId());
+        fuzzyIndex.remove(event.getMovieId());
+    }
+
+    /**
+     * Get the best titles matching what the user typed so far, or the closest
+     * ones when no title contains it
+     * @param query the text typed by the user
+     * @param limit the maximum number of suggestions, or null for the default
+     * @return the suggestions, best first
+     */
+    public List<MovieSuggestionDTO> suggest(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        int k = limit(limit);
+        List<MovieSuggestionDTO> suggestions = index.search(query, k);
+        return suggestions.isEmpty() ? fuzzyIndex.search(query, k) : suggestions;
+    }
+
+    /**
+     * Get the titles closest to a possibly misspelled query
+     * @param query the text typed by the user
+     * @param limit the maximum number of suggestions, or null for the default
+     * @return the suggestions, fewest edits first
+     */
+    public List<MovieSuggestionDTO> suggestFuzzy(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return fuzzyIndex.search(query, limit(limit));
+    }
+
+    private int limit(Integer limit) {
+        return Math.max(1, Math.min(limit != null ? limit : defaultLimit, maxLimit));
+    }
+}
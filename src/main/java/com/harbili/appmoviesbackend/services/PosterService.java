@@ -0,0 +1,187 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.cache.DiskLruCache;
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Service serving TMDB posters from a local disk cache
+ *
+ * Each poster is downloaded once from the TMDB image CDN, then every
+ * requested width is generated from it and kept next to it. Only a fixed set
+ * of widths is accepted, so the cache holds a bounded number of variants.
+ * Concurrent requests for the same missing file share a single download or
+ * resize.
+ */
+@Service
+public class PosterService {
+
+    // A bare TMDB file name: no directory and no "..", so a key never leaves the cache directory
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}\\.(jpg|png)");
+    private static final String SOURCE = "source";
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final TmdbClient tmdbClient;
+    private final DiskLruCache cache;
+    private final List<Integer> widths;
+    private final int defaultWidth;
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PosterService(TmdbClient tmdbClient,
+                         @Value("${movies.posters.cache-dir:${java.io.tmpdir}/poster-cache}") String directory,
+                         @Value("${movies.posters.cache-size:1GB}") DataSize cacheSize,
+                         @Value("${movies.posters.widths:92,154,185,342,500,780}") List<Integer> widths,
+                         @Value("${movies.posters.default-width:500}") int defaultWidth) throws IOException {
+        this(tmdbClient, new DiskLruCache(Paths.get(directory), cacheSize.toBytes()), widths, defaultWidth);
+    }
+
+    public PosterService(TmdbClient tmdbClient, DiskLruCache cache, List<Integer> widths, int defaultWidth) {
+        this.tmdbClient = tmdbClient;
+        this.cache = cache;
+        this.widths = List.copyOf(widths);
+        this.defaultWidth = defaultWidth;
+    }
+
+    /**
+     * Get a poster, downloading and resizing it if it is not cached yet
+     * @param fileName the file name of the poster path (e.g. "abc.jpg" for "/abc.jpg")
+     * @param width the width in pixels, one of movies.posters.widths, or null for the default
+     * @return the cached file; an image narrower than the width is served as is
+     * @throws IllegalArgumentException if the file name or the width is not accepted
+     * @throws org.springframework.web.client.RestClientException if TMDB does not provide the image
+     */
+    public Path getPoster(String fileName, Integer width) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("Invalid poster file name");
+        }
+        int w = width != null ? width : defaultWidth;
+        if (!widths.contains(w)) {
+            throw new IllegalArgumentException("Unsupported width " + w + ", expected one of " + widths);
+        }
+        return load("w" + w + "/" + fileName, () -> resize(getSource(fileName), w, fileName));
+    }
+
+    /**
+     * Content type of a poster, from its file name
+     */
+    public static String contentType(String fileName) {
+        return fileName.endsWith(".png") ? "image/png" : "image/jpeg";
+    }
+
+    private Path getSource(String fileName) {
+        return load(SOURCE + "/" + fileName, () -> tmdbClient.getPosterImage("/" + fileName));
+    }
+
+    /**
+     * Get a cached file, computing it once for all the concurrent callers when it is missing
+     */
+    private Path load(String key, ImageSupplier supplier) {
+        Path cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<Path> load = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            Path file = cache.put(key, supplier.get());
+            load.complete(file);
+            return file;
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Could not cache poster " + key, e);
+            load.completeExceptionally(failure);
+            throw failure;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Scale the source image down to the width, keeping its aspect ratio
+     */
+    static byte[] resize(Path source, int width, String fileName) throws IOException {
+        BufferedImage image = ImageIO.read(source.toFile());
+        if (image == null) {
+            throw new IOException("Unreadable image " + source);
+        }
+        if (image.getWidth() <= width) {
+            return Files.readAllBytes(source);
+        }
+        // Halving steps with bilinear filtering: a single large step would skip pixels and alias
+        BufferedImage scaled = image;
+        int w = image.getWidth();
+        do {
+            w = Math.max(width, w / 2);
+            int h = Math.max(1, (int) Math.round((double) image.getHeight() * w / image.getWidth()));
+            scaled = scale(scaled, w, h, fileName.endsWith(".png"));
+        } while (w > width);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (fileName.endsWith(".png")) {
+            ImageIO.write(scaled, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, int height, boolean alpha) {
+        BufferedImage scaled = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    @FunctionalInterface
+    private interface ImageSupplier {
+        byte[] get() throws IOException;
+    }
+}
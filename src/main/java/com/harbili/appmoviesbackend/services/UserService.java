@@ -13,9 +13,11 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final ContentVersionService contentVersionService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ContentVersionService contentVersionService) {
         this.userRepository = userRepository;
+        this.contentVersionService = contentVersionService;
     }
 
     public List<UserDTO> getAllUsers() {
@@ -61,6 +63,8 @@ public class UserService {
     public boolean deleteUser(Long id) {
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            // Ses watchlists sont supprimees en cascade
+            contentVersionService.userChanged(id);
             return true;
         }
         return false;
@@ -0,0 +1,397 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.WatchlistBatchOperation;
+import com.harbili.appmoviesbackend.dto.WatchlistBatchResultDTO;
+import com.harbili.appmoviesbackend.entities.Watchlist;
+import com.harbili.appmoviesbackend.entities.WatchlistChangeType;
+import com.harbili.appmoviesbackend.entities.WatchlistItem;
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistCounterDelta;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemKeyView;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemStateView;
+import com.harbili.appmoviesbackend.repositories.WatchlistRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service applying a list of watchlist operations in one transaction
+ *
+ * The operations are first checked one after the other against the user's
+ * items, loaded once: an operation that is invalid at its position in the
+ * list fails on its own, and the others are still applied. The valid ones
+ * are then written with one statement or JDBC batch per kind: removes,
+ * moves, updates, then adds. The checks make that order reach the same
+ * state as applying the operations in sequence.
+ *
+ * The counters of the watchlists are updated in the same transaction, from
+ * the changes found by the checks. The items the operations refer to are
+ * locked before anything is read, then the watchlists whose counters change,
+ * in the same order as the single-item writes of WatchlistItemService.
+ *
+ * The whole batch is logged under one change version of the user, with one
+ * entry per successful operation.
+ *
+ * Movies missing from the catalog are read through from TMDB, as a single
+ * add does, before the transaction starts: no connection nor lock is held
+ * while TMDB answers.
+ */
+@Service
+public class WatchlistBatchService {
+
+    private final WatchlistItemRepository watchlistItemRepository;
+    private final WatchlistRepository watchlistRepository;
+    private final MovieRepository movieRepository;
+    private final MovieService movieService;
+    private final ContentVersionService contentVersionService;
+    private final WatchlistChangeService watchlistChangeService;
+    private final TransactionTemplate transaction;
+
+    @Value("${watchlists.batch.max-operations:1000}")
+    private int maxOperations = 1000;
+
+    public WatchlistBatchService(WatchlistItemRepository watchlistItemRepository,
+                                 WatchlistRepository watchlistRepository,
+                                 MovieRepository movieRepository,
+                                 MovieService movieService,
+                                 ContentVersionService contentVersionService,
+                                 WatchlistChangeService watchlistChangeService,
+                                 PlatformTransactionManager transactionManager) {
+        this.watchlistItemRepository = watchlistItemRepository;
+        this.watchlistRepository = watchlistRepository;
+        this.movieRepository = movieRepository;
+        this.movieService = movieService;
+        this.contentVersionService = contentVersionService;
+        this.watchlistChangeService = watchlistChangeService;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Apply operations to the watchlists of a user
+     * @param userId the user owning every watchlist and item the operations refer to
+     * @param operations the operations, in order
+     * @return one result per operation, in the same order
+     * @throws IllegalArgumentException if there are more operations than watchlists.batch.max-operations
+     */
+    public List<WatchlistBatchResultDTO> apply(Long userId, List<WatchlistBatchOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return List.of();
+        }
+        if (operations.size() > maxOperations) {
+            throw new IllegalArgumentException("At most " + maxOperations + " operations per batch");
+        }
+        Set<Long> existingMovies = existingMovies(operations);
+        return transaction.execute(tx -> apply(userId, operations, existingMovies));
+    }
+
+    private List<WatchlistBatchResultDTO> apply(Long userId, List<WatchlistBatchOperation> operations,
+                                                Set<Long> existingMovies) {
+        // Lock the items first: the reads below then see their latest values, which stay put until the commit.
+        // An item of another user may be locked too, for as long as it takes its operation to fail
+        watchlistItemRepository.lockAll(referencedItemIds(operations));
+        Set<Long> watchlists = new HashSet<>(watchlistRepository.findIdsByUserId(userId));
+        Map<Long, Long> watchlistOfItem = new HashMap<>();
+        Map<Long, Long> movieOfItem = new HashMap<>();
+        Map<Long, WatchlistStatus> statusOfItem = new HashMap<>();
+        Map<Long, Integer> ratingOfItem = new HashMap<>();
+        Map<Long, Set<Long>> moviesOfWatchlist = new HashMap<>();
+        for (WatchlistItemStateView item : watchlistItemRepository.findStatesByUserId(userId)) {
+            watchlistOfItem.put(item.getId(), item.getWatchlistId());
+            movieOfItem.put(item.getId(), item.getMovieId());
+            statusOfItem.put(item.getId(), item.getStatus());
+            ratingOfItem.put(item.getId(), item.getRating());
+            moviesOfWatchlist.computeIfAbsent(item.getWatchlistId(), id -> new HashSet<>()).add(item.getMovieId());
+        }
+        // Watchlist ID -> change to its counters
+        Map<Long, WatchlistCounterDelta> deltas = new HashMap<>();
+
+        WatchlistBatchResultDTO[] results = new WatchlistBatchResultDTO[operations.size()];
+        List<Long> removes = new ArrayList<>();
+        // Operation index -> item to move
+        Map<Integer, WatchlistItem> moves = new LinkedHashMap<>();
+        List<WatchlistItem> updates = new ArrayList<>();
+        // Operation index -> item to insert
+        Map<Integer, WatchlistItem> adds = new LinkedHashMap<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            WatchlistBatchOperation operation = operations.get(i);
+            WatchlistBatchOperation.Type type = operation != null ? operation.getType() : null;
+            if (type == null) {
+                results[i] = failure(i, null, "Missing operation type");
+                continue;
+            }
+            Long itemId = operation.getItemId();
+            if (type != WatchlistBatchOperation.Type.ADD && (itemId == null || !watchlistOfItem.containsKey(itemId))) {
+                results[i] = failure(i, type, "Item not found in the user's watchlists: " + itemId);
+                continue;
+            }
+            switch (type) {
+                case ADD -> {
+                    Long watchlistId = operation.getWatchlistId();
+                    Long movieId = operation.getMovieId();
+                    if (watchlistId == null || !watchlists.contains(watchlistId)) {
+                        results[i] = failure(i, type, "Watchlist not found for the user: " + watchlistId);
+                    } else if (movieId == null || !existingMovies.contains(movieId)) {
+                        results[i] = failure(i, type, "Movie not found: " + movieId);
+                    } else if (!moviesOfWatchlist.computeIfAbsent(watchlistId, id -> new HashSet<>()).add(movieId)) {
+                        results[i] = failure(i, type, "Movie already in watchlist");
+                    } else {
+                        WatchlistStatus status = operation.getStatus() != null ? operation.getStatus() : WatchlistStatus.À_VOIR;
+                        delta(deltas, watchlistId).add(status, null);
+                        adds.put(i, WatchlistItem.builder()
+                                .watchlist(Watchlist.builder().id(watchlistId).build())
+                                .movieId(movieId)
+                                .status(status)
+                                .build());
+                    }
+                }
+                case UPDATE -> {
+                    WatchlistCounterDelta delta = delta(deltas, watchlistOfItem.get(itemId))
+                            .remove(statusOfItem.get(itemId), ratingOfItem.get(itemId));
+                    if (operation.getStatus() != null) {
+                        statusOfItem.put(itemId, operation.getStatus());
+                    }
+                    if (operation.getRating() != null) {
+                        ratingOfItem.put(itemId, operation.getRating());
+                    }
+                    delta.add(statusOfItem.get(itemId), ratingOfItem.get(itemId));
+                    updates.add(WatchlistItem.builder()
+                            .id(itemId)
+                            .status(operation.getStatus())
+                            .rating(operation.getRating())
+                            .notes(operation.getNotes())
+                            .build());
+                    results[i] = success(i, type, itemId);
+                }
+                case REMOVE -> {
+                    Long watchlistId = watchlistOfItem.remove(itemId);
+                    moviesOfWatchlist.get(watchlistId).remove(movieOfItem.remove(itemId));
+                    delta(deltas, watchlistId).remove(statusOfItem.remove(itemId), ratingOfItem.remove(itemId));
+                    removes.add(itemId);
+                    results[i] = success(i, type, itemId);
+                }
+                case MOVE -> {
+                    Long from = watchlistOfItem.get(itemId);
+                    Long to = operation.getTargetWatchlistId();
+                    Long movieId = movieOfItem.get(itemId);
+                    if (to == null || !watchlists.contains(to)) {
+                        results[i] = failure(i, type, "Watchlist not found for the user: " + to);
+                    } else if (to.equals(from)) {
+                        results[i] = success(i, type, itemId);
+                    } else if (!moviesOfWatchlist.computeIfAbsent(to, id -> new HashSet<>()).add(movieId)) {
+                        results[i] = failure(i, type, "Movie already in watchlist");
+                    } else {
+                        moviesOfWatchlist.get(from).remove(movieId);
+                        watchlistOfItem.put(itemId, to);
+                        delta(deltas, from).remove(statusOfItem.get(itemId), ratingOfItem.get(itemId));
+                        delta(deltas, to).add(statusOfItem.get(itemId), ratingOfItem.get(itemId));
+                        moves.put(i, WatchlistItem.builder()
+                                .id(itemId)
+                                .watchlist(Watchlist.builder().id(to).build())
+                                .build());
+                        results[i] = success(i, type, itemId);
+                    }
+                }
+            }
+        }
+
+        // The counters go first: the watchlist rows are then locked before the foreign key checks
+        // of the moves and inserts read them
+        watchlistRepository.addAllToCounters(deltas);
+        if (!removes.isEmpty()) {
+            watchlistItemRepository.deleteAllByIdInBatch(removes);
+        }
+        // A movie added concurrently to the target watchlist is skipped by the move or the insert,
+        // and fails its operation only
+        watchlistItemRepository.moveAll(moves.values());
+        watchlistItemRepository.updateAll(updates);
+        watchlistItemRepository.insertAll(adds.values());
+        Map<Long, WatchlistCounterDelta> corrections = new HashMap<>();
+        readBackMovedItems(moves, watchlistOfItem, statusOfItem, ratingOfItem, results, corrections);
+        readBackAddedIds(adds, movedItemIds(moves), results);
+        uncountFailedAdds(adds, results, corrections);
+        if (!corrections.isEmpty()) {
+            // The watchlist rows are already locked by the first counter update
+            watchlistRepository.addAllToCounters(corrections);
+        }
+
+        if (!removes.isEmpty() || !moves.isEmpty() || !updates.isEmpty() || !adds.isEmpty()) {
+            contentVersionService.userChanged(userId);
+            recordChanges(userId, results);
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Log the successful operations, in order: the last one on an item decides what the client gets
+     */
+    private void recordChanges(Long userId, WatchlistBatchResultDTO[] results) {
+        List<WatchlistChangeType> types = new ArrayList<>();
+        List<Long> itemIds = new ArrayList<>();
+        for (WatchlistBatchResultDTO result : results) {
+            if (result.isSuccess()) {
+                types.add(WatchlistBatchOperation.Type.REMOVE.name().equals(result.getType())
+                        ? WatchlistChangeType.ITEM_DELETED
+                        : WatchlistChangeType.ITEM_UPSERTED);
+                itemIds.add(result.getItemId());
+            }
+        }
+        watchlistChangeService.record(userId, types, itemIds);
+    }
+
+    private static Set<Long> referencedItemIds(List<WatchlistBatchOperation> operations) {
+        Set<Long> itemIds = new HashSet<>();
+        for (WatchlistBatchOperation operation : operations) {
+            if (operation != null && operation.getType() != WatchlistBatchOperation.Type.ADD && operation.getItemId() != null) {
+                itemIds.add(operation.getItemId());
+            }
+        }
+        return itemIds;
+    }
+
+    private static WatchlistCounterDelta delta(Map<Long, WatchlistCounterDelta> deltas, Long watchlistId) {
+        return deltas.computeIfAbsent(watchlistId, id -> new WatchlistCounterDelta());
+    }
+
+    /**
+     * The movies the adds refer to that exist, in the catalog or on TMDB
+     */
+    private Set<Long> existingMovies(List<WatchlistBatchOperation> operations) {
+        Set<Long> movieIds = new HashSet<>();
+        for (WatchlistBatchOperation operation : operations) {
+            if (operation != null && operation.getType() == WatchlistBatchOperation.Type.ADD && operation.getMovieId() != null) {
+                movieIds.add(operation.getMovieId());
+            }
+        }
+        if (movieIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> existing = new HashSet<>(movieRepository.findExistingIds(movieIds));
+        for (Long movieId : movieIds) {
+            // One lookup per movie missing from the catalog, which stores it if TMDB has it
+            if (!existing.contains(movieId) && movieService.getMovieById(movieId) != null) {
+                existing.add(movieId);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * The batched moves report no per-row outcome: read the watchlist of the moved items back with one query
+     *
+     * The items are locked, so only the moves of the batch changed their
+     * watchlist. An item found elsewhere than its last move took it was
+     * skipped from there on: those moves fail, and its counters go back from
+     * the watchlist it was expected in to the one it stayed in.
+     */
+    private void readBackMovedItems(Map<Integer, WatchlistItem> moves, Map<Long, Long> watchlistOfItem,
+                                    Map<Long, WatchlistStatus> statusOfItem, Map<Long, Integer> ratingOfItem,
+                                    WatchlistBatchResultDTO[] results, Map<Long, WatchlistCounterDelta> corrections) {
+        if (moves.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> watchlistOfMovedItem = new HashMap<>();
+        for (WatchlistItemKeyView item : watchlistItemRepository.findKeysByIds(movedItemIds(moves))) {
+            watchlistOfMovedItem.put(item.getId(), item.getWatchlistId());
+        }
+        // Walk the moves backwards: an item's moves fail until the one that brought it where it is
+        Set<Long> settled = new HashSet<>();
+        Set<Long> corrected = new HashSet<>();
+        List<Integer> indexes = new ArrayList<>(moves.keySet());
+        for (int k = indexes.size() - 1; k >= 0; k--) {
+            int index = indexes.get(k);
+            WatchlistItem move = moves.get(index);
+            Long itemId = move.getId();
+            Long expected = watchlistOfItem.get(itemId);
+            Long actual = watchlistOfMovedItem.get(itemId);
+            // A removed item is gone whatever its moves did
+            if (expected == null || actual == null || expected.equals(actual) || settled.contains(itemId)) {
+                continue;
+            }
+            if (move.getWatchlist().getId().equals(actual)) {
+                settled.add(itemId);
+                continue;
+            }
+            if (corrected.add(itemId)) {
+                // Its last move, met first: correct the counters once
+                delta(corrections, expected).remove(statusOfItem.get(itemId), ratingOfItem.get(itemId));
+                delta(corrections, actual).add(statusOfItem.get(itemId), ratingOfItem.get(itemId));
+            }
+            results[index] = failure(index, WatchlistBatchOperation.Type.MOVE, "Movie already in watchlist");
+        }
+    }
+
+    private static Set<Long> movedItemIds(Map<Integer, WatchlistItem> moves) {
+        Set<Long> itemIds = new HashSet<>();
+        for (WatchlistItem item : moves.values()) {
+            itemIds.add(item.getId());
+        }
+        return itemIds;
+    }
+
+    /**
+     * The batched insert reports no per-row outcome: find the IDs of the new items with one query
+     *
+     * The query reads the snapshot of the transaction, which holds the rows
+     * it inserted but not a duplicate committed meanwhile by another one: an
+     * add whose row is not found was skipped as a duplicate. Neither is an
+     * item whose move to the same watchlist was skipped.
+     */
+    private void readBackAddedIds(Map<Integer, WatchlistItem> adds, Set<Long> movedItemIds,
+                                  WatchlistBatchResultDTO[] results) {
+        if (adds.isEmpty()) {
+            return;
+        }
+        Set<Long> watchlistIds = new HashSet<>();
+        Set<Long> movieIds = new HashSet<>();
+        for (WatchlistItem item : adds.values()) {
+            watchlistIds.add(item.getWatchlist().getId());
+            movieIds.add(item.getMovieId());
+        }
+        Map<Long, Map<Long, Long>> idByWatchlistAndMovie = new HashMap<>();
+        for (WatchlistItemKeyView item : watchlistItemRepository.findKeysByWatchlistIdsAndMovieIds(watchlistIds, movieIds)) {
+            if (movedItemIds.contains(item.getId())) {
+                continue;
+            }
+            idByWatchlistAndMovie.computeIfAbsent(item.getWatchlistId(), id -> new HashMap<>())
+                    .put(item.getMovieId(), item.getId());
+        }
+        adds.forEach((index, item) -> {
+            Long id = idByWatchlistAndMovie.getOrDefault(item.getWatchlist().getId(), Map.of()).get(item.getMovieId());
+            results[index] = id != null
+                    ? success(index, WatchlistBatchOperation.Type.ADD, id)
+                    : failure(index, WatchlistBatchOperation.Type.ADD, "Movie already in watchlist");
+        });
+    }
+
+    /**
+     * Take the adds skipped by the insert back out of the counters, which counted every add
+     */
+    private void uncountFailedAdds(Map<Integer, WatchlistItem> adds, WatchlistBatchResultDTO[] results,
+                                   Map<Long, WatchlistCounterDelta> corrections) {
+        adds.forEach((index, item) -> {
+            if (!results[index].isSuccess()) {
+                delta(corrections, item.getWatchlist().getId()).remove(item.getStatus(), null);
+            }
+        });
+    }
+
+    private static WatchlistBatchResultDTO success(int index, WatchlistBatchOperation.Type type, Long itemId) {
+        return new WatchlistBatchResultDTO(index, type.name(), true, itemId, null);
+    }
+
+    private static WatchlistBatchResultDTO failure(int index, WatchlistBatchOperation.Type type, String message) {
+        return new WatchlistBatchResultDTO(index, type != null ? type.name() : null, false, null, message);
+    }
+}
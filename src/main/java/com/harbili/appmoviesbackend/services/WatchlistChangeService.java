@@ -0,0 +1,269 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.WatchlistChangesDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistHeaderDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistSyncItemDTO;
+import com.harbili.appmoviesbackend.entities.Watchlist;
+import com.harbili.appmoviesbackend.entities.WatchlistChange;
+import com.harbili.appmoviesbackend.entities.WatchlistChangeType;
+import com.harbili.appmoviesbackend.events.WatchlistsChangedEvent;
+import com.harbili.appmoviesbackend.repositories.WatchlistChangeRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistTreeItemView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service keeping the change log of the watchlists, for delta synchronization
+ *
+ * Every transaction that writes the watchlists or items of a user bumps the
+ * user's change version once and logs which watchlists and items it touched,
+ * under that version. A client that has version N asks for the changes since
+ * N and gets the current values of what changed after it, plus tombstones
+ * for what was deleted, instead of the whole tree.
+ *
+ * The log only keeps IDs: the values are read when the changes are asked
+ * for, so an entity changed many times is sent once. It is pruned after
+ * watchlists.changes.retention; a client whose version is older than the
+ * log, or too far behind, gets the whole state again, flagged as a reset.
+ */
+@Service
+public class WatchlistChangeService {
+
+    private static final int PRUNE_CHUNK_SIZE = 10_000;
+
+    private final WatchlistChangeRepository watchlistChangeRepository;
+    private final WatchlistRepository watchlistRepository;
+    private final WatchlistItemRepository watchlistItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${watchlists.changes.max-entries:10000}")
+    private int maxEntries = 10_000;
+
+    @Value("${watchlists.changes.retention:P30D}")
+    private Duration retention = Duration.ofDays(30);
+
+    public WatchlistChangeService(WatchlistChangeRepository watchlistChangeRepository,
+                                  WatchlistRepository watchlistRepository,
+                                  WatchlistItemRepository watchlistItemRepository,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.watchlistChangeRepository = watchlistChangeRepository;
+        this.watchlistRepository = watchlistRepository;
+        this.watchlistItemRepository = watchlistItemRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Log the creation or update of a watchlist
+     * @param userId the owner of the watchlist, ignored if null
+     * @param watchlistId the watchlist ID
+     */
+    public void watchlistUpserted(Long userId, Long watchlistId) {
+        record(userId, List.of(WatchlistChangeType.WATCHLIST_UPSERTED), List.of(watchlistId));
+    }
+
+    /**
+     * Log the deletion of a watchlist, which also deletes its items
+     * @param userId the owner of the watchlist, ignored if null
+     * @param watchlistId the watchlist ID
+     */
+    public void watchlistDeleted(Long userId, Long watchlistId) {
+        record(userId, List.of(WatchlistChangeType.WATCHLIST_DELETED), List.of(watchlistId));
+    }
+
+    /**
+     * Log the addition, update or move of an item
+     * @param userId the owner of the item's watchlist, ignored if null
+     * @param itemId the item ID
+     */
+    public void itemUpserted(Long userId, Long itemId) {
+        record(userId, List.of(WatchlistChangeType.ITEM_UPSERTED), List.of(itemId));
+    }
+
+    /**
+     * Log the removal of an item
+     * @param userId the owner of the item's watchlist, ignored if null
+     * @param itemId the item ID
+     */
+    public void itemDeleted(Long userId, Long itemId) {
+        record(userId, List.of(WatchlistChangeType.ITEM_DELETED), List.of(itemId));
+    }
+
+    /**
+     * Log changes to the watchlists of a user under one new version
+     *
+     * Call it inside the transaction making the changes, after its other
+     * writes: it locks the version row of the user until the commit, which
+     * then serializes the writes of that user only. Subscribers to the
+     * changes are notified once the transaction has committed.
+     *
+     * @param userId the owner of the changed watchlists, ignored if null
+     * @param types the type of each change
+     * @param entityIds the ID of the changed watchlist or item, one per change
+     */
+    public void record(Long userId, List<WatchlistChangeType> types, List<Long> entityIds) {
+        if (userId == null || types.isEmpty()) {
+            return;
+        }
+        watchlistChangeRepository.record(userId, types, entityIds, Instant.now());
+        TransactionCallbacks.afterCommit(() -> eventPublisher.publishEvent(new WatchlistsChangedEvent(userId)));
+    }
+
+    /**
+     * Get the current change version of a user
+     * @param userId the user ID
+     * @return the version, 0 if the user's watchlists never changed
+     */
+    public long getVersion(Long userId) {
+        return watchlistChangeRepository.findVersionByUserId(userId).orElse(0L);
+    }
+
+    /**
+     * Get the changes to the watchlists of a user since a version
+     *
+     * Everything is read in one transaction, so the values match the
+     * returned version.
+     *
+     * @param userId the user ID
+     * @param since the version the client has, or null for the whole state
+     * @return the changes, or the whole state flagged as a reset if the changes since that version
+     *         are no longer all in the log, or are more than watchlists.changes.max-entries
+     */
+    @Transactional(readOnly = true)
+    public WatchlistChangesDTO getChanges(Long userId, Long since) {
+        long version = getVersion(userId);
+        if (since == null || since > version) {
+            // No version, or one this log never gave out
+            return getState(userId, version);
+        }
+        if (since == version) {
+            return new WatchlistChangesDTO(version, false, null, null, null, null);
+        }
+        Long oldest = watchlistChangeRepository.findOldestVersionByUserId(userId);
+        if (oldest == null || oldest > since + 1) {
+            // Versions after since were pruned
+            return getState(userId, version);
+        }
+        List<WatchlistChange> changes = watchlistChangeRepository.findByUserIdBetweenVersions(
+                userId, since, version, Limit.of(maxEntries + 1));
+        if (changes.size() > maxEntries) {
+            return getState(userId, version);
+        }
+
+        // Only the last change of each watchlist and item counts
+        Map<Long, WatchlistChangeType> watchlistChanges = new LinkedHashMap<>();
+        Map<Long, WatchlistChangeType> itemChanges = new LinkedHashMap<>();
+        for (WatchlistChange change : changes) {
+            switch (change.getType()) {
+                case WATCHLIST_UPSERTED, WATCHLIST_DELETED -> watchlistChanges.put(change.getEntityId(), change.getType());
+                case ITEM_UPSERTED, ITEM_DELETED -> itemChanges.put(change.getEntityId(), change.getType());
+            }
+        }
+
+        List<Long> deletedWatchlistIds = new ArrayList<>();
+        Set<Long> upsertedWatchlistIds = new HashSet<>();
+        watchlistChanges.forEach((id, type) -> {
+            if (type == WatchlistChangeType.WATCHLIST_DELETED) {
+                deletedWatchlistIds.add(id);
+            } else {
+                upsertedWatchlistIds.add(id);
+            }
+        });
+        List<WatchlistHeaderDTO> watchlists = new ArrayList<>();
+        if (!upsertedWatchlistIds.isEmpty()) {
+            for (Watchlist watchlist : watchlistRepository.findAllById(upsertedWatchlistIds)) {
+                watchlists.add(convertToHeaderDto(watchlist));
+                upsertedWatchlistIds.remove(watchlist.getId());
+            }
+            // Deleted without going through the log, e.g. with their user
+            deletedWatchlistIds.addAll(upsertedWatchlistIds);
+        }
+
+        List<Long> deletedItemIds = new ArrayList<>();
+        Set<Long> upsertedItemIds = new HashSet<>();
+        itemChanges.forEach((id, type) -> {
+            if (type == WatchlistChangeType.ITEM_DELETED) {
+                deletedItemIds.add(id);
+            } else {
+                upsertedItemIds.add(id);
+            }
+        });
+        List<WatchlistSyncItemDTO> items = new ArrayList<>();
+        if (!upsertedItemIds.isEmpty()) {
+            for (WatchlistTreeItemView item : watchlistItemRepository.findTreeViewsByIds(upsertedItemIds)) {
+                items.add(convertToSyncItemDto(item));
+                upsertedItemIds.remove(item.getId());
+            }
+            // Deleted since, e.g. with their watchlist
+            deletedItemIds.addAll(upsertedItemIds);
+        }
+        return new WatchlistChangesDTO(version, false, watchlists, items, deletedWatchlistIds, deletedItemIds);
+    }
+
+    /**
+     * Delete the log entries older than watchlists.changes.retention, in chunks
+     */
+    @Scheduled(initialDelayString = "${watchlists.changes.prune-interval:PT1H}",
+            fixedDelayString = "${watchlists.changes.prune-interval:PT1H}")
+    public void pruneChanges() {
+        try {
+            Instant before = Instant.now().minus(retention);
+            int deleted;
+            int total = 0;
+            do {
+                deleted = watchlistChangeRepository.deleteOlderThan(before, PRUNE_CHUNK_SIZE);
+                total += deleted;
+            } while (deleted == PRUNE_CHUNK_SIZE);
+            if (total > 0) {
+                System.out.println("Watchlist change log pruned: " + total + " entries");
+            }
+        } catch (Exception e) {
+            // Old entries are only kept longer: the next run deletes them
+            System.err.println("Error pruning the watchlist change log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The whole state of the watchlists of a user, in two statements
+     */
+    private WatchlistChangesDTO getState(Long userId, long version) {
+        List<WatchlistHeaderDTO> watchlists = new ArrayList<>();
+        for (Watchlist watchlist : watchlistRepository.findByUserId(userId)) {
+            watchlists.add(convertToHeaderDto(watchlist));
+        }
+        List<WatchlistSyncItemDTO> items = new ArrayList<>();
+        for (WatchlistTreeItemView item : watchlistItemRepository.findTreeViewsByUserId(userId)) {
+            items.add(convertToSyncItemDto(item));
+        }
+        return new WatchlistChangesDTO(version, true, watchlists, items, null, null);
+    }
+
+    private static WatchlistHeaderDTO convertToHeaderDto(Watchlist watchlist) {
+        return new WatchlistHeaderDTO(watchlist.getId(), watchlist.getName(), watchlist.getDescription());
+    }
+
+    private static WatchlistSyncItemDTO convertToSyncItemDto(WatchlistTreeItemView item) {
+        return new WatchlistSyncItemDTO(
+                item.getId(),
+                item.getWatchlistId(),
+                item.getMovieId(),
+                item.getMovieTitle() != null ? item.getMovieTitle() : "Unknown",
+                item.getStatus() != null ? item.getStatus().toString() : null,
+                item.getRating(),
+                item.getNotes());
+    }
+}
@@ -0,0 +1,205 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.WatchlistChangesDTO;
+import com.harbili.appmoviesbackend.events.WatchlistsChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service pushing the changes to the watchlists of a user over server-sent events
+ *
+ * Each subscriber remembers the last version it was sent. Once a transaction
+ * that changed the watchlists of a user has committed, each of the user's
+ * subscribers is flagged, and a task reads the changes since its version and
+ * sends them, as an event named "changes" whose ID is the new version: a
+ * client reconnecting with Last-Event-ID resumes where it stopped.
+ *
+ * The events are sent from a fixed pool of watchlists.changes.stream.sender-threads
+ * threads, so a slow client holds no request thread, but for a first event
+ * sent before the stream is open, which the request writes. A subscriber has at
+ * most one task at a time, which sends its events in order; changes flagged
+ * while it sends are coalesced into the next event, so nothing piles up for a
+ * slow client. A client that stops reading blocks its send, and the thread
+ * sending it, until the write timeout of the connector fails the write
+ * (server.tomcat.connection-timeout); the subscriber is then dropped. Nothing
+ * here can cut a blocked write shorter: completing the emitter from another
+ * thread would wait for the write too.
+ *
+ * Only the changes made through this instance are pushed right away, like
+ * the ETags of ContentVersionService; the others reach the client with the
+ * next change made here, or through the changes endpoint.
+ */
+@Service
+public class WatchlistChangeStreamService {
+
+    private static final String EVENT_NAME = "changes";
+
+    private final WatchlistChangeService watchlistChangeService;
+    // User ID -> open streams
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    @Value("${watchlists.changes.stream.timeout:PT30M}")
+    private Duration timeout = Duration.ofMinutes(30);
+
+    public WatchlistChangeStreamService(WatchlistChangeService watchlistChangeService,
+                                        @Value("${watchlists.changes.stream.sender-threads:4}") int senderThreads) {
+        this.watchlistChangeService = watchlistChangeService;
+        this.sender = Executors.newFixedThreadPool(Math.max(1, senderThreads),
+                new CustomizableThreadFactory("watchlist-changes-"));
+    }
+
+    /**
+     * Open a stream of the changes to the watchlists of a user
+     *
+     * The first event carries the changes since the given version, or the
+     * whole state if there is none; it is only sent if there is something new.
+     *
+     * @param userId the user ID
+     * @param since the version the client has, or null
+     * @return the stream, closed after watchlists.changes.stream.timeout
+     */
+    public SseEmitter subscribe(Long userId, Long since) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userId, emitter, since);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.compute(userId, (id, streams) -> {
+            List<Subscriber> updated = streams != null ? streams : new CopyOnWriteArrayList<>();
+            updated.add(subscriber);
+            return updated;
+        });
+        subscriber.changed.set(true);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @EventListener
+    public void onWatchlistsChanged(WatchlistsChangedEvent event) {
+        for (Subscriber subscriber : subscribers.getOrDefault(event.getUserId(), List.of())) {
+            subscriber.changed.set(true);
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Send a comment on every open stream, so that proxies keep them open and closed ones are found
+     */
+    @Scheduled(fixedDelayString = "${watchlists.changes.stream.heartbeat-interval:PT30S}")
+    public void sendHeartbeats() {
+        for (List<Subscriber> streams : subscribers.values()) {
+            for (Subscriber subscriber : streams) {
+                subscriber.heartbeat.set(true);
+                schedule(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+        for (List<Subscriber> streams : subscribers.values()) {
+            for (Subscriber subscriber : streams) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Start a task sending what is flagged for a subscriber, unless one is already running for it
+     */
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            if (subscriber.changed.getAndSet(false)) {
+                sendChanges(subscriber);
+            } else if (subscriber.heartbeat.getAndSet(false)) {
+                sendHeartbeat(subscriber);
+            } else {
+                subscriber.scheduled.set(false);
+                // A flag set after the checks above, whose schedule found this task still running
+                if ((!subscriber.changed.get() && !subscriber.heartbeat.get())
+                        || !subscriber.scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Send a subscriber what changed since its version, if anything did
+     */
+    private void sendChanges(Subscriber subscriber) {
+        try {
+            WatchlistChangesDTO changes = watchlistChangeService.getChanges(subscriber.userId, subscriber.version);
+            if (!changes.isReset() && subscriber.version != null && changes.getVersion() == subscriber.version) {
+                return;
+            }
+            subscriber.emitter.send(SseEmitter.event()
+                    .id(Long.toString(changes.getVersion()))
+                    .name(EVENT_NAME)
+                    .data(changes));
+            subscriber.version = changes.getVersion();
+        } catch (IOException | IllegalStateException e) {
+            // The client went away
+            unsubscribe(subscriber);
+        } catch (Exception e) {
+            // The stream stays open: the next change sends everything since the same version
+            System.err.println("Error sending watchlist changes to user " + subscriber.userId + ": " + e.getMessage());
+        }
+    }
+
+    private void sendHeartbeat(Subscriber subscriber) {
+        try {
+            subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, streams) -> {
+            streams.remove(subscriber);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private static final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        // Last version sent, null until the first event; only used by the task of the subscriber
+        private Long version;
+        // Set when there may be changes to send, or a heartbeat is due; cleared by the task sending them
+        private final AtomicBoolean changed = new AtomicBoolean();
+        private final AtomicBoolean heartbeat = new AtomicBoolean();
+        // Whether a task is running for the subscriber
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscriber(Long userId, SseEmitter emitter, Long version) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.version = version;
+        }
+    }
+}
@@ -1,75 +1,150 @@
 package com.harbili.appmoviesbackend.services;
 
+import com.harbili.appmoviesbackend.cache.TinyLfuCache;
 import com.harbili.appmoviesbackend.dto.MovieDTO;
 import com.harbili.appmoviesbackend.dto.WatchlistItemDTO;
-import com.harbili.appmoviesbackend.entities.Watchlist;
+import com.harbili.appmoviesbackend.dto.WatchlistItemPageDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
 import com.harbili.appmoviesbackend.entities.WatchlistItem;
 import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.WatchlistCounterDelta;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemPageView;
 import com.harbili.appmoviesbackend.repositories.WatchlistItemRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemView;
 import com.harbili.appmoviesbackend.repositories.WatchlistRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistTreeItemView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for watchlist item-related operations
+ *
+ * Each write of an item updates the counters of its watchlist in the same
+ * transaction. To keep concurrent writes from deadlocking, the item row is
+ * locked before the watchlist row, except when adding, where the insert of
+ * the new item locks the watchlist row first. The change version of the
+ * owner, bumped for the delta synchronization, is always locked last.
  */
 @Service
 public class WatchlistItemService {
     private final WatchlistItemRepository watchlistItemRepository;
     private final WatchlistRepository watchlistRepository;
     private final MovieService movieService;
+    private final ContentVersionService contentVersionService;
+    private final WatchlistChangeService watchlistChangeService;
+    private final TransactionTemplate transaction;
+    // Watchlist ID -> user ID
+    private final TinyLfuCache<Long, Long> watchlistOwners;
+
+    @Value("${watchlists.items.default-page-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${watchlists.items.max-page-size:200}")
+    private int maxPageSize = 200;
+
+    @Value("${watchlists.items.refresh-movie-values-on-startup:true}")
+    private boolean refreshMovieValuesOnStartup = true;
+
+    // Sorts accepted by the paginated listing of a watchlist
+    public static final String SORT_ADDED = "added";
+    public static final String SORT_RATING = "rating";
+    public static final String SORT_TITLE = "title";
+    public static final String SORT_RELEASE_DATE = "releaseDate";
+
+    // Largest date a MySQL DATE column accepts
+    private static final LocalDate LAST_DATE = LocalDate.of(9999, 12, 31);
 
     public WatchlistItemService(WatchlistItemRepository watchlistItemRepository,
                                WatchlistRepository watchlistRepository,
-                               MovieService movieService) {
+                               MovieService movieService,
+                               ContentVersionService contentVersionService,
+                               WatchlistChangeService watchlistChangeService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${watchlists.owners.cache.maximum-size:10000}") long ownerCacheSize) {
         this.watchlistItemRepository = watchlistItemRepository;
         this.watchlistRepository = watchlistRepository;
         this.movieService = movieService;
+        this.contentVersionService = contentVersionService;
+        this.watchlistChangeService = watchlistChangeService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.watchlistOwners = new TinyLfuCache<>(ownerCacheSize);
     }
 
     /**
      * Add a movie to a watchlist
+     *
+     * The movie and the owner of the watchlist usually come from in-memory
+     * caches, so the add starts with a single conditional INSERT. Only if it
+     * inserted a row do the counter update of the watchlist, the version bump
+     * and the change log entry follow: four statements for an add, one for a
+     * movie already in the watchlist, also when two adds race.
+     *
+     * The movie is resolved before the transaction starts: a movie missing
+     * from the catalog is read from TMDB, which must not hold a connection
+     * nor the lock of the watchlist row meanwhile.
+     *
      * @param watchlistId the watchlist ID
      * @param movieId the movie ID
      * @param status the status of the movie in the watchlist
-     * @return the created watchlist item as DTO
+     * @return the created watchlist item as DTO, or null if the watchlist or the movie does not exist,
+     *         or if the movie is already in the watchlist
      */
     public WatchlistItemDTO addMovieToWatchlist(Long watchlistId, Long movieId, WatchlistStatus status) {
-        // Check if the watchlist exists
-        Watchlist watchlist = watchlistRepository.findById(watchlistId).orElse(null);
-        if (watchlist == null) {
+        if (watchlistId == null || movieId == null) {
             return null;
         }
-        
-        // Check if the movie exists
+
+        // Check if the movie exists, and get its title for the DTO
         MovieDTO movie = movieService.getMovieById(movieId);
         if (movie == null) {
             return null;
         }
-        
-        // Check if the movie is already in the watchlist
-        if (watchlistItemRepository.existsByWatchlistIdAndMovieId(watchlistId, movieId)) {
+
+        // Check if the watchlist exists, and get its owner for the ETags
+        Long userId = getWatchlistOwnerId(watchlistId);
+        if (userId == null) {
             return null;
         }
-        
-        // Create and save the watchlist item
-        WatchlistItem watchlistItem = new WatchlistItem();
-        watchlistItem.setWatchlist(watchlist);
-        watchlistItem.setMovieId(movieId);
-        watchlistItem.setStatus(status);
-        
-        WatchlistItem savedItem = watchlistItemRepository.save(watchlistItem);
-        
-        // Convert to DTO
+
+        Long itemId = transaction.execute(tx -> {
+            // Insert the item, unless it is already there; the statement checks again that both rows exist,
+            // and locks the watchlist row, so two adds to the same watchlist wait for each other
+            Long insertedId = watchlistItemRepository.insertIfAbsent(watchlistId, movieId, status);
+            if (insertedId == null) {
+                return null;
+            }
+            watchlistRepository.addToCounters(watchlistId, new WatchlistCounterDelta().add(status, null));
+            contentVersionService.userChanged(userId);
+            watchlistChangeService.itemUpserted(userId, insertedId);
+            return insertedId;
+        });
+        if (itemId == null) {
+            return null;
+        }
+
+        // Convert to DTO: a new item has no rating nor notes yet
         return new WatchlistItemDTO(
-                savedItem.getId(),
-                savedItem.getMovieId(),
+                itemId,
+                movieId,
                 movie.getTitle(),
-                savedItem.getStatus().toString(),
-                savedItem.getRating(),
-                savedItem.getNotes()
+                status != null ? status.toString() : null,
+                null,
+                null
         );
     }
 
@@ -81,12 +156,14 @@ public class WatchlistItemService {
      * @param notes the new notes
      * @return the updated watchlist item as DTO
      */
+    @Transactional
     public WatchlistItemDTO updateWatchlistItem(Long itemId, WatchlistStatus status, Integer rating, String notes) {
-        // Find the existing item
-        WatchlistItem item = watchlistItemRepository.findById(itemId).orElse(null);
+        // Find the existing item, locked until the counters of its watchlist are updated
+        WatchlistItem item = watchlistItemRepository.findByIdForUpdate(itemId).orElse(null);
         if (item == null) {
             return null;
         }
+        WatchlistCounterDelta delta = new WatchlistCounterDelta().remove(item.getStatus(), item.getRating());
         
         // Update fields
         if (status != null) {
@@ -103,6 +180,15 @@ public class WatchlistItemService {
         
         // Save the updated item
         WatchlistItem savedItem = watchlistItemRepository.save(item);
+        // The watchlist is a lazy proxy: reading its ID does not load it
+        Long watchlistId = item.getWatchlist().getId();
+        delta.add(savedItem.getStatus(), savedItem.getRating());
+        if (!delta.isEmpty()) {
+            watchlistRepository.addToCounters(watchlistId, delta);
+        }
+        Long userId = getWatchlistOwnerId(watchlistId);
+        contentVersionService.userChanged(userId);
+        watchlistChangeService.itemUpserted(userId, itemId);
         
         // Get movie details
         MovieDTO movie = movieService.getMovieById(savedItem.getMovieId());
@@ -124,11 +210,18 @@ public class WatchlistItemService {
      * @param itemId the watchlist item ID
      * @return true if the item was removed, false if the item was not found
      */
+    @Transactional
     public boolean removeMovieFromWatchlist(Long itemId) {
-        if (!watchlistItemRepository.existsById(itemId)) {
+        WatchlistItem item = watchlistItemRepository.findByIdForUpdate(itemId).orElse(null);
+        if (item == null) {
             return false;
         }
-        watchlistItemRepository.deleteById(itemId);
+        Long watchlistId = item.getWatchlist().getId();
+        watchlistItemRepository.delete(item);
+        watchlistRepository.addToCounters(watchlistId, new WatchlistCounterDelta().remove(item.getStatus(), item.getRating()));
+        Long userId = getWatchlistOwnerId(watchlistId);
+        contentVersionService.userChanged(userId);
+        watchlistChangeService.itemDeleted(userId, itemId);
         return true;
     }
 
@@ -138,26 +231,52 @@ public class WatchlistItemService {
      * @return list of watchlist item DTOs
      */
     public List<WatchlistItemDTO> getWatchlistItems(Long watchlistId) {
-        List<WatchlistItem> items = watchlistItemRepository.findByWatchlistId(watchlistId);
-        List<WatchlistItemDTO> itemDTOs = new ArrayList<>();
-        
-        for (WatchlistItem item : items) {
-            MovieDTO movie = movieService.getMovieById(item.getMovieId());
-            String movieTitle = movie != null ? movie.getTitle() : "Unknown";
-            
-            WatchlistItemDTO itemDTO = new WatchlistItemDTO(
-                    item.getId(),
-                    item.getMovieId(),
-                    movieTitle,
-                    item.getStatus().toString(),
-                    item.getRating(),
-                    item.getNotes()
-            );
-            
-            itemDTOs.add(itemDTO);
+        // One statement whatever the number of items: the titles come from a join, not from one lookup per movie
+        return toDtos(watchlistItemRepository.findViewsByWatchlistId(watchlistId));
+    }
+
+    /**
+     * Get a page of the items of a watchlist, with keyset pagination
+     *
+     * Each page resumes after the last item of the previous one, read from the
+     * index matching the sort, so a page costs the same at any depth and
+     * nothing is sorted in memory. The most recently added items come first,
+     * as do the best ratings and the newest releases; titles are in
+     * alphabetical order. Items without a value for the sort come last, by ID.
+     *
+     * @param watchlistId the watchlist ID
+     * @param sort one of added, rating, title or releaseDate; added if null
+     * @param size the page size, clamped to watchlists.items.max-page-size
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @return the page, with the cursor of the next one if there is one
+     * @throws IllegalArgumentException if the sort or the cursor is invalid
+     */
+    public WatchlistItemPageDTO getWatchlistItemPage(Long watchlistId, String sort, Integer size, String cursor) {
+        if (sort == null || sort.isBlank()) sort = SORT_ADDED;
+        if (!sort.equals(SORT_ADDED) && !sort.equals(SORT_RATING) && !sort.equals(SORT_TITLE)
+                && !sort.equals(SORT_RELEASE_DATE)) {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
         }
-        
-        return itemDTOs;
+        int pageSize = Math.max(1, Math.min(size != null ? size : defaultPageSize, maxPageSize));
+        KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor, sort) : null;
+
+        // One more item than asked for, to know whether there is a next page
+        List<WatchlistItemPageView> items = new ArrayList<>(pageSize + 1);
+        if (after == null || !after.isInNullTail()) {
+            items.addAll(findValuePage(watchlistId, sort, after, pageSize + 1));
+        }
+        if (items.size() <= pageSize && !sort.equals(SORT_ADDED)) {
+            long afterId = after != null && after.isInNullTail() ? after.getId() : Long.MIN_VALUE;
+            items.addAll(findNullTailPage(watchlistId, sort, afterId, pageSize + 1 - items.size()));
+        }
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            WatchlistItemPageView last = items.get(pageSize - 1);
+            nextCursor = new KeysetCursor(sort, sortValue(sort, last), last.getId()).encode();
+        }
+        return new WatchlistItemPageDTO(toDtos(items), sort, pageSize, nextCursor);
     }
 
     /**
@@ -167,26 +286,73 @@ public class WatchlistItemService {
      * @return list of watchlist item DTOs
      */
     public List<WatchlistItemDTO> getWatchlistItemsByStatus(Long watchlistId, WatchlistStatus status) {
-        List<WatchlistItem> items = watchlistItemRepository.findByWatchlistIdAndStatus(watchlistId, status);
-        List<WatchlistItemDTO> itemDTOs = new ArrayList<>();
-        
-        for (WatchlistItem item : items) {
-            MovieDTO movie = movieService.getMovieById(item.getMovieId());
-            String movieTitle = movie != null ? movie.getTitle() : "Unknown";
-            
-            WatchlistItemDTO itemDTO = new WatchlistItemDTO(
-                    item.getId(),
-                    item.getMovieId(),
-                    movieTitle,
-                    item.getStatus().toString(),
-                    item.getRating(),
-                    item.getNotes()
-            );
-            
-            itemDTOs.add(itemDTO);
+        return toDtos(watchlistItemRepository.findViewsByWatchlistIdAndStatus(watchlistId, status));
+    }
+
+    /**
+     * Get the owner of a watchlist
+     *
+     * A watchlist never changes owner, so the answer is cached; a deleted
+     * watchlist may still be found here until it is forgotten.
+     *
+     * @param watchlistId the watchlist ID
+     * @return the user ID, or null if the watchlist does not exist
+     */
+    public Long getWatchlistOwnerId(Long watchlistId) {
+        return watchlistOwners.get(watchlistId, id -> watchlistRepository.findUserIdById(id).orElse(null));
+    }
+
+    /**
+     * Drop a deleted watchlist from the owner cache
+     * @param watchlistId the watchlist ID
+     */
+    public void forgetWatchlist(Long watchlistId) {
+        watchlistOwners.invalidate(watchlistId);
+    }
+
+    /**
+     * Get the items of every watchlist of a user, with a single query
+     * @param userId the user ID
+     * @return watchlist ID -> list of watchlist item DTOs; watchlists without items are absent
+     */
+    public Map<Long, List<WatchlistItemDTO>> getWatchlistItemsByUserId(Long userId) {
+        Map<Long, List<WatchlistItemDTO>> itemsByWatchlist = new HashMap<>();
+        for (WatchlistTreeItemView item : watchlistItemRepository.findTreeViewsByUserId(userId)) {
+            itemsByWatchlist.computeIfAbsent(item.getWatchlistId(), id -> new ArrayList<>()).add(toDto(item));
         }
-        
-        return itemDTOs;
+        return itemsByWatchlist;
+    }
+
+    /**
+     * Copy the title and release date of every movie into the items holding it, once the application has started
+     *
+     * Items saved any other way than through this service, like the sample
+     * data of the DataInitializer, get their copies here.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshMovieValues() {
+        if (!refreshMovieValuesOnStartup) {
+            return;
+        }
+        long start = System.nanoTime();
+        int items = watchlistItemRepository.refreshAllMovieValues();
+        System.out.println("Watchlist item movie values refreshed: " + items + " items in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    // Keep the copies used by the sorted listing in step with the catalog
+    @EventListener
+    public void onMoviesUpserted(MoviesUpsertedEvent event) {
+        List<Long> movieIds = new ArrayList<>(event.getMovies().size());
+        for (Movie movie : event.getMovies()) {
+            movieIds.add(movie.getId());
+        }
+        watchlistItemRepository.refreshMovieValues(movieIds);
+    }
+
+    @EventListener
+    public void onMovieDeleted(MovieDeletedEvent event) {
+        watchlistItemRepository.refreshMovieValues(List.of(event.getMovieId()));
     }
 
     /**
@@ -212,4 +378,59 @@ public class WatchlistItemService {
                 item.getNotes()
         );
     }
-}
\ No newline at end of file
+
+    private List<WatchlistItemPageView> findValuePage(Long watchlistId, String sort, KeysetCursor after, int limit) {
+        try {
+            return switch (sort) {
+                case SORT_RATING -> watchlistItemRepository.findPageByRating(watchlistId,
+                        after != null ? Integer.valueOf(after.getValue()) : Integer.MAX_VALUE,
+                        after != null ? after.getId() : Long.MAX_VALUE, Limit.of(limit));
+                case SORT_TITLE -> watchlistItemRepository.findPageByTitle(watchlistId,
+                        after != null ? after.getValue() : "", after != null ? after.getId() : Long.MIN_VALUE, Limit.of(limit));
+                case SORT_RELEASE_DATE -> watchlistItemRepository.findPageByReleaseDate(watchlistId,
+                        after != null ? LocalDate.parse(after.getValue()) : LAST_DATE,
+                        after != null ? after.getId() : Long.MAX_VALUE, Limit.of(limit));
+                default -> watchlistItemRepository.findPageByAdded(watchlistId,
+                        after != null ? after.getId() : Long.MAX_VALUE, Limit.of(limit));
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private List<WatchlistItemPageView> findNullTailPage(Long watchlistId, String sort, long afterId, int limit) {
+        return switch (sort) {
+            case SORT_RATING -> watchlistItemRepository.findPageWithoutRating(watchlistId, afterId, Limit.of(limit));
+            case SORT_TITLE -> watchlistItemRepository.findPageWithoutTitle(watchlistId, afterId, Limit.of(limit));
+            default -> watchlistItemRepository.findPageWithoutReleaseDate(watchlistId, afterId, Limit.of(limit));
+        };
+    }
+
+    private static String sortValue(String sort, WatchlistItemPageView item) {
+        return switch (sort) {
+            case SORT_RATING -> item.getRating() != null ? item.getRating().toString() : null;
+            case SORT_TITLE -> item.getMovieTitle();
+            case SORT_RELEASE_DATE -> item.getMovieReleaseDate() != null ? item.getMovieReleaseDate().toString() : null;
+            default -> String.valueOf(item.getId());
+        };
+    }
+
+    private static List<WatchlistItemDTO> toDtos(List<? extends WatchlistItemView> items) {
+        List<WatchlistItemDTO> itemDTOs = new ArrayList<>(items.size());
+        for (WatchlistItemView item : items) {
+            itemDTOs.add(toDto(item));
+        }
+        return itemDTOs;
+    }
+
+    private static WatchlistItemDTO toDto(WatchlistItemView item) {
+        return new WatchlistItemDTO(
+                item.getId(),
+                item.getMovieId(),
+                item.getMovieTitle() != null ? item.getMovieTitle() : "Unknown",
+                item.getStatus().toString(),
+                item.getRating(),
+                item.getNotes()
+        );
+    }
+}
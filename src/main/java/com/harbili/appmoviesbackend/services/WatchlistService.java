@@ -2,12 +2,21 @@ package com.harbili.appmoviesbackend.services;
 
 import com.harbili.appmoviesbackend.dto.WatchlistDTO;
 import com.harbili.appmoviesbackend.dto.WatchlistItemDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistItemPageDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistSummaryDTO;
 import com.harbili.appmoviesbackend.entities.Watchlist;
 import com.harbili.appmoviesbackend.entities.WatchlistStatus;
 import com.harbili.appmoviesbackend.repositories.WatchlistRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistSummaryView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -25,11 +34,20 @@ import java.util.stream.Collectors;
 public class WatchlistService {
     private final WatchlistRepository watchlistRepository;
     private final WatchlistItemService watchlistItemService;
+    private final ContentVersionService contentVersionService;
+    private final WatchlistChangeService watchlistChangeService;
+
+    @Value("${watchlists.counters.recompute-on-startup:true}")
+    private boolean recomputeCountersOnStartup = true;
 
     public WatchlistService(WatchlistRepository watchlistRepository, 
-                           WatchlistItemService watchlistItemService) {
+                           WatchlistItemService watchlistItemService,
+                           ContentVersionService contentVersionService,
+                           WatchlistChangeService watchlistChangeService) {
         this.watchlistRepository = watchlistRepository;
         this.watchlistItemService = watchlistItemService;
+        this.contentVersionService = contentVersionService;
+        this.watchlistChangeService = watchlistChangeService;
     }
 
     /**
@@ -42,16 +60,87 @@ public class WatchlistService {
         // Step 1: Retrieve all watchlists for the user from the database
         List<Watchlist> watchlists = watchlistRepository.findByUserId(userId);
 
-        // Step 2: Convert each Watchlist entity to a WatchlistDTO
+        // Step 2: Retrieve the items of all these watchlists at once, grouped by watchlist
+        // Going through convertToDto would run one query per watchlist
+        Map<Long, List<WatchlistItemDTO>> itemsByWatchlist = watchlistItemService.getWatchlistItemsByUserId(userId);
+
+        // Step 3: Convert each Watchlist entity to a WatchlistDTO
         // The following code uses Java Streams to process the list:
         // 1. stream() - Converts the list to a stream for processing
-        // 2. map() - Transforms each Watchlist to a WatchlistDTO using the convertToDto method
+        // 2. map() - Transforms each Watchlist to a WatchlistDTO, with its items taken from the map
         // 3. collect() - Gathers the results back into a List
         return watchlists.stream()
-                .map(this::convertToDto)  // Same as: watchlist -> convertToDto(watchlist)
+                .map(watchlist -> new WatchlistDTO(
+                        watchlist.getId(),
+                        watchlist.getName(),
+                        watchlist.getDescription(),
+                        itemsByWatchlist.getOrDefault(watchlist.getId(), List.of())))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get the ETag of the watchlists of a user, without reading them
+     * @param userId the user ID
+     * @return the ETag, which changes whenever one of the user's watchlists or a movie changes
+     */
+    public String getWatchlistsETag(Long userId) {
+        return contentVersionService.userETag(userId);
+    }
+
+    /**
+     * Get the ETag of a watchlist and of its items, without reading them
+     * @param id the watchlist ID
+     * @return the ETag, or null if the watchlist does not exist
+     */
+    public String getWatchlistETag(Long id) {
+        // The owner is cached: a request answered with a 304 usually runs no query at all
+        Long userId = watchlistItemService.getWatchlistOwnerId(id);
+        return userId != null ? contentVersionService.userETag(userId) : null;
+    }
+
+    /**
+     * Get the item counts and average rating of a watchlist
+     *
+     * They come from counters kept on the watchlist row, so the cost does not
+     * depend on the number of items.
+     *
+     * @param id the watchlist ID
+     * @return the summary DTO if found, otherwise null
+     */
+    public WatchlistSummaryDTO getWatchlistSummary(Long id) {
+        return watchlistRepository.findSummaryById(id)
+                .map(WatchlistService::convertToSummaryDto)
+                .orElse(null);
+    }
+
+    /**
+     * Get the item counts and average rating of every watchlist of a user, with a single query
+     * @param userId the user ID
+     * @return list of summary DTOs
+     */
+    public List<WatchlistSummaryDTO> getWatchlistSummariesByUserId(Long userId) {
+        return watchlistRepository.findSummariesByUserId(userId).stream()
+                .map(WatchlistService::convertToSummaryDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Recompute the item counters of every watchlist once the application has started
+     *
+     * The counters are only maintained by the services: items written any
+     * other way, like the sample data of the DataInitializer, are counted here.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recomputeCounters() {
+        if (!recomputeCountersOnStartup) {
+            return;
+        }
+        long start = System.nanoTime();
+        int watchlists = watchlistRepository.recomputeCounters();
+        System.out.println("Watchlist counters recomputed: " + watchlists + " watchlists in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
     /**
      * Get a watchlist by ID
      * @param id the watchlist ID
@@ -74,6 +163,7 @@ public class WatchlistService {
      * @param userId the user ID
      * @return the created watchlist as DTO, or null if validation fails
      */
+    @Transactional
     public WatchlistDTO createWatchlist(Watchlist watchlist, Long userId) {
         // Step 1: Basic validation - ensure required data is present
         if (watchlist == null || watchlist.getName() == null || userId == null) {
@@ -97,6 +187,8 @@ public class WatchlistService {
 
         // Step 3: If all validations pass, save the watchlist to the database
         Watchlist savedWatchlist = watchlistRepository.save(watchlist);
+        contentVersionService.userChanged(userId);
+        watchlistChangeService.watchlistUpserted(userId, savedWatchlist.getId());
 
         // Step 4: Convert the saved entity to a DTO and return it
         return convertToDto(savedWatchlist);
@@ -114,6 +206,7 @@ public class WatchlistService {
      * @param updatedWatchlist the updated watchlist data
      * @return the updated watchlist as DTO, or null if validation fails
      */
+    @Transactional
     public WatchlistDTO updateWatchlist(Long id, Watchlist updatedWatchlist) {
         // Step 1: Find the existing watchlist in the database
         Watchlist existingWatchlist = watchlistRepository.findById(id).orElse(null);
@@ -155,7 +248,10 @@ public class WatchlistService {
         existingWatchlist.setDescription(updatedWatchlist.getDescription());
 
         // Step 5: Save the updated watchlist to the database
-        Watchlist savedWatchlist = watchlistRepository.save(existingWatchlist);
+        // Flushed now, so that the watchlist row is locked before the change version of the user, as in the item writes
+        Watchlist savedWatchlist = watchlistRepository.saveAndFlush(existingWatchlist);
+        contentVersionService.userChanged(existingWatchlist.getUser().getId());
+        watchlistChangeService.watchlistUpserted(existingWatchlist.getUser().getId(), id);
 
         // Step 6: Convert the saved entity to a DTO and return it
         return convertToDto(savedWatchlist);
@@ -173,9 +269,11 @@ public class WatchlistService {
      * @param id the watchlist ID to delete
      * @return true if the watchlist was successfully deleted, false if it wasn't found
      */
+    @Transactional
     public boolean deleteWatchlist(Long id) {
-        // Step 1: Check if the watchlist exists
-        if (!watchlistRepository.existsById(id)) {
+        // Step 1: Check if the watchlist exists, and find its owner at the same time
+        Long userId = watchlistRepository.findUserIdById(id).orElse(null);
+        if (userId == null) {
             // If it doesn't exist, return false to indicate nothing was deleted
             return false;
         }
@@ -183,6 +281,11 @@ public class WatchlistService {
         // Step 2: Delete the watchlist
         // This will also delete all associated watchlist items due to cascade settings
         watchlistRepository.deleteById(id);
+        // Flushed now, so that the deleted rows are locked before the change version of the user
+        watchlistRepository.flush();
+        watchlistItemService.forgetWatchlist(id);
+        contentVersionService.userChanged(userId);
+        watchlistChangeService.watchlistDeleted(userId, id);
 
         // Step 3: Return true to indicate successful deletion
         return true;
@@ -192,7 +295,8 @@ public class WatchlistService {
      * Add a movie to a watchlist
      * 
      * This method adds a movie to a watchlist with a specified status (e.g., "À_VOIR", "VU", "EN_COURS").
-     * It first verifies that the watchlist exists before delegating the actual addition to the WatchlistItemService.
+     * The checks that the watchlist and the movie exist are left to the WatchlistItemService, which
+     * folds them into the insert itself instead of running them as separate queries.
      * 
      * This demonstrates the principle of separation of concerns:
      * - WatchlistService handles operations on watchlists
@@ -201,16 +305,11 @@ public class WatchlistService {
      * @param watchlistId the watchlist ID
      * @param movieId the movie ID to add
      * @param status the initial status of the movie in the watchlist
-     * @return the created watchlist item as DTO, or null if the watchlist doesn't exist
+     * @return the created watchlist item as DTO, or null if the watchlist or the movie doesn't exist,
+     *         or if the movie is already in the watchlist
      */
     public WatchlistItemDTO addMovieToWatchlist(Long watchlistId, Long movieId, WatchlistStatus status) {
-        // Step 1: Check if the watchlist exists
-        if (!watchlistRepository.existsById(watchlistId)) {
-            // If the watchlist doesn't exist, return null to indicate failure
-            return null;
-        }
-
-        // Step 2: Delegate to the WatchlistItemService
+        // Delegate to the WatchlistItemService
         // This is an example of the delegation pattern - we're delegating the responsibility
         // to another service that specializes in handling watchlist items
         return watchlistItemService.addMovieToWatchlist(watchlistId, movieId, status);
@@ -249,6 +348,20 @@ public class WatchlistService {
         return watchlistItemService.getWatchlistItems(watchlistId);
     }
 
+    /**
+     * Get a page of the items in a watchlist
+     * @param watchlistId the watchlist ID
+     * @param sort added, rating, title or releaseDate
+     * @param size the page size
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @return the page of watchlist item DTOs
+     * @throws IllegalArgumentException if the sort or the cursor is invalid
+     */
+    public WatchlistItemPageDTO getWatchlistItemPage(Long watchlistId, String sort, Integer size, String cursor) {
+        // Delegate to the WatchlistItemService
+        return watchlistItemService.getWatchlistItemPage(watchlistId, sort, size, cursor);
+    }
+
     /**
      * Get all items with a specific status in a watchlist
      * @param watchlistId the watchlist ID
@@ -289,4 +402,18 @@ public class WatchlistService {
 
         // Note: We don't include the User object to avoid exposing user details
     }
+
+    private static WatchlistSummaryDTO convertToSummaryDto(WatchlistSummaryView summary) {
+        // Every status is listed, in declaration order, even when no item has it
+        Map<String, Integer> statusCounts = new LinkedHashMap<>();
+        statusCounts.put(WatchlistStatus.À_VOIR.toString(), summary.getToWatchCount());
+        statusCounts.put(WatchlistStatus.VU.toString(), summary.getWatchedCount());
+        statusCounts.put(WatchlistStatus.EN_COURS.toString(), summary.getInProgressCount());
+        int itemCount = summary.getToWatchCount() + summary.getWatchedCount() + summary.getInProgressCount();
+        Double averageRating = summary.getRatingCount() > 0
+                ? (double) summary.getRatingSum() / summary.getRatingCount()
+                : null;
+        return new WatchlistSummaryDTO(summary.getId(), summary.getName(), statusCounts,
+                itemCount, summary.getRatingCount(), averageRating);
+    }
 }
@@ -0,0 +1,31 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import lombok.*;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A TMDB response body stored in the {@link TmdbResponseCache}, with the
+ * validators needed to revalidate it upstream
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class CachedResponse {
+    private String url;
+    private String etag;
+    private String lastModified;
+    private long storedAt;
+    private long maxAgeSeconds;
+    private String body;
+
+    public boolean isFresh(Instant now) {
+        return now.toEpochMilli() < storedAt + maxAgeSeconds * 1000;
+    }
+
+    public boolean isWithinStaleWindow(Instant now, Duration staleWhileRevalidate) {
+        return now.toEpochMilli() < storedAt + maxAgeSeconds * 1000 + staleWhileRevalidate.toMillis();
+    }
+}
@@ -0,0 +1,108 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker protecting TMDB (and us) when the upstream keeps failing
+ *
+ * After {@code failure-threshold} consecutive failed calls the circuit opens
+ * and calls are rejected immediately for {@code open-duration}. A single trial
+ * call is then let through: its success closes the circuit, its failure opens
+ * it again.
+ */
+@Component
+public class TmdbCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final Timer openTimer;
+    private final Counter rejectedCounter;
+    private final MeterRegistry meterRegistry;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long firstOpenedAt;
+    private boolean trialInFlight;
+
+    public TmdbCircuitBreaker(@Value("${tmdb.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                              @Value("${tmdb.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+                              MeterRegistry meterRegistry) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationMillis = openDuration.toMillis();
+        this.openTimer = Timer.builder("tmdb.circuitbreaker.open")
+                .description("Time the TMDB circuit stayed open before closing again")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("tmdb.circuitbreaker.rejected")
+                .description("TMDB calls rejected because the circuit was open")
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Expose the state as a gauge, once the breaker is fully built: the gauge holds a reference to it
+     */
+    @PostConstruct
+    public void registerStateGauge() {
+        Gauge.builder("tmdb.circuitbreaker.state", this, breaker -> breaker.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Check whether a call may be made now
+     * @return true if the call may go to TMDB, false if it must be rejected
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            openTimer.record(Duration.ofMillis(System.currentTimeMillis() - firstOpenedAt));
+            System.out.println("TMDB circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                firstOpenedAt = System.currentTimeMillis();
+                System.err.println("TMDB circuit opened after " + consecutiveFailures + " consecutive failures");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
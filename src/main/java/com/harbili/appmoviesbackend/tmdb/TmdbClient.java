@@ -0,0 +1,448 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Thin client for the TMDB REST API
+ *
+ * All upstream calls go through this component so that the services using it
+ * (ingestion, sync, on-demand lookups) never build TMDB URLs themselves.
+ *
+ * Cacheable responses are kept in the {@link TmdbResponseCache}: fresh entries
+ * are served without calling TMDB, expired entries are served immediately while
+ * a conditional GET (If-None-Match / If-Modified-Since) refreshes them in the
+ * background, and any cached entry is served when TMDB is slow or failing.
+ *
+ * Every HTTP call first takes a token from the {@link TmdbRateLimiter} and is
+ * refused while the {@link TmdbCircuitBreaker} is open. 429 and 5xx answers as
+ * well as I/O errors are retried with exponential backoff and full jitter.
+ */
+@Component
+public class TmdbClient {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final String apiKey;
+    private final TmdbResponseCache responseCache;
+    private final Clock clock = Clock.systemUTC();
+    private final ExecutorService revalidator =
+            Executors.newFixedThreadPool(2, new CustomizableThreadFactory("tmdb-revalidate-"));
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final TmdbRateLimiter rateLimiter;
+    private final TmdbCircuitBreaker circuitBreaker;
+    private final Counter retryCounter;
+
+    @Value("${tmdb.retry.max-attempts:4}")
+    private int maxAttempts = 4;
+
+    @Value("${tmdb.retry.initial-backoff:PT0.5S}")
+    private Duration initialBackoff = Duration.ofMillis(500);
+
+    @Value("${tmdb.retry.max-backoff:PT10S}")
+    private Duration maxBackoff = Duration.ofSeconds(10);
+
+    @Value("${tmdb.images.base-url:https://image.tmdb.org/t/p}")
+    private String imageBaseUrl = "https://image.tmdb.org/t/p";
+
+    @Value("${tmdb.images.source-size:w780}")
+    private String imageSourceSize = "w780";
+
+    @Autowired
+    public TmdbClient(@Value("${tmdb.api.base-url}") String baseUrl,
+                      @Value("${tmdb.api.key}") String apiKey,
+                      @Value("${tmdb.http.connect-timeout:PT2S}") Duration connectTimeout,
+                      @Value("${tmdb.http.read-timeout:PT5S}") Duration readTimeout,
+                      TmdbResponseCache responseCache,
+                      TmdbRateLimiter rateLimiter,
+                      TmdbCircuitBreaker circuitBreaker,
+                      MeterRegistry meterRegistry) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.retryCounter = Counter.builder("tmdb.retries")
+                .description("TMDB calls retried after a 429, a 5xx or an I/O error")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Create a client without response cache, rate limiting, retries or circuit breaker
+     */
+    public TmdbClient(String baseUrl, String apiKey) {
+        this.restTemplate = new RestTemplate();
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.responseCache = null;
+        this.rateLimiter = null;
+        this.circuitBreaker = null;
+        this.retryCounter = null;
+        this.maxAttempts = 1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        revalidator.shutdownNow();
+    }
+
+    /**
+     * Fetch one page of /discover/movie
+     * @param page the page number (1-based)
+     * @return the page, with an empty movie list if TMDB returned no results
+     */
+    public TmdbPage discoverMovies(int page) {
+        String path = "/discover/movie?page=" + page;
+        String body = fetch(path, true);
+        if (body == null) {
+            return new TmdbPage(page, page, List.of());
+        }
+        try {
+            return TmdbMovieParser.parsePage(body, page);
+        } catch (IOException e) {
+            throw invalidJson(path, e);
+        }
+    }
+
+    /**
+     * Fetch the details of a single movie (/movie/{id}), through the response cache
+     * @param id the TMDB movie ID
+     * @return the movie, or null if TMDB does not know it
+     */
+    public Movie getMovie(long id) {
+        return getMovie(id, true);
+    }
+
+    /**
+     * Fetch the details of a single movie (/movie/{id})
+     *
+     * Without the cache, TMDB is always asked, conditionally if an entry is
+     * cached, whose body is then only reused on a 304; a failure is thrown
+     * instead of being answered from the cache. For callers that must see the
+     * current data, like the sync of the movies TMDB reports as changed.
+     *
+     * @param id the TMDB movie ID
+     * @param allowCached whether a fresh or stale cached answer may be served
+     * @return the movie, or null if TMDB does not know it
+     */
+    public Movie getMovie(long id, boolean allowCached) {
+        String path = "/movie/" + id;
+        String body;
+        try {
+            body = allowCached ? fetch(path, true) : fetchFromOrigin(path);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+        if (body == null) {
+            return null;
+        }
+        try {
+            return TmdbMovieParser.parseMovie(body);
+        } catch (IOException e) {
+            throw invalidJson(path, e);
+        }
+    }
+
+    /**
+     * Fetch the movie genre list (/genre/movie/list)
+     * @return the genre names by TMDB genre ID
+     */
+    public Map<Integer, String> getGenres() {
+        String path = "/genre/movie/list";
+        String body = fetch(path, true);
+        if (body == null) {
+            return Map.of();
+        }
+        try {
+            return TmdbMovieParser.parseGenres(body);
+        } catch (IOException e) {
+            throw invalidJson(path, e);
+        }
+    }
+
+    /**
+     * List the IDs of the movies changed on TMDB between two dates (/movie/changes)
+     *
+     * TMDB only accepts windows of at most 14 days; all result pages are read.
+     *
+     * @param startDate the first day of the window
+     * @param endDate the last day of the window
+     * @return the changed movie IDs, adult titles excluded
+     */
+    public List<Long> getChangedMovieIds(LocalDate startDate, LocalDate endDate) {
+        List<Long> ids = new ArrayList<>();
+        int page = 1;
+        int totalPages = 1;
+        do {
+            String path = String.format("/movie/changes?start_date=%s&end_date=%s&page=%d", startDate, endDate, page);
+            // The change list of the current day keeps growing: it is never cached
+            String body = fetch(path, false);
+            if (body == null) {
+                break;
+            }
+            try {
+                totalPages = TmdbMovieParser.parseChanges(body, ids);
+            } catch (IOException e) {
+                throw invalidJson(path, e);
+            }
+            page++;
+        } while (page <= totalPages);
+        return ids;
+    }
+
+    /**
+     * Download a poster from the TMDB image CDN, in the source size (tmdb.images.source-size)
+     *
+     * The CDN is not the API: calls are neither rate limited nor counted by the
+     * circuit breaker.
+     *
+     * @param posterPath the poster path, as stored on the movie (e.g. "/abc.jpg")
+     * @return the image bytes
+     * @throws HttpClientErrorException.NotFound if TMDB has no such image
+     */
+    public byte[] getPosterImage(String posterPath) {
+        byte[] image = restTemplate.getForObject(imageBaseUrl + "/" + imageSourceSize + posterPath, byte[].class);
+        if (image == null || image.length == 0) {
+            throw new RestClientException("Empty image received from TMDB for " + posterPath);
+        }
+        return image;
+    }
+
+    private static RestClientException invalidJson(String path, IOException e) {
+        return new RestClientException("Invalid JSON received from TMDB for " + path, e);
+    }
+
+    /**
+     * Get a response body, going through the response cache when allowed
+     * @param path the API path, query string included, without the API key
+     * @param cacheable whether the response may be cached
+     * @return the response body
+     */
+    private String fetch(String path, boolean cacheable) {
+        if (!cacheable || responseCache == null || !responseCache.isEnabled()) {
+            return exchange(path, new HttpHeaders()).getBody();
+        }
+
+        CachedResponse cached = responseCache.read(path);
+        Instant now = clock.instant();
+        if (cached != null && cached.isFresh(now)) {
+            return cached.getBody();
+        }
+        if (cached != null && cached.isWithinStaleWindow(now, responseCache.getStaleWhileRevalidate())) {
+            revalidateInBackground(path, cached);
+            return cached.getBody();
+        }
+        try {
+            return revalidate(path, cached).getBody();
+        } catch (HttpClientErrorException.NotFound e) {
+            throw e;
+        } catch (RestClientException e) {
+            if (cached != null) {
+                // TMDB is down or too slow: a very old answer is still better than none
+                System.err.println("TMDB unavailable, serving stale cache entry for " + path + ": " + e.getMessage());
+                return cached.getBody();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get a response body from TMDB itself, revalidating the cached entry if there is one
+     */
+    private String fetchFromOrigin(String path) {
+        if (responseCache == null || !responseCache.isEnabled()) {
+            return exchange(path, new HttpHeaders()).getBody();
+        }
+        return revalidate(path, responseCache.read(path)).getBody();
+    }
+
+    private void revalidateInBackground(String path, CachedResponse cached) {
+        if (!revalidating.add(path)) {
+            return;
+        }
+        try {
+            revalidator.submit(() -> {
+                try {
+                    revalidate(path, cached);
+                } catch (Exception e) {
+                    System.err.println("Background refresh of TMDB cache entry " + path + " failed: " + e.getMessage());
+                } finally {
+                    revalidating.remove(path);
+                }
+            });
+        } catch (RuntimeException e) {
+            revalidating.remove(path);
+        }
+    }
+
+    /**
+     * Call TMDB, conditionally when a cached entry exists, and store the result
+     */
+    private CachedResponse revalidate(String path, CachedResponse cached) {
+        HttpHeaders headers = new HttpHeaders();
+        if (cached != null && cached.getEtag() != null) {
+            headers.setIfNoneMatch(cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+
+        ResponseEntity<String> response = exchange(path, headers);
+        HttpHeaders responseHeaders = response.getHeaders();
+        long now = clock.millis();
+        long maxAge = maxAgeSeconds(responseHeaders);
+
+        CachedResponse updated;
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+            updated = new CachedResponse(path,
+                    responseHeaders.getETag() != null ? responseHeaders.getETag() : cached.getEtag(),
+                    cached.getLastModified(), now, maxAge, cached.getBody());
+        } else {
+            updated = new CachedResponse(path, responseHeaders.getETag(),
+                    responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED), now, maxAge, response.getBody());
+        }
+        responseCache.write(updated);
+        return updated;
+    }
+
+    /**
+     * Perform a GET on TMDB through the circuit breaker, the rate limiter and the retry loop
+     */
+    private ResponseEntity<String> exchange(String path, HttpHeaders headers) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            throw new TmdbUnavailableException("TMDB circuit is open, call to " + path + " rejected");
+        }
+        boolean success = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    ResponseEntity<String> response = restTemplate.exchange(urlFor(path), HttpMethod.GET,
+                            new HttpEntity<>(headers), String.class);
+                    success = true;
+                    return response;
+                } catch (HttpStatusCodeException e) {
+                    if (!isRetryable(e.getStatusCode()) || attempt >= maxAttempts) {
+                        // Client errors such as 404 mean TMDB is healthy
+                        success = !isRetryable(e.getStatusCode());
+                        throw e;
+                    }
+                    Duration retryAfter = retryAfter(e);
+                    if (retryAfter != null && rateLimiter != null) {
+                        // Every caller waits, not only this one: the next token is only due after the pause
+                        rateLimiter.pause(retryAfter);
+                        retryAfter = null;
+                    }
+                    backOff(attempt, retryAfter);
+                } catch (ResourceAccessException e) {
+                    if (attempt >= maxAttempts) {
+                        throw e;
+                    }
+                    backOff(attempt, null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while calling TMDB for " + path, e);
+        } finally {
+            if (circuitBreaker != null) {
+                if (success) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            }
+        }
+    }
+
+    private static boolean isRetryable(HttpStatusCode status) {
+        return status.value() == HttpStatus.TOO_MANY_REQUESTS.value() || status.is5xxServerError();
+    }
+
+    private static Duration retryAfter(HttpStatusCodeException e) {
+        String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (retryAfter == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Sleep before the next attempt: a random delay up to initialBackoff * 2^(attempt-1),
+     * capped at maxBackoff ("full jitter"), and never shorter than Retry-After
+     */
+    private void backOff(int attempt, Duration retryAfter) throws InterruptedException {
+        retryCounter.increment();
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (retryAfter != null) {
+            delay = Math.max(delay, retryAfter.toMillis());
+        }
+        Thread.sleep(delay);
+    }
+
+    /**
+     * Freshness lifetime of a response: the longer of TMDB's max-age and tmdb.cache.ttl
+     */
+    private long maxAgeSeconds(HttpHeaders headers) {
+        long ttl = responseCache.getTtl().toSeconds();
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                return Math.max(ttl, Long.parseLong(matcher.group(1)));
+            }
+        }
+        return ttl;
+    }
+
+    private String urlFor(String path) {
+        return baseUrl + path + (path.contains("?") ? "&" : "?") + "api_key=" + apiKey;
+    }
+}
@@ -0,0 +1,130 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.harbili.appmoviesbackend.search.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TMDB movie genres, stored on a movie as a bitmask
+ *
+ * Each TMDB genre ID owns a fixed bit, in the order below; the order must never
+ * change since the masks are persisted. Genre names come from the TMDB genre
+ * list once it has been loaded ({@link #updateNames}), and from the English
+ * names below until then. Safe for concurrent use.
+ */
+public final class TmdbGenres {
+
+    private static final int[] IDS = {
+            28, 12, 16, 35, 80, 99, 18, 10751, 14, 36, 27, 10402, 9648, 10749, 878, 10770, 53, 10752, 37};
+
+    private static final String[] DEFAULT_NAMES = {
+            "Action", "Adventure", "Animation", "Comedy", "Crime", "Documentary", "Drama", "Family", "Fantasy",
+            "History", "Horror", "Music", "Mystery", "Romance", "Science Fiction", "TV Movie", "Thriller", "War",
+            "Western"};
+
+    private static final Map<Integer, Integer> BIT_BY_ID = new HashMap<>();
+
+    static {
+        for (int bit = 0; bit < IDS.length; bit++) {
+            BIT_BY_ID.put(IDS[bit], bit);
+        }
+    }
+
+    // Replaced as a whole: readers always see a consistent set of names
+    private static volatile Names names = new Names(DEFAULT_NAMES.clone());
+
+    private TmdbGenres() {
+    }
+
+    /**
+     * @param genreIds TMDB genre IDs; unknown IDs are ignored
+     * @return the mask of the genres
+     */
+    public static long maskOfIds(Collection<Integer> genreIds) {
+        long mask = 0;
+        if (genreIds != null) {
+            for (Integer id : genreIds) {
+                Integer bit = id != null ? BIT_BY_ID.get(id) : null;
+                if (bit != null) {
+                    mask |= 1L << bit;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param genreNames genre names, in the current language or in English, case and accents ignored;
+     *                   unknown names are ignored
+     * @return the mask of the genres
+     */
+    public static long maskOfNames(Collection<String> genreNames) {
+        long mask = 0;
+        if (genreNames != null) {
+            Map<String, Integer> bits = names.bitByName;
+            for (String name : genreNames) {
+                Integer bit = bits.get(TextNormalizer.fold(name));
+                if (bit != null) {
+                    mask |= 1L << bit;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param mask a genre mask
+     * @return the names of the genres, in bit order
+     */
+    public static List<String> namesOf(long mask) {
+        if (mask == 0) {
+            return new ArrayList<>();
+        }
+        String[] current = names.byBit;
+        List<String> result = new ArrayList<>(Long.bitCount(mask));
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            int bit = Long.numberOfTrailingZeros(rest);
+            if (bit < current.length) {
+                result.add(current[bit]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace the genre names with the ones of the TMDB genre list
+     * @param namesById genre names by TMDB genre ID
+     * @return the IDs of the list that have no bit and are ignored
+     */
+    public static List<Integer> updateNames(Map<Integer, String> namesById) {
+        String[] byBit = DEFAULT_NAMES.clone();
+        List<Integer> unknown = new ArrayList<>();
+        namesById.forEach((id, name) -> {
+            Integer bit = BIT_BY_ID.get(id);
+            if (bit == null) {
+                unknown.add(id);
+            } else if (name != null && !name.isBlank()) {
+                byBit[bit] = name;
+            }
+        });
+        names = new Names(byBit);
+        return unknown;
+    }
+
+    private static final class Names {
+        private final String[] byBit;
+        private final Map<String, Integer> bitByName = new HashMap<>();
+
+        Names(String[] byBit) {
+            this.byBit = byBit;
+            for (int bit = 0; bit < byBit.length; bit++) {
+                bitByName.put(TextNormalizer.fold(DEFAULT_NAMES[bit]), bit);
+                bitByName.put(TextNormalizer.fold(byBit[bit]), bit);
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.harbili.appmoviesbackend.entities.Movie;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token-based parser turning TMDB payloads directly into {@link Movie} entities
+ *
+ * The JSON is read with Jackson's streaming API: only the fields stored on
+ * Movie are materialized, every other field (and its children) is skipped, and
+ * no intermediate Map tree is built.
+ */
+public final class TmdbMovieParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private TmdbMovieParser() {
+    }
+
+    /**
+     * Parse a paginated movie listing such as /discover/movie
+     * @param json the response body
+     * @param requestedPage the page that was requested, used when the payload has no page number
+     * @return the parsed page
+     * @throws IOException if the payload is not valid JSON
+     */
+    public static TmdbPage parsePage(String json, int requestedPage) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new TmdbPage(requestedPage, requestedPage, List.of());
+            }
+            int page = requestedPage;
+            int totalPages = requestedPage;
+            List<Movie> movies = new ArrayList<>(20);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "page" -> page = parser.getValueAsInt(requestedPage);
+                    case "total_pages" -> totalPages = parser.getValueAsInt(1);
+                    case "results" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                Movie movie = readMovie(parser);
+                                if (movie.getId() != null) {
+                                    movies.add(movie);
+                                }
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            return new TmdbPage(page, totalPages, movies);
+        }
+    }
+
+    /**
+     * Parse a single movie payload such as /movie/{id}
+     * @param json the response body
+     * @return the movie, or null if the payload carries no movie ID
+     * @throws IOException if the payload is not valid JSON
+     */
+    public static Movie parseMovie(String json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            Movie movie = readMovie(parser);
+            return movie.getId() != null ? movie : null;
+        }
+    }
+
+    /**
+     * Parse a /movie/changes page
+     * @param json the response body
+     * @param ids the list receiving the changed movie IDs, adult titles excluded
+     * @return the total number of pages announced by TMDB
+     * @throws IOException if the payload is not valid JSON
+     */
+    public static int parseChanges(String json, List<Long> ids) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 1;
+            }
+            int totalPages = 1;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("total_pages".equals(field)) {
+                    totalPages = parser.getValueAsInt(1);
+                } else if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        long id = -1;
+                        boolean adult = false;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String changeField = parser.currentName();
+                            parser.nextToken();
+                            if ("id".equals(changeField)) {
+                                id = parser.getValueAsLong(-1);
+                            } else if ("adult".equals(changeField)) {
+                                adult = parser.getValueAsBoolean();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        if (id >= 0 && !adult) {
+                            ids.add(id);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return totalPages;
+        }
+    }
+
+    /**
+     * Parse the genre list (/genre/movie/list)
+     * @param json the response body
+     * @return the genre names by TMDB genre ID
+     * @throws IOException if the payload is not valid JSON
+     */
+    public static Map<Integer, String> parseGenres(String json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            Map<Integer, String> namesById = new LinkedHashMap<>();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return namesById;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("genres".equals(field) && value == JsonToken.START_ARRAY) {
+                    readGenreObjects(parser, namesById);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return namesById;
+        }
+    }
+
+    /**
+     * Read the movie object the parser is positioned on (START_OBJECT)
+     */
+    private static Movie readMovie(JsonParser parser) throws IOException {
+        Movie movie = new Movie();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> movie.setId(value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null);
+                case "title" -> movie.setTitle(textOrNull(parser, value));
+                case "overview" -> movie.setOverview(textOrNull(parser, value));
+                case "poster_path" -> movie.setPosterPath(textOrNull(parser, value));
+                case "release_date" -> movie.setReleaseDate(value == JsonToken.VALUE_STRING ? readDate(parser) : null);
+                case "genre_ids" -> movie.setGenreMask(value == JsonToken.START_ARRAY ? readGenreIds(parser) : 0);
+                case "genres" -> movie.setGenreMask(value == JsonToken.START_ARRAY ? readGenreObjects(parser, null) : 0);
+                default -> parser.skipChildren();
+            }
+        }
+        return movie;
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken value) throws IOException {
+        return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+    }
+
+    /**
+     * Read a yyyy-MM-dd date straight from the parser buffer, without a String
+     * or a DateTimeFormatter; empty or malformed dates give null
+     */
+    private static LocalDate readDate(JsonParser parser) throws IOException {
+        if (parser.getTextLength() != 10) {
+            return null;
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (chars[offset + 4] != '-' || chars[offset + 7] != '-') {
+            return null;
+        }
+        int year = digits(chars, offset, 4);
+        int month = digits(chars, offset + 5, 2);
+        int day = digits(chars, offset + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(char[] chars, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Read a listing's genre_ids array ([18, 53]) into a genre mask
+     */
+    private static long readGenreIds(JsonParser parser) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                ids.add(parser.getIntValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return TmdbGenres.maskOfIds(ids);
+    }
+
+    /**
+     * Read a genres array ([{"id": 18, "name": "Drama"}, ...]) into a genre mask
+     * @param namesById the map receiving the genre names by ID, may be null
+     */
+    private static long readGenreObjects(JsonParser parser, Map<Integer, String> namesById) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Integer id = null;
+            String name = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    id = parser.getIntValue();
+                } else if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+                    name = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (id != null) {
+                ids.add(id);
+                if (namesById != null && name != null) {
+                    namesById.put(id, name);
+                }
+            }
+        }
+        return TmdbGenres.maskOfIds(ids);
+    }
+}
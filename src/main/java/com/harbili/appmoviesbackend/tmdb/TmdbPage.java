@@ -0,0 +1,22 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a paginated TMDB listing (e.g. /discover/movie)
+ */
+@Getter
+public final class TmdbPage {
+    private final int page;
+    private final int totalPages;
+    private final List<Movie> movies;
+
+    public TmdbPage(int page, int totalPages, List<Movie> movies) {
+        this.page = page;
+        this.totalPages = totalPages;
+        this.movies = movies != null ? movies : List.of();
+    }
+}
@@ -0,0 +1,72 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of calls made to TMDB
+ *
+ * The bucket holds up to {@code burst} tokens and is refilled continuously at
+ * {@code requests-per-second}. A caller finding the bucket empty reserves the
+ * next token and sleeps until it is due, so concurrent callers are served in
+ * order and the upstream quota is used fully but never exceeded.
+ */
+@Component
+public class TmdbRateLimiter {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final Timer waitTimer;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TmdbRateLimiter(@Value("${tmdb.rate-limit.requests-per-second:40}") double permitsPerSecond,
+                           @Value("${tmdb.rate-limit.burst:40}") int burst,
+                           MeterRegistry meterRegistry) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+        this.waitTimer = Timer.builder("tmdb.ratelimiter.wait")
+                .description("Time spent waiting for a TMDB rate limit token")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take one token, waiting until it is available
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / permitsPerSecond * 1_000_000_000L);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stop handing out tokens for a while, e.g. when TMDB answers 429 with Retry-After
+     * @param pause how long no call should be made
+     */
+    public synchronized void pause(Duration pause) {
+        refill();
+        tokens = Math.min(tokens, 0) - pause.toMillis() / 1000.0 * permitsPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,116 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harbili.appmoviesbackend.cache.DiskLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Disk-backed store of TMDB responses
+ *
+ * Each response is kept in its own file, named after a hash of the request URL
+ * (without the API key), so cached entries survive restarts. The files are
+ * held by a {@link DiskLruCache}: writes go through a temporary file and an
+ * atomic move so a crash never leaves a torn entry, and the least recently
+ * used entries are deleted beyond tmdb.cache.max-size.
+ */
+@Component
+public class TmdbResponseCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DiskLruCache files;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration staleWhileRevalidate;
+
+    public TmdbResponseCache(@Value("${tmdb.cache.dir:${java.io.tmpdir}/tmdb-cache}") String directory,
+                             @Value("${tmdb.cache.enabled:true}") boolean enabled,
+                             @Value("${tmdb.cache.ttl:PT6H}") Duration ttl,
+                             @Value("${tmdb.cache.stale-while-revalidate:P7D}") Duration staleWhileRevalidate,
+                             @Value("${tmdb.cache.max-size:512MB}") DataSize maxSize) throws IOException {
+        this.files = enabled ? new DiskLruCache(Paths.get(directory), maxSize.toBytes()) : null;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Default freshness lifetime, used when TMDB sends no max-age
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * How long after expiry an entry may still be served while it is refreshed
+     */
+    public Duration getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * Read a cached response
+     * @param url the request URL
+     * @return the cached response, or null if there is none (or it cannot be read)
+     */
+    public CachedResponse read(String url) {
+        if (!enabled) {
+            return null;
+        }
+        Path file = files.get(keyFor(url));
+        if (file == null) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(Files.readAllBytes(file), CachedResponse.class);
+        } catch (NoSuchFileException e) {
+            // Evicted since the lookup
+            return null;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable TMDB cache entry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store a response, replacing any previous entry for the same URL
+     * @param response the response to store
+     */
+    public void write(CachedResponse response) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            files.put(keyFor(response.getUrl()), MAPPER.writeValueAsBytes(response));
+        } catch (IOException e) {
+            // The cache is an optimization: a failed write must never fail the TMDB call
+            System.err.println("Could not write TMDB cache entry: " + e.getMessage());
+        }
+    }
+
+    private static String keyFor(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash) + ".json";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown when a TMDB call is not attempted because the circuit breaker is open
+ */
+public class TmdbUnavailableException extends RestClientException {
+    private static final long serialVersionUID = 1L;
+
+    public TmdbUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package com.harbili.appmoviesbackend.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskLruCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void evictsTheLeastRecentlyUsedFilesBeyondTheMaximumSize() throws Exception {
+        DiskLruCache cache = new DiskLruCache(directory, 250);
+        cache.put("w92/a.jpg", new byte[100]);
+        cache.put("w92/b.jpg", new byte[100]);
+        assertNotNull(cache.get("w92/a.jpg"));
+
+        cache.put("w92/c.jpg", new byte[100]);
+
+        assertNotNull(cache.get("w92/a.jpg"));
+        assertNull(cache.get("w92/b.jpg"));
+        assertFalse(Files.exists(directory.resolve("w92/b.jpg")));
+        assertEquals(200, cache.getTotalBytes());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void takesBackTheFilesAlreadyOnDisk() throws Exception {
+        Files.createDirectories(directory.resolve("source"));
+        Files.write(directory.resolve("source/old.jpg"), new byte[100]);
+        Files.write(directory.resolve("source/new.jpg"), new byte[100]);
+        Files.write(directory.resolve("source/entry123.tmp"), new byte[10]);
+        Files.setLastModifiedTime(directory.resolve("source/old.jpg"), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(directory.resolve("source/new.jpg"), FileTime.fromMillis(2_000));
+
+        DiskLruCache cache = new DiskLruCache(directory, 150);
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("source/new.jpg"));
+        assertNull(cache.get("source/old.jpg"));
+        assertFalse(Files.exists(directory.resolve("source/entry123.tmp")));
+    }
+
+    @Test
+    void forgetsFilesDeletedBehindItsBack() throws Exception {
+        DiskLruCache cache = new DiskLruCache(directory, 1000);
+        Path file = cache.put("w185/a.png", new byte[42]);
+        Files.delete(file);
+
+        assertNull(cache.get("w185/a.png"));
+        assertEquals(0, cache.getTotalBytes());
+    }
+}
@@ -0,0 +1,75 @@
+package com.harbili.appmoviesbackend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void staysWithinItsMaximumSize() {
+        TinyLfuCache<Long, String> cache = new TinyLfuCache<>(100);
+        for (long i = 0; i < 1000; i++) {
+            cache.put(i, "movie " + i);
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+    }
+
+    @Test
+    void keepsFrequentEntriesThroughOneOffReads() {
+        TinyLfuCache<Long, String> cache = new TinyLfuCache<>(100);
+        long oneOff = 1000;
+        // Between two reads of the 50 frequent entries come 100 one-off reads: an LRU would lose them all
+        for (int round = 0; round < 50; round++) {
+            for (long i = 0; i < 50; i++) {
+                cache.get(i, id -> "movie " + id);
+            }
+            for (int i = 0; i < 100; i++) {
+                cache.get(oneOff++, id -> "movie " + id);
+            }
+        }
+
+        int kept = 0;
+        for (long i = 0; i < 50; i++) {
+            if (cache.getIfPresent(i) != null) {
+                kept++;
+            }
+        }
+        assertEquals(50, kept);
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        TinyLfuCache<Long, String> cache = new TinyLfuCache<>(10);
+        assertEquals("movie 1", cache.get(1L, id -> "movie " + id));
+        assertEquals("movie 1", cache.get(1L, id -> "reloaded"));
+        assertNull(cache.get(2L, id -> null));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void doesNotStoreAValueLoadedBeforeAnInvalidation() {
+        TinyLfuCache<Long, String> cache = new TinyLfuCache<>(10);
+        cache.put(1L, "old title");
+        cache.invalidate(1L);
+        assertNull(cache.getIfPresent(1L));
+
+        String loaded = cache.get(1L, id -> {
+            cache.invalidate(id);
+            return "stale title";
+        });
+        assertEquals("stale title", loaded);
+        assertNull(cache.getIfPresent(1L));
+
+        cache.put(2L, "title");
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals("new title", cache.get(2L, id -> "new title"));
+        assertEquals("new title", cache.getIfPresent(2L));
+    }
+}
@@ -0,0 +1,74 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares saveAll (merge per entity) with the batched upsertAll path
+ *
+ * Run with: mvn test -Dtest=MovieBulkRepositoryBenchmarkTest -Dbenchmark=true [-Dbenchmark.movies=100000]
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MovieBulkRepositoryBenchmarkTest {
+
+    private static final long BASE_ID = 900_000_000L;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM movie WHERE id >= ?", BASE_ID);
+    }
+
+    @Test
+    void compareSaveAllWithUpsertAll() {
+        int count = Integer.getInteger("benchmark.movies", 100_000);
+
+        List<Movie> first = sampleMovies(BASE_ID, count);
+        long start = System.nanoTime();
+        movieRepository.saveAll(first);
+        double saveAllSeconds = (System.nanoTime() - start) / 1e9;
+
+        List<Movie> second = sampleMovies(BASE_ID + count, count);
+        start = System.nanoTime();
+        movieRepository.upsertAll(second);
+        double upsertSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("[DEBUG_LOG] saveAll:   %d movies in %.2fs (%.0f rows/s)%n", count, saveAllSeconds, count / saveAllSeconds);
+        System.out.printf("[DEBUG_LOG] upsertAll: %d movies in %.2fs (%.0f rows/s)%n", count, upsertSeconds, count / upsertSeconds);
+
+        assertEquals(2L * count, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movie WHERE id >= ?", Long.class, BASE_ID));
+    }
+
+    private List<Movie> sampleMovies(long firstId, int count) {
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            movies.add(Movie.builder()
+                    .id(firstId + i)
+                    .title("Benchmark movie " + i)
+                    .overview("Overview of benchmark movie " + i)
+                    .posterPath("/poster" + i + ".jpg")
+                    .releaseDate(LocalDate.of(1990 + i % 30, 1 + i % 12, 1 + i % 28))
+                    .genres(new ArrayList<>(Arrays.asList("Drama", "Thriller")))
+                    .build());
+        }
+        return movies;
+    }
+}
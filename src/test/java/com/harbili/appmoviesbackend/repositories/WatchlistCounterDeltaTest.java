@@ -0,0 +1,43 @@
+package com.harbili.appmoviesbackend.repositories;
+
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchlistCounterDeltaTest {
+
+    @Test
+    void addingAndRemovingTheSameValuesCancelOut() {
+        WatchlistCounterDelta delta = new WatchlistCounterDelta();
+        assertTrue(delta.isEmpty());
+
+        delta.add(WatchlistStatus.EN_COURS, 7).remove(WatchlistStatus.EN_COURS, 7);
+        assertTrue(delta.isEmpty());
+    }
+
+    @Test
+    void anUpdateMovesTheItemBetweenStatusesAndReplacesItsRating() {
+        WatchlistCounterDelta delta = new WatchlistCounterDelta()
+                .remove(WatchlistStatus.À_VOIR, 4)
+                .add(WatchlistStatus.VU, 9);
+
+        assertEquals(-1, delta.getToWatch());
+        assertEquals(1, delta.getWatched());
+        assertEquals(0, delta.getInProgress());
+        assertEquals(5, delta.getRatingSum());
+        assertEquals(0, delta.getRatingCount());
+        assertFalse(delta.isEmpty());
+    }
+
+    @Test
+    void missingValuesAreNotCounted() {
+        WatchlistCounterDelta delta = new WatchlistCounterDelta().add(null, null);
+        assertTrue(delta.isEmpty());
+
+        delta.add(WatchlistStatus.VU, null).remove(null, 3);
+        assertEquals(1, delta.getWatched());
+        assertEquals(-3, delta.getRatingSum());
+        assertEquals(-1, delta.getRatingCount());
+    }
+}
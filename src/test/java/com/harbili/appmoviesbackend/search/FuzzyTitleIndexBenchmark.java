@@ -0,0 +1,98 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.dto.MovieSuggestionDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures typo-tolerant title lookups in a 1M-title fuzzy index
+ *
+ * Titles are made of words drawn from a synthetic vocabulary of syllables,
+ * which is denser (more words within two edits of each other) than real
+ * titles. Queries are catalog titles with two adjacent letters swapped.
+ * Run the main method (e.g. from the IDE, test classpath) with -Xmx4g.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FuzzyTitleIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "ro", "mi", "del", "tor", "shan", "vel", "qu", "ny", "bra",
+            "sto", "rin", "gal", "pha", "zen", "lo"};
+    private static final String[] JOINERS = {"the", "of", "a", "and", "in"};
+
+    @Param({"1000000"})
+    private int titles;
+
+    private FuzzyTitleIndex index;
+    private String[] exactQueries;
+    private String[] misspelledQueries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[30_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        index = new FuzzyTitleIndex();
+        exactQueries = new String[1000];
+        misspelledQueries = new String[exactQueries.length];
+        for (int i = 0; i < titles; i++) {
+            String title = vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + JOINERS[random.nextInt(JOINERS.length)] + " " + vocabulary[random.nextInt(vocabulary.length)];
+            if (random.nextBoolean()) {
+                title += " " + vocabulary[random.nextInt(vocabulary.length)];
+            }
+            index.put(i, title);
+            if (i < exactQueries.length) {
+                exactQueries[i] = title;
+                misspelledQueries[i] = swapLetters(title, random);
+            }
+        }
+    }
+
+    private static String swapLetters(String title, Random random) {
+        char[] chars = title.toCharArray();
+        while (true) {
+            int i = random.nextInt(chars.length - 1);
+            if (chars[i] != ' ' && chars[i + 1] != ' ' && chars[i] != chars[i + 1]) {
+                char c = chars[i];
+                chars[i] = chars[i + 1];
+                chars[i + 1] = c;
+                return new String(chars);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<MovieSuggestionDTO> exact() {
+        return index.search(exactQueries[next++ % exactQueries.length], 10);
+    }
+
+    @Benchmark
+    public List<MovieSuggestionDTO> misspelled() {
+        return index.search(misspelledQueries[next++ % misspelledQueries.length], 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FuzzyTitleIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.dto.MovieSuggestionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyTitleIndexTest {
+
+    private static List<Long> ids(List<MovieSuggestionDTO> suggestions) {
+        return suggestions.stream().map(MovieSuggestionDTO::getId).toList();
+    }
+
+    @Test
+    void toleratesTyposAndTranspositions() {
+        FuzzyTitleIndex index = new FuzzyTitleIndex();
+        index.put(1, "Pulp Fiction");
+        index.put(2, "The Dark Knight");
+        index.put(3, "Amélie");
+
+        assertEquals(List.of(1L), ids(index.search("Pulp Fictoin", 10)));
+        assertEquals(List.of(2L), ids(index.search("Dark Knigth", 10)));
+        assertEquals(List.of(3L), ids(index.search("AMELIE", 10)));
+        assertEquals(List.of(2L), ids(index.search("teh dakr knight", 10)));
+        assertTrue(index.search("Jurassic Park", 10).isEmpty());
+    }
+
+    @Test
+    void boundsTheDistanceByWordLength() {
+        FuzzyTitleIndex index = new FuzzyTitleIndex();
+        index.put(1, "Up");
+        index.put(2, "Heat");
+        index.put(3, "Interstellar");
+
+        assertTrue(index.search("Us", 10).isEmpty());
+        assertEquals(List.of(2L), ids(index.search("Haet", 10)));
+        assertTrue(index.search("Hxxt", 10).isEmpty());
+        assertEquals(List.of(3L), ids(index.search("Intrestelar", 10)));
+        assertTrue(index.search("Intrxstxllxr", 10).isEmpty());
+    }
+
+    @Test
+    void ranksByDistanceThenLength() {
+        FuzzyTitleIndex index = new FuzzyTitleIndex();
+        index.put(1, "Alien Resurrection");
+        index.put(2, "Aliens");
+        index.put(3, "Alien");
+        index.put(4, "Allen");
+
+        assertEquals(List.of(3L, 1L, 4L, 2L), ids(index.search("alien", 10)));
+        assertEquals(List.of(3L, 1L), ids(index.search("alien", 2)));
+    }
+
+    @Test
+    void distanceCountsAdjacentTranspositionsOnce() {
+        assertEquals(0, FuzzyTitleIndex.osaDistance("knight", "knight", 2));
+        assertEquals(1, FuzzyTitleIndex.osaDistance("knigth", "knight", 2));
+        assertEquals(2, FuzzyTitleIndex.osaDistance("kinght", "knihgt", 2));
+        assertEquals(-1, FuzzyTitleIndex.osaDistance("knight", "night", 0));
+    }
+
+    @Test
+    void updatesRemovalsAndCompactionAreVisible() {
+        FuzzyTitleIndex index = new FuzzyTitleIndex();
+        for (int round = 0; round < 5; round++) {
+            for (long id = 0; id < 1000; id++) {
+                index.put(id, "Movie " + id + " round " + round);
+            }
+        }
+        assertEquals(1000, index.size());
+        assertEquals(List.of(42L), ids(index.search("movie 42 ruond 4", 10)));
+        assertTrue(index.search("movie 42 round 3", 10).isEmpty());
+
+        index.remove(42);
+        assertTrue(index.search("movie 42 round 4", 10).isEmpty());
+        assertEquals(999, index.size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.harbili.appmoviesbackend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBitmapTest {
+
+    private static void assertSameIds(BitSet expected, IdBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        int id = actual.next(0);
+        for (int bit = expected.nextSetBit(0); bit >= 0; bit = expected.nextSetBit(bit + 1)) {
+            assertEquals(bit, id);
+            id = actual.next(id + 1);
+        }
+        assertEquals(-1, id);
+    }
+
+    private static IdBitmap randomBitmap(Random random, BitSet mirror, int range, int count) {
+        IdBitmap bitmap = new IdBitmap();
+        for (int i = 0; i < count; i++) {
+            int id = random.nextInt(range);
+            assertEquals(!mirror.get(id), bitmap.add(id));
+            mirror.set(id);
+        }
+        return bitmap;
+    }
+
+    @Test
+    void addsAndRemovesAcrossArrayAndBitmapChunks() {
+        Random random = new Random(42);
+        BitSet mirror = new BitSet();
+        IdBitmap bitmap = randomBitmap(random, mirror, 300_000, 40_000);
+        assertSameIds(mirror, bitmap);
+
+        for (int i = 0; i < 60_000; i++) {
+            int id = random.nextInt(300_000);
+            assertEquals(mirror.get(id), bitmap.remove(id));
+            mirror.clear(id);
+        }
+        assertSameIds(mirror, bitmap);
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.remove(-1));
+    }
+
+    @Test
+    void combinesSparseAndDenseSets() {
+        Random random = new Random(7);
+        BitSet dense = new BitSet();
+        BitSet sparse = new BitSet();
+        IdBitmap a = randomBitmap(random, dense, 200_000, 100_000);
+        IdBitmap b = randomBitmap(random, sparse, 400_000, 3_000);
+
+        BitSet and = (BitSet) dense.clone();
+        and.and(sparse);
+        BitSet or = (BitSet) dense.clone();
+        or.or(sparse);
+        assertSameIds(and, IdBitmap.and(a, b));
+        assertSameIds(and, IdBitmap.and(b, a));
+        assertSameIds(or, IdBitmap.or(a, b));
+        assertSameIds(or, IdBitmap.or(b, a));
+        assertEquals(and.cardinality(), IdBitmap.andCardinality(a, b));
+        assertEquals(dense.cardinality(), IdBitmap.andCardinality(a, a));
+        assertSameIds(dense, IdBitmap.and(a, a));
+    }
+
+    @Test
+    void unitesManySetsAtOnce() {
+        Random random = new Random(3);
+        BitSet union = new BitSet();
+        List<IdBitmap> bitmaps = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            BitSet mirror = new BitSet();
+            bitmaps.add(randomBitmap(random, mirror, 1_000_000, 1 + random.nextInt(20_000)));
+            union.or(mirror);
+        }
+
+        assertSameIds(union, IdBitmap.orAll(bitmaps));
+        assertSameIds(new BitSet(), IdBitmap.orAll(List.of()));
+
+        IdBitmap single = new IdBitmap();
+        single.add(12);
+        IdBitmap copy = IdBitmap.orAll(List.of(single));
+        copy.remove(12);
+        assertTrue(single.contains(12));
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(5);
+        bitmap.add(70_000);
+        IdBitmap copy = bitmap.copy();
+        copy.remove(5);
+
+        assertTrue(bitmap.contains(5));
+        assertEquals(70_000, copy.next(0));
+        assertEquals(70_000, bitmap.next(6));
+        assertEquals(-1, bitmap.next(70_001));
+    }
+}
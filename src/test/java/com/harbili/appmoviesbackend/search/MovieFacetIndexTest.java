@@ -0,0 +1,86 @@
+package com.harbili.appmoviesbackend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieFacetIndexTest {
+
+    private static final long DRAMA = 1L << 6;
+    private static final long THRILLER = 1L << 16;
+    private static final long CRIME = 1L << 4;
+
+    private static MovieFacetIndex catalog() {
+        MovieFacetIndex index = new MovieFacetIndex();
+        index.put(550, DRAMA | THRILLER, LocalDate.of(1999, 10, 15));
+        index.put(680, CRIME | THRILLER, LocalDate.of(1994, 9, 10));
+        index.put(155, DRAMA | CRIME | THRILLER, LocalDate.of(2008, 7, 16));
+        index.put(13, DRAMA, LocalDate.of(1994, 7, 6));
+        index.put(42, 0, null);
+        return index;
+    }
+
+    @Test
+    void filtersOnEveryGenreAndTheYearRange() {
+        MovieFacetIndex index = catalog();
+
+        MovieFacetIndex.Result result = index.filter(DRAMA | THRILLER, null, null, null, null, 10);
+        assertEquals(List.of(155L, 550L), result.getIds());
+        assertEquals(2, result.getTotal());
+        assertEquals(Map.of(4, 1, 6, 2, 16, 2), result.getGenreCounts());
+        assertEquals(Map.of(1999, 1, 2008, 1), result.getYearCounts());
+
+        result = index.filter(0, 1990, 1999, null, null, 10);
+        assertEquals(List.of(13L, 550L, 680L), result.getIds());
+        assertEquals(Map.of(1994, 2, 1999, 1), result.getYearCounts());
+        assertEquals(List.of(155L), index.filter(0, 2000, null, null, null, 10).getIds());
+        assertTrue(index.filter(0, 2000, 1990, null, null, 10).getIds().isEmpty());
+    }
+
+    @Test
+    void pagesAfterTheLastId() {
+        MovieFacetIndex index = catalog();
+
+        MovieFacetIndex.Result first = index.filter(0, null, null, null, null, 2);
+        assertEquals(List.of(13L, 42L), first.getIds());
+        assertTrue(first.hasMore());
+        assertEquals(5, first.getTotal());
+
+        MovieFacetIndex.Result last = index.filter(0, null, null, null, 155L, 2);
+        assertEquals(List.of(550L, 680L), last.getIds());
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    void restrictsToTheGivenIds() {
+        MovieFacetIndex index = catalog();
+        IdBitmap watched = new IdBitmap();
+        watched.add(680);
+        watched.add(13);
+        watched.add(999);
+
+        MovieFacetIndex.Result result = index.filter(THRILLER, null, null, watched, null, 10);
+        assertEquals(List.of(680L), result.getIds());
+
+        IdBitmap seen = new IdBitmap();
+        seen.add(550);
+        seen.add(680);
+        assertEquals(2, index.filter(THRILLER, null, null, null, null, 10).countIn(seen));
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisible() {
+        MovieFacetIndex index = catalog();
+        index.put(550, CRIME, LocalDate.of(2001, 1, 1));
+        index.remove(13);
+
+        assertEquals(List.of(155L), index.filter(DRAMA, null, null, null, null, 10).getIds());
+        assertEquals(List.of(155L, 550L, 680L), index.filter(CRIME, null, null, null, null, 10).getIds());
+        assertEquals(Map.of(1994, 1, 2001, 1, 2008, 1), index.filter(0, null, null, null, null, 10).getYearCounts());
+        assertEquals(4, index.size());
+    }
+}
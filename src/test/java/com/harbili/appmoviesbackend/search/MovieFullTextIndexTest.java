@@ -0,0 +1,74 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieFullTextIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private MovieFullTextIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = new MovieFullTextIndex(dir);
+        index.index(List.of(
+                Movie.builder().id(1L).title("Heat").overview("A group of bank robbers is chased by a detective in Los Angeles.")
+                        .genres(List.of("Crime", "Thriller")).build(),
+                Movie.builder().id(2L).title("The Bank Job").overview("Thieves dig a tunnel into a London vault.")
+                        .genres(List.of("Crime")).build(),
+                Movie.builder().id(3L).title("Amélie").overview("A shy waitress decides to change the lives of those around her.")
+                        .genres(List.of("Comedy", "Romance")).build()));
+        index.refresh();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void titleMatchesRankAbovePlotMatches() throws IOException {
+        MovieFullTextIndex.Hits hits = index.search("bank", 0, 10);
+        assertEquals(List.of(2L, 1L), hits.getIds());
+        assertEquals(2, hits.getTotalHits());
+    }
+
+    @Test
+    void searchesPlotAndGenresWithAccentFolding() throws IOException {
+        assertEquals(List.of(3L), index.search("amelie waitress", 0, 10).getIds());
+        assertEquals(List.of(1L), index.search("thriller detective", 0, 10).getIds());
+    }
+
+    @Test
+    void paginatesAndIgnoresQuerySyntax() throws IOException {
+        assertEquals(List.of(1L), index.search("bank", 1, 10).getIds());
+        assertTrue(index.search("crime) AND (", 0, 10).getTotalHits() >= 0);
+    }
+
+    @Test
+    void writesAreSearchableAfterRefreshAndSurviveReopen() throws IOException {
+        index.index(List.of(Movie.builder().id(1L).title("Heat").overview("A heist in Los Angeles.").build()));
+        index.delete(2L);
+        assertEquals(2, index.search("bank", 0, 10).getTotalHits());
+
+        index.refresh();
+        assertTrue(index.search("bank", 0, 10).getIds().isEmpty());
+        index.commit();
+        index.close();
+
+        index = new MovieFullTextIndex(dir);
+        assertEquals(2, index.size());
+        assertEquals(List.of(1L), index.search("heist", 0, 10).getIds());
+    }
+}
@@ -0,0 +1,73 @@
+package com.harbili.appmoviesbackend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarMovieIndexTest {
+
+    private static SimilarMovieIndex catalog() {
+        SimilarMovieIndex index = new SimilarMovieIndex();
+        index.put(1, "A crew of bank robbers plans one last heist in Los Angeles.", List.of("Crime", "Thriller"));
+        index.put(2, "Bank robbers dig a tunnel to reach the vault of a London bank.", List.of("Crime"));
+        index.put(3, "A detective hunts a crew of robbers after a failed heist.", List.of("Crime", "Thriller"));
+        index.put(4, "A shy waitress decides to change the lives of those around her.", List.of("Romance", "Comedy"));
+        index.put(5, "Astronauts travel through a wormhole in search of a new home.", List.of("Science Fiction"));
+        return index;
+    }
+
+    @Test
+    void ranksMoviesSharingPlotWordsAndGenresFirst() {
+        SimilarMovieIndex index = catalog();
+
+        List<Long> similar = index.similar(1, 10);
+        assertEquals(List.of(3L, 2L), similar);
+        assertEquals(List.of(3L), index.similar(1, 1));
+    }
+
+    @Test
+    void matchesAccentFoldedGenresWithoutPlot() {
+        SimilarMovieIndex index = new SimilarMovieIndex();
+        index.put(1, null, List.of("Comédie"));
+        index.put(2, "", List.of("Comedie", "Romance"));
+        index.put(3, "", List.of("Horreur"));
+
+        assertEquals(List.of(2L), index.similar(1, 10));
+    }
+
+    @Test
+    void unknownOrUnrelatedMoviesHaveNoSimilarMovies() {
+        SimilarMovieIndex index = catalog();
+
+        assertTrue(index.similar(42, 10).isEmpty());
+        assertTrue(index.similar(5, 10).isEmpty());
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisible() {
+        SimilarMovieIndex index = catalog();
+        index.put(2, "A shy waitress in Paris changes the lives of her neighbours.", List.of("Romance"));
+        assertEquals(List.of(3L), index.similar(1, 10));
+        assertEquals(List.of(4L), index.similar(2, 10));
+
+        index.remove(3);
+        assertTrue(index.similar(1, 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void compactionKeepsLiveMovies() {
+        SimilarMovieIndex index = new SimilarMovieIndex();
+        for (int round = 0; round < 5; round++) {
+            for (long id = 0; id < 1000; id++) {
+                index.put(id, "Episode " + id + " of season " + round, List.of("Documentary"));
+            }
+        }
+        assertEquals(1000, index.size());
+        List<Long> similar = index.similar(420, 10);
+        assertEquals(10, similar.size());
+        assertFalse(similar.contains(420L));
+    }
+}
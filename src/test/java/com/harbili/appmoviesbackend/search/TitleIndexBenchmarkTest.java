@@ -0,0 +1,82 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.services.MovieTypeaheadService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares typeahead lookups in the title index with the LIKE '%q%' query
+ *
+ * Run with: mvn test -Dtest=TitleIndexBenchmarkTest -Dbenchmark=true [-Dbenchmark.movies=200000]
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TitleIndexBenchmarkTest {
+
+    private static final long BASE_ID = 900_000_000L;
+    private static final String[] WORDS = {"dark", "knight", "return", "star", "night", "love", "city", "lost",
+            "blade", "runner", "empire", "ghost", "shadow", "river", "winter", "storm", "silent", "garden"};
+    private static final String[] QUERIES = {"kni", "dark kn", "shadow riv", "empire of", "stor", "lost ci"};
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private MovieTypeaheadService movieTypeaheadService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM movie WHERE id >= ?", BASE_ID);
+    }
+
+    @Test
+    void compareIndexWithSql() {
+        int count = Integer.getInteger("benchmark.movies", 200_000);
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            movies.add(Movie.builder().id(BASE_ID + i)
+                    .title(WORDS[i % WORDS.length] + " of the " + WORDS[(i / 7) % WORDS.length] + " " + i).build());
+        }
+        movieRepository.upsertAll(movies);
+        movieTypeaheadService.buildIndex();
+
+        int rounds = 20;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (String query : QUERIES) {
+                movieRepository.findByTitleContainingIgnoreCase(query);
+            }
+        }
+        double sqlMicros = (System.nanoTime() - start) / 1e3 / (rounds * QUERIES.length);
+
+        // Warm-up, then measure
+        for (int round = 0; round < 1000; round++) {
+            movieTypeaheadService.suggest(QUERIES[round % QUERIES.length], 10);
+        }
+        int indexRounds = 2000;
+        start = System.nanoTime();
+        for (int round = 0; round < indexRounds; round++) {
+            for (String query : QUERIES) {
+                assertFalse(movieTypeaheadService.suggest(query, 10).isEmpty());
+            }
+        }
+        double indexMicros = (System.nanoTime() - start) / 1e3 / (indexRounds * QUERIES.length);
+
+        System.out.printf("[DEBUG_LOG] SQL LIKE:    %.1f us/query over %d movies%n", sqlMicros, count);
+        System.out.printf("[DEBUG_LOG] title index: %.1f us/query over %d movies%n", indexMicros, count);
+    }
+}
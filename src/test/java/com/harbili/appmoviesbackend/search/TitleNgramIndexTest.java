@@ -0,0 +1,77 @@
+package com.harbili.appmoviesbackend.search;
+
+import com.harbili.appmoviesbackend.dto.MovieSuggestionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleNgramIndexTest {
+
+    private static List<Long> ids(List<MovieSuggestionDTO> suggestions) {
+        return suggestions.stream().map(MovieSuggestionDTO::getId).toList();
+    }
+
+    @Test
+    void matchesSubstringsIgnoringCaseAndAccents() {
+        TitleNgramIndex index = new TitleNgramIndex();
+        index.put(1, "Amélie");
+        index.put(2, "The Dark Knight");
+        index.put(3, "Knight and Day");
+
+        assertEquals(List.of(1L), ids(index.search("AMEL", 10)));
+        assertEquals(List.of(3L, 2L), ids(index.search("knight", 10)));
+        assertEquals(List.of(2L), ids(index.search("rk kni", 10)));
+        assertTrue(index.search("knightly", 10).isEmpty());
+    }
+
+    @Test
+    void shortQueriesMatchWordPrefixes() {
+        TitleNgramIndex index = new TitleNgramIndex();
+        index.put(1, "Heat");
+        index.put(2, "The Thing");
+        index.put(3, "Alien");
+
+        assertEquals(List.of(2L), ids(index.search("th", 10)));
+        assertEquals(List.of(1L), ids(index.search("h", 10)));
+    }
+
+    @Test
+    void ranksExactThenPrefixThenWordThenSubstring() {
+        TitleNgramIndex index = new TitleNgramIndex();
+        index.put(1, "Ex Alien Nation");
+        index.put(2, "Aliens");
+        index.put(3, "Alien");
+        index.put(4, "Xalien");
+
+        assertEquals(List.of(3L, 2L, 1L, 4L), ids(index.search("alien", 10)));
+        assertEquals(List.of(3L, 2L), ids(index.search("alien", 2)));
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisible() {
+        TitleNgramIndex index = new TitleNgramIndex();
+        index.put(1, "Working title");
+        index.put(1, "Final title");
+        assertTrue(index.search("working", 10).isEmpty());
+        assertEquals(List.of(1L), ids(index.search("final", 10)));
+
+        index.remove(1);
+        assertTrue(index.search("final", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void compactionKeepsLiveTitles() {
+        TitleNgramIndex index = new TitleNgramIndex();
+        for (int round = 0; round < 5; round++) {
+            for (long id = 0; id < 1000; id++) {
+                index.put(id, "Movie " + id + " round " + round);
+            }
+        }
+        assertEquals(1000, index.size());
+        assertEquals(List.of(42L), ids(index.search("movie 42 round 4", 10)));
+        assertTrue(index.search("round 3", 10).isEmpty());
+    }
+}
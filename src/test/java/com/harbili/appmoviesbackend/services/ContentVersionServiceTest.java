@@ -0,0 +1,92 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.events.MovieDeletedEvent;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentVersionServiceTest {
+
+    @Test
+    void catalogETagChangesOnlyWithTheCatalog() {
+        ContentVersionService versions = new ContentVersionService();
+        String etag = versions.catalogETag();
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""), "strong ETag expected: " + etag);
+
+        versions.userChanged(1L);
+        assertEquals(etag, versions.catalogETag());
+
+        versions.onMoviesUpserted(new MoviesUpsertedEvent(List.of()));
+        String upserted = versions.catalogETag();
+        assertNotEquals(etag, upserted);
+
+        versions.onMovieDeleted(new MovieDeletedEvent(1L));
+        assertNotEquals(upserted, versions.catalogETag());
+    }
+
+    @Test
+    void userETagFollowsTheUserAndTheCatalog() {
+        ContentVersionService versions = new ContentVersionService();
+        String etag = versions.userETag(7);
+        assertEquals(etag, versions.userETag(7));
+
+        versions.userChanged(7L);
+        String changed = versions.userETag(7);
+        assertNotEquals(etag, changed);
+
+        versions.catalogChanged();
+        assertNotEquals(changed, versions.userETag(7));
+
+        versions.userChanged(null);
+    }
+
+    @Test
+    void otherUsersChangesRarelyTouchTheETag() {
+        ContentVersionService versions = new ContentVersionService();
+        String etag = versions.userETag(1);
+        int unchanged = 0;
+        for (long userId = 2; userId < 1002; userId++) {
+            versions.userChanged(userId);
+            String next = versions.userETag(1);
+            if (next.equals(etag)) {
+                unchanged++;
+            }
+            etag = next;
+        }
+        // Collisions on the stripes only cost a full response
+        assertTrue(unchanged > 900, "only " + unchanged + " changes left user 1 alone");
+    }
+
+    @Test
+    void changesInsideATransactionShowOnceItHasCommitted() {
+        ContentVersionService versions = new ContentVersionService();
+        String userETag = versions.userETag(7);
+        String catalogETag = versions.catalogETag();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            versions.userChanged(7L);
+            versions.catalogChanged();
+            assertEquals(userETag, versions.userETag(7));
+            assertEquals(catalogETag, versions.catalogETag());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertNotEquals(catalogETag, versions.catalogETag());
+        assertNotEquals(userETag, versions.userETag(7));
+    }
+
+    @Test
+    void eachInstanceHasItsOwnETags() {
+        assertNotEquals(new ContentVersionService().catalogETag(), new ContentVersionService().catalogETag());
+    }
+}
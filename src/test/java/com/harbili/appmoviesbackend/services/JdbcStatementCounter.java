@@ -0,0 +1,58 @@
+package com.harbili.appmoviesbackend.services;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Counts the JDBC statements the current thread sends to the database
+ *
+ * The DataSource is wrapped, so the statements run with JdbcTemplate are
+ * counted as well as those of Hibernate, which its statistics miss. A JDBC
+ * batch counts as one statement, like the single round trip the driver
+ * makes of it.
+ */
+@TestConfiguration
+class JdbcStatementCounter implements BeanPostProcessor {
+
+    private final ThreadLocal<long[]> counts = ThreadLocal.withInitial(() -> new long[1]);
+
+    void clear() {
+        counts.get()[0] = 0;
+    }
+
+    long count() {
+        return counts.get()[0];
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource dataSource ? wrap(DataSource.class, dataSource) : bean;
+    }
+
+    private Object wrap(Class<?> type, Object target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (target instanceof Statement && method.getName().startsWith("execute")) {
+                counts.get()[0]++;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returned = method.getReturnType();
+            if (result != null && (returned == Connection.class || Statement.class.isAssignableFrom(returned))) {
+                return wrap(returned, result);
+            }
+            return result;
+        };
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
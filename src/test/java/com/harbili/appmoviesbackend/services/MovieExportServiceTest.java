@@ -0,0 +1,56 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MovieExportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void writesOneJsonLinePerMovieAndDetachesEachRow() throws Exception {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        EntityManager entityManager = mock(EntityManager.class);
+        when(movieRepository.streamAllAfter(100L)).thenReturn(Stream.of(
+                Movie.builder().id(101L).title("Heat").releaseDate(LocalDate.of(1995, 12, 15)).build(),
+                Movie.builder().id(102L).title("Ronin").posterPath("/ronin.jpg").build()));
+        MovieExportService exportService = new MovieExportService(movieRepository, entityManager, objectMapper);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, exportService.exportNdjson(100L, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(101L, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals("1995-12-15", objectMapper.readTree(lines[0]).get("releaseDate").asText());
+        assertEquals("Ronin", objectMapper.readTree(lines[1]).get("title").asText());
+        verify(entityManager, times(2)).detach(any());
+    }
+
+    @Test
+    void exportStartsFromTheBeginningWithoutAfterId() throws Exception {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        when(movieRepository.streamAllAfter(Long.MIN_VALUE)).thenReturn(Stream.empty());
+        MovieExportService exportService = new MovieExportService(movieRepository, mock(EntityManager.class), objectMapper);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, exportService.exportNdjson(null, out));
+        assertEquals(0, out.size());
+    }
+}
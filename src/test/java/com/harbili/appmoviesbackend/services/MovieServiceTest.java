@@ -0,0 +1,177 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.dto.MoviePageDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.events.MoviesUpsertedEvent;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MovieServiceTest {
+
+    @Test
+    void concurrentMissesForTheSameMovieTriggerOneTmdbCall() throws Exception {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        TmdbClient tmdbClient = mock(TmdbClient.class);
+        MovieService movieService = new MovieService(movieRepository, mock(MovieIngestionService.class), tmdbClient,
+                mock(ApplicationEventPublisher.class));
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(movieRepository.findById(603L)).thenReturn(Optional.empty());
+        when(tmdbClient.getMovie(603L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Movie.builder().id(603L).title("The Matrix").build();
+        });
+
+        int callers = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<MovieDTO>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(pool.submit(() -> movieService.getMovieById(603L)));
+        }
+        // Leave every caller time to reach the in-flight fetch before TMDB answers
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<MovieDTO> result : results) {
+            assertEquals("The Matrix", result.get(5, TimeUnit.SECONDS).getTitle());
+        }
+        pool.shutdown();
+
+        verify(tmdbClient, times(1)).getMovie(603L);
+        verify(movieRepository, times(1)).upsertAll(any());
+    }
+
+    @Test
+    void unknownMovieGivesNull() {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        TmdbClient tmdbClient = mock(TmdbClient.class);
+        MovieService movieService = new MovieService(movieRepository, mock(MovieIngestionService.class), tmdbClient,
+                mock(ApplicationEventPublisher.class));
+        when(movieRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertNull(movieService.getMovieById(1L));
+        verify(movieRepository, never()).upsertAll(any());
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromTheCacheUntilTheMovieIsUpdated() {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        MovieService movieService = new MovieService(movieRepository, mock(MovieIngestionService.class), mock(TmdbClient.class),
+                mock(ApplicationEventPublisher.class));
+        Movie matrix = Movie.builder().id(603L).title("The Matrix").build();
+        when(movieRepository.findById(603L)).thenReturn(Optional.of(matrix));
+        when(movieRepository.save(any(Movie.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("The Matrix", movieService.getMovieById(603L).getTitle());
+        }
+        verify(movieRepository, times(1)).findById(603L);
+
+        movieService.updateMovie(603L, Movie.builder().title("The Matrix Reloaded").build());
+        assertEquals("The Matrix Reloaded", movieService.getMovieById(603L).getTitle());
+        assertEquals(2, movieService.getCacheStats().getHits());
+        assertEquals(2, movieService.getCacheStats().getMisses());
+    }
+
+    @Test
+    void aMovieReadThroughFromTmdbIsCachedDespiteItsUpsertEvent() {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        TmdbClient tmdbClient = mock(TmdbClient.class);
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        MovieService movieService = new MovieService(movieRepository, mock(MovieIngestionService.class), tmdbClient,
+                eventPublisher);
+        // Deliver the upsert event like Spring does, which invalidates the movie in the cache
+        doAnswer(invocation -> {
+            movieService.onMoviesUpserted(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(MoviesUpsertedEvent.class));
+        when(movieRepository.findById(603L)).thenReturn(Optional.empty());
+        when(tmdbClient.getMovie(603L)).thenReturn(Movie.builder().id(603L).title("The Matrix").build());
+
+        assertEquals("The Matrix", movieService.getMovieById(603L).getTitle());
+        assertEquals("The Matrix", movieService.getMovieById(603L).getTitle());
+
+        verify(tmdbClient, times(1)).getMovie(603L);
+        verify(movieRepository, times(1)).findById(603L);
+        assertEquals(1, movieService.getCacheStats().getHits());
+    }
+
+    @Test
+    void aMovieReadThroughInATransactionIsNotCachedIfItRollsBack() {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        TmdbClient tmdbClient = mock(TmdbClient.class);
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        MovieService movieService = new MovieService(movieRepository, mock(MovieIngestionService.class), tmdbClient,
+                eventPublisher);
+        when(movieRepository.findById(603L)).thenReturn(Optional.empty());
+        when(tmdbClient.getMovie(603L)).thenReturn(Movie.builder().id(603L).title("The Matrix").build());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals("The Matrix", movieService.getMovieById(603L).getTitle());
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, movieService.getCacheStats().getSize());
+        verify(eventPublisher, never()).publishEvent(any(MoviesUpsertedEvent.class));
+    }
+
+    @Test
+    void titlePagesContinueWithUntitledMoviesAfterTheLastTitle() {
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        MovieService movieService = new MovieService(movieRepository, mock(MovieIngestionService.class), mock(TmdbClient.class),
+                mock(ApplicationEventPublisher.class));
+        Movie alien = Movie.builder().id(348L).title("Alien").build();
+        Movie brazil = Movie.builder().id(68L).title("Brazil").build();
+        Movie untitled = Movie.builder().id(7L).build();
+        when(movieRepository.findPageByTitle(eq(""), anyLong(), eq(Limit.of(3)))).thenReturn(List.of(alien, brazil));
+        when(movieRepository.findPageWithoutTitle(Long.MIN_VALUE, Limit.of(1))).thenReturn(List.of(untitled));
+        when(movieRepository.findPageWithoutTitle(7L, Limit.of(3))).thenReturn(List.of());
+
+        MoviePageDTO first = movieService.getMoviePage(MovieService.SORT_TITLE, 2, null);
+        assertEquals(List.of("Alien", "Brazil"), first.getItems().stream().map(MovieDTO::getTitle).toList());
+        assertNotNull(first.getNextCursor());
+
+        when(movieRepository.findPageByTitle(eq("Brazil"), eq(68L), eq(Limit.of(3)))).thenReturn(List.of());
+        when(movieRepository.findPageWithoutTitle(Long.MIN_VALUE, Limit.of(3))).thenReturn(List.of(untitled));
+        MoviePageDTO second = movieService.getMoviePage(MovieService.SORT_TITLE, 2, first.getNextCursor());
+        assertEquals(1, second.getItems().size());
+        assertEquals(7L, second.getItems().get(0).getId());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void cursorFromAnotherSortIsRejected() {
+        MovieService movieService = new MovieService(mock(MovieRepository.class), mock(MovieIngestionService.class), mock(TmdbClient.class),
+                mock(ApplicationEventPublisher.class));
+        String cursor = new KeysetCursor(MovieService.SORT_ID, "42", 42L).encode();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> movieService.getMoviePage(MovieService.SORT_TITLE, 10, cursor));
+    }
+}
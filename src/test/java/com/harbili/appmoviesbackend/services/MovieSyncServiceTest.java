@@ -0,0 +1,193 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.entities.SyncCheckpoint;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.SyncCheckpointRepository;
+import com.harbili.appmoviesbackend.tmdb.TmdbCircuitBreaker;
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import com.harbili.appmoviesbackend.tmdb.TmdbRateLimiter;
+import com.harbili.appmoviesbackend.tmdb.TmdbResponseCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the incremental sync against a local HTTP stub standing in for TMDB
+ */
+class MovieSyncServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-20T10:00:00Z");
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer tmdbStub;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile String overview = "Updated overview";
+
+    private MovieRepository movieRepository;
+    private SyncCheckpointRepository syncCheckpointRepository;
+    private MovieSyncService movieSyncService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tmdbStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        tmdbStub.createContext("/3/movie/changes", exchange -> {
+            requests.add(exchange.getRequestURI().toString());
+            respond(exchange, "{\"results\":[{\"id\":550,\"adult\":false},{\"id\":999,\"adult\":false},"
+                    + "{\"id\":13,\"adult\":true}],\"page\":1,\"total_pages\":1}");
+        });
+        tmdbStub.createContext("/3/movie/550", exchange -> {
+            requests.add(exchange.getRequestURI().toString());
+            respond(exchange, "{\"id\":550,\"title\":\"Fight Club\",\"overview\":\"" + overview + "\","
+                    + "\"poster_path\":\"/new.jpg\",\"release_date\":\"1999-10-15\","
+                    + "\"genres\":[{\"id\":18,\"name\":\"Drama\"}]}");
+        });
+        tmdbStub.start();
+
+        TmdbClient tmdbClient = new TmdbClient("http://localhost:" + tmdbStub.getAddress().getPort() + "/3", "test-key");
+        movieRepository = mock(MovieRepository.class);
+        syncCheckpointRepository = mock(SyncCheckpointRepository.class);
+        movieSyncService = new MovieSyncService(tmdbClient, movieRepository, syncCheckpointRepository,
+                mock(ApplicationEventPublisher.class), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tmdbStub.stop(0);
+    }
+
+    @Test
+    void firstRunOnlyInitializesCheckpoint() {
+        when(syncCheckpointRepository.findById(MovieSyncService.CHECKPOINT_NAME)).thenReturn(Optional.empty());
+
+        assertEquals(0, movieSyncService.syncChanges());
+
+        ArgumentCaptor<SyncCheckpoint> saved = ArgumentCaptor.forClass(SyncCheckpoint.class);
+        verify(syncCheckpointRepository).save(saved.capture());
+        assertEquals(NOW, saved.getValue().getLastSyncedAt());
+        assertTrue(requests.isEmpty(), "No TMDB call expected on the first run");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refreshesOnlyChangedMoviesPresentLocally() {
+        SyncCheckpoint checkpoint = new SyncCheckpoint(MovieSyncService.CHECKPOINT_NAME, Instant.parse("2024-05-18T08:00:00Z"));
+        when(syncCheckpointRepository.findById(MovieSyncService.CHECKPOINT_NAME)).thenReturn(Optional.of(checkpoint));
+        when(movieRepository.findExistingIds(anyCollection())).thenReturn(List.of(550L));
+        when(movieRepository.upsertAll(any())).thenAnswer(invocation -> ((List<Movie>) invocation.getArgument(0)).size());
+
+        assertEquals(1, movieSyncService.syncChanges());
+
+        assertTrue(requests.get(0).contains("start_date=2024-05-18&end_date=2024-05-20"));
+        assertEquals(2, requests.size(), "Only the changes list and the known movie should be fetched");
+
+        ArgumentCaptor<List<Movie>> upserted = ArgumentCaptor.forClass(List.class);
+        verify(movieRepository).upsertAll(upserted.capture());
+        Movie movie = upserted.getValue().get(0);
+        assertEquals(550L, movie.getId());
+        assertEquals("Updated overview", movie.getOverview());
+        assertEquals(List.of("Drama"), movie.getGenres());
+
+        verify(syncCheckpointRepository).save(checkpoint);
+        assertEquals(NOW, checkpoint.getLastSyncedAt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changedMoviesAreFetchedFromTmdbEvenWhenCached() throws IOException {
+        TmdbClient cachedClient = cachedClient();
+        movieSyncService = new MovieSyncService(cachedClient, movieRepository, syncCheckpointRepository,
+                mock(ApplicationEventPublisher.class), Clock.fixed(NOW, ZoneOffset.UTC));
+        // A fresh entry holding the movie as it was before the change
+        overview = "Old overview";
+        assertEquals("Old overview", cachedClient.getMovie(550).getOverview());
+        overview = "Updated overview";
+
+        SyncCheckpoint checkpoint = new SyncCheckpoint(MovieSyncService.CHECKPOINT_NAME, Instant.parse("2024-05-18T08:00:00Z"));
+        when(syncCheckpointRepository.findById(MovieSyncService.CHECKPOINT_NAME)).thenReturn(Optional.of(checkpoint));
+        when(movieRepository.findExistingIds(anyCollection())).thenReturn(List.of(550L));
+        when(movieRepository.upsertAll(any())).thenAnswer(invocation -> ((List<Movie>) invocation.getArgument(0)).size());
+
+        assertEquals(1, movieSyncService.syncChanges());
+
+        ArgumentCaptor<List<Movie>> upserted = ArgumentCaptor.forClass(List.class);
+        verify(movieRepository).upsertAll(upserted.capture());
+        assertEquals("Updated overview", upserted.getValue().get(0).getOverview());
+        // The cache now holds the new answer too
+        assertEquals("Updated overview", cachedClient.getMovie(550).getOverview());
+    }
+
+    @Test
+    void aTmdbFailureOnAChangedMovieLeavesTheCheckpointInPlace() throws IOException {
+        TmdbClient cachedClient = cachedClient();
+        movieSyncService = new MovieSyncService(cachedClient, movieRepository, syncCheckpointRepository,
+                mock(ApplicationEventPublisher.class), Clock.fixed(NOW, ZoneOffset.UTC));
+        cachedClient.getMovie(550);
+        tmdbStub.removeContext("/3/movie/550");
+        tmdbStub.createContext("/3/movie/550", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+
+        Instant lastSyncedAt = Instant.parse("2024-05-18T08:00:00Z");
+        SyncCheckpoint checkpoint = new SyncCheckpoint(MovieSyncService.CHECKPOINT_NAME, lastSyncedAt);
+        when(syncCheckpointRepository.findById(MovieSyncService.CHECKPOINT_NAME)).thenReturn(Optional.of(checkpoint));
+        when(movieRepository.findExistingIds(anyCollection())).thenReturn(List.of(550L));
+
+        assertThrows(RuntimeException.class, () -> movieSyncService.syncChanges());
+
+        verify(movieRepository, never()).upsertAll(any());
+        verify(syncCheckpointRepository, never()).save(any());
+        assertEquals(lastSyncedAt, checkpoint.getLastSyncedAt());
+    }
+
+    /**
+     * A client with the response cache, whose entries stay fresh for the whole test
+     */
+    private TmdbClient cachedClient() throws IOException {
+        TmdbResponseCache cache = new TmdbResponseCache(cacheDir.toString(), true, Duration.ofHours(6), Duration.ofDays(7),
+                DataSize.ofMegabytes(10));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new TmdbClient("http://localhost:" + tmdbStub.getAddress().getPort() + "/3", "test-key",
+                Duration.ofSeconds(1), Duration.ofSeconds(1), cache,
+                new TmdbRateLimiter(100, 100, meterRegistry),
+                new TmdbCircuitBreaker(5, Duration.ofSeconds(30), meterRegistry),
+                meterRegistry);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.cache.DiskLruCache;
+import com.harbili.appmoviesbackend.tmdb.TmdbClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PosterServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] poster(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void downloadsEachPosterOnceAndResizesItPerWidth() throws Exception {
+        TmdbClient tmdbClient = mock(TmdbClient.class);
+        when(tmdbClient.getPosterImage("/abc.jpg")).thenReturn(poster(780, 1170));
+        PosterService posterService = new PosterService(tmdbClient, new DiskLruCache(directory, 10_000_000),
+                List.of(92, 500, 780), 500);
+
+        BufferedImage thumbnail = ImageIO.read(posterService.getPoster("abc.jpg", 92).toFile());
+        assertEquals(92, thumbnail.getWidth());
+        assertEquals(138, thumbnail.getHeight());
+        assertEquals(500, ImageIO.read(posterService.getPoster("abc.jpg", null).toFile()).getWidth());
+        assertEquals(780, ImageIO.read(posterService.getPoster("abc.jpg", 780).toFile()).getWidth());
+        posterService.getPoster("abc.jpg", 92);
+
+        verify(tmdbClient, times(1)).getPosterImage("/abc.jpg");
+    }
+
+    @Test
+    void rejectsPathsAndUnknownWidths() throws Exception {
+        PosterService posterService = new PosterService(mock(TmdbClient.class), new DiskLruCache(directory, 1000),
+                List.of(92, 500), 500);
+
+        assertThrows(IllegalArgumentException.class, () -> posterService.getPoster("../secret.jpg", 92));
+        assertThrows(IllegalArgumentException.class, () -> posterService.getPoster("abc.gif", 92));
+        assertThrows(IllegalArgumentException.class, () -> posterService.getPoster("abc.jpg", 4000));
+    }
+}
@@ -0,0 +1,318 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.WatchlistBatchOperation;
+import com.harbili.appmoviesbackend.dto.WatchlistBatchOperation.Type;
+import com.harbili.appmoviesbackend.dto.MovieDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistBatchResultDTO;
+import com.harbili.appmoviesbackend.entities.WatchlistChangeType;
+import com.harbili.appmoviesbackend.entities.WatchlistItem;
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistCounterDelta;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemKeyView;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemStateView;
+import com.harbili.appmoviesbackend.repositories.WatchlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class WatchlistBatchServiceTest {
+
+    private static final long USER = 7L;
+
+    private WatchlistItemRepository watchlistItemRepository;
+    private WatchlistRepository watchlistRepository;
+    private MovieRepository movieRepository;
+    private MovieService movieService;
+    private ContentVersionService contentVersionService;
+    private WatchlistChangeService watchlistChangeService;
+    private PlatformTransactionManager transactionManager;
+    private WatchlistBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        watchlistItemRepository = mock(WatchlistItemRepository.class);
+        watchlistRepository = mock(WatchlistRepository.class);
+        movieRepository = mock(MovieRepository.class);
+        movieService = mock(MovieService.class);
+        contentVersionService = new ContentVersionService();
+        watchlistChangeService = mock(WatchlistChangeService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        batchService = new WatchlistBatchService(watchlistItemRepository, watchlistRepository, movieRepository,
+                movieService, contentVersionService, watchlistChangeService, transactionManager);
+        // Watchlists 1 and 2; item 10 holds movie 100 in watchlist 1, seen and rated 3,
+        // item 11 holds movie 101 in watchlist 2, to watch
+        when(watchlistRepository.findIdsByUserId(USER)).thenReturn(List.of(1L, 2L));
+        when(watchlistItemRepository.findStatesByUserId(USER)).thenReturn(List.of(
+                state(10, 1, 100, WatchlistStatus.VU, 3), state(11, 2, 101, WatchlistStatus.À_VOIR, null)));
+        when(movieRepository.findExistingIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id < 900).toList();
+        });
+    }
+
+    private static WatchlistItemKeyView key(long id, long watchlistId, long movieId) {
+        return new WatchlistItemKeyView() {
+            public Long getId() { return id; }
+            public Long getWatchlistId() { return watchlistId; }
+            public Long getMovieId() { return movieId; }
+        };
+    }
+
+    private static WatchlistItemStateView state(long id, long watchlistId, long movieId,
+                                                WatchlistStatus status, Integer rating) {
+        return new WatchlistItemStateView() {
+            public Long getId() { return id; }
+            public Long getWatchlistId() { return watchlistId; }
+            public Long getMovieId() { return movieId; }
+            public WatchlistStatus getStatus() { return status; }
+            public Integer getRating() { return rating; }
+        };
+    }
+
+    private static WatchlistBatchOperation operation(Type type) {
+        return WatchlistBatchOperation.builder().type(type).build();
+    }
+
+    @Test
+    void eachOperationIsCheckedAtItsPositionAndTheValidOnesAreBatchedPerKind() {
+        when(watchlistItemRepository.findKeysByWatchlistIdsAndMovieIds(anyCollection(), anyCollection()))
+                .thenReturn(List.of(key(12, 1, 102)));
+        when(watchlistItemRepository.findKeysByIds(anyCollection())).thenReturn(List.of(key(11, 1, 101)));
+        String etag = contentVersionService.userETag(USER);
+
+        List<WatchlistBatchOperation> operations = List.of(
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(1L).movieId(102L).build(),
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(1L).movieId(100L).build(),
+                WatchlistBatchOperation.builder().type(Type.MOVE).itemId(11L).targetWatchlistId(1L).build(),
+                WatchlistBatchOperation.builder().type(Type.UPDATE).itemId(10L).rating(4).build(),
+                WatchlistBatchOperation.builder().type(Type.REMOVE).itemId(10L).build(),
+                WatchlistBatchOperation.builder().type(Type.UPDATE).itemId(10L).rating(5).build(),
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(3L).movieId(100L).build(),
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(2L).movieId(999L).build(),
+                WatchlistBatchOperation.builder().type(Type.MOVE).itemId(99L).targetWatchlistId(2L).build(),
+                operation(null));
+
+        List<WatchlistBatchResultDTO> results = batchService.apply(USER, operations);
+
+        assertEquals(operations.size(), results.size());
+        boolean[] expected = {true, false, true, true, true, false, false, false, false, false};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertEquals(expected[i], results.get(i).isSuccess(), "operation " + i + ": " + results.get(i).getMessage());
+        }
+        assertEquals(12L, results.get(0).getItemId());
+        assertEquals("Movie already in watchlist", results.get(1).getMessage());
+        assertEquals("MOVE", results.get(2).getType());
+
+        verify(watchlistItemRepository).deleteAllByIdInBatch(List.of(10L));
+        List<WatchlistItem> moves = captured("moveAll");
+        assertEquals(1, moves.size());
+        assertEquals(11L, moves.get(0).getId());
+        assertEquals(1L, moves.get(0).getWatchlist().getId());
+        List<WatchlistItem> updates = captured("updateAll");
+        assertEquals(1, updates.size());
+        assertEquals(4, updates.get(0).getRating());
+        assertNull(updates.get(0).getStatus(), "a field absent from the operation stays unchanged");
+        List<WatchlistItem> adds = captured("insertAll");
+        assertEquals(1, adds.size());
+        assertEquals(102L, adds.get(0).getMovieId());
+        assertEquals(WatchlistStatus.À_VOIR, adds.get(0).getStatus());
+
+        // The referenced items are locked before anything is read
+        var order = inOrder(watchlistItemRepository, watchlistRepository);
+        order.verify(watchlistItemRepository).lockAll(Set.of(10L, 11L, 99L));
+        order.verify(watchlistItemRepository).findStatesByUserId(USER);
+
+        // Watchlist 1: one add and one move to watch, item 10 rated 4 then removed; watchlist 2: one move out
+        Map<Long, WatchlistCounterDelta> deltas = capturedDeltas();
+        WatchlistCounterDelta first = deltas.get(1L);
+        assertEquals(2, first.getToWatch());
+        assertEquals(-1, first.getWatched());
+        assertEquals(0, first.getInProgress());
+        assertEquals(-3, first.getRatingSum());
+        assertEquals(-1, first.getRatingCount());
+        WatchlistCounterDelta second = deltas.get(2L);
+        assertEquals(-1, second.getToWatch());
+        assertEquals(0, second.getRatingCount());
+
+        assertNotEquals(etag, contentVersionService.userETag(USER));
+        // One change per successful operation, under a single version
+        verify(watchlistChangeService).record(USER,
+                List.of(WatchlistChangeType.ITEM_UPSERTED, WatchlistChangeType.ITEM_UPSERTED,
+                        WatchlistChangeType.ITEM_UPSERTED, WatchlistChangeType.ITEM_DELETED),
+                List.of(12L, 11L, 10L, 10L));
+    }
+
+    @Test
+    void theCountersAreUpdatedBeforeTheItemsAreWritten() {
+        batchService.apply(USER, List.of(
+                WatchlistBatchOperation.builder().type(Type.UPDATE).itemId(11L).status(WatchlistStatus.EN_COURS).rating(5).build(),
+                WatchlistBatchOperation.builder().type(Type.UPDATE).itemId(10L).notes("Notes only").build()));
+
+        var order = inOrder(watchlistItemRepository, watchlistRepository);
+        order.verify(watchlistRepository).addAllToCounters(anyMap());
+        order.verify(watchlistItemRepository).updateAll(anyCollection());
+
+        Map<Long, WatchlistCounterDelta> deltas = capturedDeltas();
+        assertTrue(deltas.get(1L).isEmpty(), "notes are not counted");
+        WatchlistCounterDelta second = deltas.get(2L);
+        assertEquals(-1, second.getToWatch());
+        assertEquals(1, second.getInProgress());
+        assertEquals(5, second.getRatingSum());
+        assertEquals(1, second.getRatingCount());
+    }
+
+    @Test
+    void aPairFreedEarlierInTheBatchCanBeReused() {
+        when(watchlistItemRepository.findStatesByUserId(USER)).thenReturn(List.of(
+                state(10, 1, 100, WatchlistStatus.VU, null), state(11, 2, 100, WatchlistStatus.VU, null)));
+        when(watchlistItemRepository.findKeysByIds(anyCollection())).thenReturn(List.of(key(11, 1, 100)));
+
+        List<WatchlistBatchResultDTO> results = batchService.apply(USER, List.of(
+                WatchlistBatchOperation.builder().type(Type.MOVE).itemId(11L).targetWatchlistId(1L).build(),
+                WatchlistBatchOperation.builder().type(Type.REMOVE).itemId(10L).build(),
+                WatchlistBatchOperation.builder().type(Type.MOVE).itemId(11L).targetWatchlistId(1L).build()));
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        // The remove is written before the move, so the unique key is never hit
+        var order = inOrder(watchlistItemRepository);
+        order.verify(watchlistItemRepository).deleteAllByIdInBatch(List.of(10L));
+        order.verify(watchlistItemRepository).moveAll(anyCollection());
+        // Watchlist 1 loses item 10 and gains item 11: its counters are unchanged
+        assertTrue(capturedDeltas().get(1L).isEmpty());
+    }
+
+    @Test
+    void aMovieMissingFromTheCatalogIsReadThroughFromTmdb() {
+        when(movieService.getMovieById(950L)).thenReturn(new MovieDTO(950L, "From TMDB", null, null, null, List.of()));
+        when(watchlistItemRepository.findKeysByWatchlistIdsAndMovieIds(anyCollection(), anyCollection()))
+                .thenReturn(List.of(key(12, 2, 950)));
+
+        List<WatchlistBatchResultDTO> results = batchService.apply(USER, List.of(
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(2L).movieId(950L).build(),
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(2L).movieId(999L).build()));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(12L, results.get(0).getItemId());
+        assertEquals("Movie not found: 999", results.get(1).getMessage());
+        // Only the movies missing from the catalog are looked up
+        verify(movieService, never()).getMovieById(100L);
+        // TMDB answers before the transaction starts and the items are locked
+        var order = inOrder(movieService, transactionManager, watchlistItemRepository);
+        order.verify(movieService).getMovieById(950L);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(watchlistItemRepository).lockAll(anyCollection());
+    }
+
+    @Test
+    void aMovieAddedConcurrentlyFailsItsOperationAndLeavesTheCountersAlone() {
+        // Movie 103 was added to watchlist 1 by another transaction: the insert skipped it and it is not read back
+        when(watchlistItemRepository.findKeysByWatchlistIdsAndMovieIds(anyCollection(), anyCollection()))
+                .thenReturn(List.of(key(12, 1, 102)));
+
+        List<WatchlistBatchResultDTO> results = batchService.apply(USER, List.of(
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(1L).movieId(102L).build(),
+                WatchlistBatchOperation.builder().type(Type.ADD).watchlistId(1L).movieId(103L)
+                        .status(WatchlistStatus.VU).build()));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Movie already in watchlist", results.get(1).getMessage());
+
+        // Both adds were counted before the insert, then the skipped one is taken back out
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Long, WatchlistCounterDelta>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(watchlistRepository, times(2)).addAllToCounters(captor.capture());
+        WatchlistCounterDelta counted = captor.getAllValues().get(0).get(1L);
+        assertEquals(1, counted.getToWatch());
+        assertEquals(1, counted.getWatched());
+        WatchlistCounterDelta correction = captor.getAllValues().get(1).get(1L);
+        assertEquals(0, correction.getToWatch());
+        assertEquals(-1, correction.getWatched());
+        verify(watchlistChangeService).record(USER, List.of(WatchlistChangeType.ITEM_UPSERTED), List.of(12L));
+    }
+
+    @Test
+    void aMoveToAWatchlistWhereTheMovieWasAddedConcurrentlyFailsAlone() {
+        // Movie 101 was added to watchlist 1 by another transaction: the move skipped item 11, still in watchlist 2
+        when(watchlistItemRepository.findKeysByIds(anyCollection())).thenReturn(List.of(key(11, 2, 101)));
+
+        List<WatchlistBatchResultDTO> results = batchService.apply(USER, List.of(
+                WatchlistBatchOperation.builder().type(Type.MOVE).itemId(11L).targetWatchlistId(1L).build(),
+                WatchlistBatchOperation.builder().type(Type.UPDATE).itemId(10L).rating(4).build()));
+
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Movie already in watchlist", results.get(0).getMessage());
+        assertTrue(results.get(1).isSuccess());
+
+        // The move was counted before it was written, then its counters go back to watchlist 2
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Long, WatchlistCounterDelta>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(watchlistRepository, times(2)).addAllToCounters(captor.capture());
+        assertEquals(1, captor.getAllValues().get(0).get(1L).getToWatch());
+        assertEquals(-1, captor.getAllValues().get(0).get(2L).getToWatch());
+        Map<Long, WatchlistCounterDelta> correction = captor.getAllValues().get(1);
+        assertEquals(-1, correction.get(1L).getToWatch());
+        assertEquals(1, correction.get(2L).getToWatch());
+        assertEquals(0, correction.get(1L).getRatingCount());
+        verify(watchlistChangeService).record(USER, List.of(WatchlistChangeType.ITEM_UPSERTED), List.of(10L));
+    }
+
+    @Test
+    void aBatchWithOnlyFailuresWritesNothing() {
+        String etag = contentVersionService.userETag(USER);
+
+        List<WatchlistBatchResultDTO> results = batchService.apply(USER, List.of(
+                WatchlistBatchOperation.builder().type(Type.REMOVE).itemId(42L).build()));
+
+        assertFalse(results.get(0).isSuccess());
+        verify(watchlistItemRepository, never()).deleteAllByIdInBatch(any());
+        verify(watchlistItemRepository, never()).findKeysByWatchlistIdsAndMovieIds(anyCollection(), anyCollection());
+        assertEquals(etag, contentVersionService.userETag(USER));
+        verifyNoInteractions(watchlistChangeService);
+    }
+
+    @Test
+    void tooManyOperationsAreRejected() {
+        List<WatchlistBatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            operations.add(operation(Type.REMOVE));
+        }
+        assertThrows(IllegalArgumentException.class, () -> batchService.apply(USER, operations));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<WatchlistItem> captured(String method) {
+        ArgumentCaptor<Collection<WatchlistItem>> captor = ArgumentCaptor.forClass(Collection.class);
+        switch (method) {
+            case "moveAll" -> verify(watchlistItemRepository).moveAll(captor.capture());
+            case "updateAll" -> verify(watchlistItemRepository).updateAll(captor.capture());
+            default -> verify(watchlistItemRepository).insertAll(captor.capture());
+        }
+        return new ArrayList<>(captor.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, WatchlistCounterDelta> capturedDeltas() {
+        ArgumentCaptor<Map<Long, WatchlistCounterDelta>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(watchlistRepository).addAllToCounters(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,130 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.WatchlistChangesDTO;
+import com.harbili.appmoviesbackend.events.WatchlistsChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.servlet.ServletRegistration;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks against an embedded Tomcat that a client which never reads only holds a sender thread until the
+ * write timeout of the connector
+ */
+class WatchlistChangeStreamServiceTest {
+
+    private WatchlistChangeService watchlistChangeService;
+    private WatchlistChangeStreamService streamService;
+    private AnnotationConfigWebApplicationContext context;
+    private WebServer server;
+
+    @BeforeEach
+    void setUp() {
+        watchlistChangeService = mock(WatchlistChangeService.class);
+        // A single sender thread, which the stuck client takes
+        streamService = new WatchlistChangeStreamService(watchlistChangeService, 1);
+
+        context = new AnnotationConfigWebApplicationContext();
+        context.register(WebConfig.class, StreamController.class);
+        context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.registerSingleton("watchlistChangeStreamService", streamService));
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.addConnectorCustomizers(connector -> {
+            // server.tomcat.connection-timeout, also the timeout of a blocked write
+            connector.setProperty("connectionTimeout", "1000");
+            connector.setProperty("socket.txBufSize", "4096");
+        });
+        server = factory.getWebServer(servletContext -> {
+            ServletRegistration.Dynamic dispatcher = servletContext.addServlet("dispatcher", new DispatcherServlet(context));
+            dispatcher.setAsyncSupported(true);
+            dispatcher.setLoadOnStartup(1);
+            dispatcher.addMapping("/");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.close();
+        server.stop();
+        context.close();
+    }
+
+    @Test
+    void aClientThatNeverReadsReleasesTheSenderThreadAfterTheWriteTimeout() throws Exception {
+        when(watchlistChangeService.getChanges(eq(1L), isNull()))
+                .thenReturn(new WatchlistChangesDTO(1, true, null, null, null, null));
+        // Far more than the socket buffers hold: the write blocks until the client reads
+        List<Long> deletedItemIds = LongStream.range(0, 1_000_000).boxed().toList();
+        when(watchlistChangeService.getChanges(1L, 1L))
+                .thenReturn(new WatchlistChangesDTO(2, false, null, null, null, deletedItemIds));
+        when(watchlistChangeService.getChanges(eq(2L), isNull()))
+                .thenReturn(new WatchlistChangesDTO(1, true, null, null, null, null));
+
+        try (Socket client = new Socket()) {
+            client.setReceiveBufferSize(4096);
+            client.connect(new InetSocketAddress("localhost", server.getPort()));
+            OutputStream out = client.getOutputStream();
+            out.write("GET /stream/1 HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            // The first event is written by the request thread, which opens the stream; the next ones by the sender
+            verify(watchlistChangeService, timeout(5000)).getChanges(eq(1L), isNull());
+            Thread.sleep(200);
+            streamService.onWatchlistsChanged(new WatchlistsChangedEvent(1L));
+            verify(watchlistChangeService, timeout(5000)).getChanges(1L, 1L);
+            Thread.sleep(200);
+
+            // Queued behind the blocked send, on the only sender thread
+            long start = System.nanoTime();
+            streamService.subscribe(2L, null);
+
+            verify(watchlistChangeService, timeout(5000)).getChanges(eq(2L), isNull());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500), "the send was not blocked");
+            // The failed write dropped the client that never read
+            streamService.onWatchlistsChanged(new WatchlistsChangedEvent(1L));
+            Thread.sleep(200);
+            verify(watchlistChangeService, times(2)).getChanges(eq(1L), any());
+        }
+    }
+
+    @EnableWebMvc
+    static class WebConfig {
+    }
+
+    @RestController
+    static class StreamController {
+        private final WatchlistChangeStreamService streamService;
+
+        StreamController(WatchlistChangeStreamService streamService) {
+            this.streamService = streamService;
+        }
+
+        @GetMapping("/stream/{userId}")
+        SseEmitter stream(@PathVariable("userId") Long userId) {
+            return streamService.subscribe(userId, null);
+        }
+    }
+}
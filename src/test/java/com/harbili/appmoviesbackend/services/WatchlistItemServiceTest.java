@@ -0,0 +1,388 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.WatchlistChangesDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistHeaderDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistItemDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistItemPageDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistSummaryDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistSyncItemDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.entities.User;
+import com.harbili.appmoviesbackend.entities.Watchlist;
+import com.harbili.appmoviesbackend.entities.WatchlistItem;
+import com.harbili.appmoviesbackend.entities.WatchlistStatus;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.UserRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistItemRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(JdbcStatementCounter.class)
+class WatchlistItemServiceTest {
+
+    private static final long BASE_MOVIE_ID = 910_000_000L;
+
+    @Autowired
+    private WatchlistItemService watchlistItemService;
+
+    @Autowired
+    private WatchlistService watchlistService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private WatchlistChangeService watchlistChangeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WatchlistRepository watchlistRepository;
+
+    @Autowired
+    private WatchlistItemRepository watchlistItemRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcStatementCounter statementCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Long> movieIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (User user : users) {
+            for (Watchlist watchlist : watchlistRepository.findByUserId(user.getId())) {
+                watchlistItemRepository.deleteAll(watchlistItemRepository.findByWatchlistId(watchlist.getId()));
+                watchlistRepository.delete(watchlist);
+            }
+            userRepository.delete(user);
+            jdbcTemplate.update("DELETE FROM watchlist_change WHERE user_id = ?", user.getId());
+            jdbcTemplate.update("DELETE FROM watchlist_change_version WHERE user_id = ?", user.getId());
+        }
+        movieRepository.deleteAllById(movieIds);
+    }
+
+    @Test
+    void listingItemsTakesOneStatementWhateverTheirNumber() {
+        Watchlist small = watchlistWithItems(5);
+        Watchlist large = watchlistWithItems(500);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        List<WatchlistItemDTO> smallItems = watchlistItemService.getWatchlistItems(small.getId());
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<WatchlistItemDTO> largeItems = watchlistItemService.getWatchlistItems(large.getId());
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<WatchlistItemDTO> toWatch = watchlistItemService.getWatchlistItemsByStatus(large.getId(), WatchlistStatus.À_VOIR);
+        long byStatusStatements = statistics.getPrepareStatementCount();
+
+        System.out.println("[DEBUG_LOG] Statements: " + smallStatements + " for 5 items, "
+                + largeStatements + " for 500 items, " + byStatusStatements + " by status");
+        assertEquals(5, smallItems.size());
+        assertEquals(500, largeItems.size());
+        assertEquals(1, smallStatements);
+        assertEquals(1, largeStatements);
+        assertEquals(1, byStatusStatements);
+        assertEquals(167, toWatch.size());
+
+        WatchlistItemDTO first = largeItems.get(0);
+        assertEquals("Query count movie 0", first.getMovieTitle());
+        assertEquals("À_VOIR", first.getStatus());
+        assertEquals("Unknown", largeItems.get(499).getMovieTitle(), "a movie missing from the catalog keeps the old fallback");
+    }
+
+    @Test
+    void addingAMovieTakesFourStatementsOnceTheMovieAndTheOwnerAreCached() {
+        Watchlist watchlist = watchlistWithItems(3);
+        long firstId = firstMovieId(watchlist);
+        movieRepository.saveAll(List.of(
+                Movie.builder().id(firstId + 10).title("Added movie").build(),
+                Movie.builder().id(firstId + 11).title("Other movie").build()));
+        movieIds.addAll(List.of(firstId + 10, firstId + 11));
+
+        // Warm the owner and movie caches
+        assertNotNull(watchlistItemService.addMovieToWatchlist(watchlist.getId(), firstId + 11, WatchlistStatus.VU));
+        assertNotNull(movieService.getMovieById(firstId + 10));
+
+        // Counted at the JDBC level: the writes go through JdbcTemplate, which the Hibernate statistics miss
+        statementCounter.clear();
+        WatchlistItemDTO added = watchlistItemService.addMovieToWatchlist(watchlist.getId(), firstId + 10, WatchlistStatus.EN_COURS);
+        // The insert, the counter update of the watchlist, then the version bump and the entry of the change log
+        assertEquals(4, statementCounter.count());
+        assertNotNull(added.getId());
+        assertEquals("Added movie", added.getMovieTitle());
+        assertEquals("EN_COURS", added.getStatus());
+
+        statementCounter.clear();
+        assertNull(watchlistItemService.addMovieToWatchlist(watchlist.getId(), firstId + 10, WatchlistStatus.VU), "duplicate");
+        // The insert alone, which adds nothing: nothing is counted nor logged
+        assertEquals(1, statementCounter.count());
+        assertNull(watchlistItemService.addMovieToWatchlist(watchlist.getId(), BASE_MOVIE_ID - 1, WatchlistStatus.VU), "unknown movie");
+        assertNull(watchlistItemService.addMovieToWatchlist(-1L, firstId + 10, WatchlistStatus.VU), "unknown watchlist");
+        assertEquals(5, watchlistItemService.getWatchlistItems(watchlist.getId()).size());
+    }
+
+    @Test
+    void concurrentAddsOfTheSameMovieInsertItOnce() throws Exception {
+        Watchlist watchlist = watchlistWithItems(1);
+        long movieId = firstMovieId(watchlist) + 10;
+        movieRepository.save(Movie.builder().id(movieId).title("Raced movie").build());
+        movieIds.add(movieId);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<WatchlistItemDTO>> adds = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            adds.add(executor.submit(() -> {
+                start.await();
+                return watchlistItemService.addMovieToWatchlist(watchlist.getId(), movieId, WatchlistStatus.À_VOIR);
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<WatchlistItemDTO> add : adds) {
+            if (add.get(30, TimeUnit.SECONDS) != null) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, succeeded);
+        assertEquals(1, watchlistItemService.getWatchlistItems(watchlist.getId()).stream()
+                .filter(item -> item.getMovieId() == movieId)
+                .count());
+    }
+
+    @Test
+    void theCountersFollowEveryWriteOfAnItem() {
+        Watchlist watchlist = watchlistWithItems(3);
+        long firstId = firstMovieId(watchlist);
+        movieRepository.save(Movie.builder().id(firstId + 10).title("Counted movie").build());
+        movieIds.add(firstId + 10);
+        // The items above were saved without going through the service
+        watchlistRepository.recomputeCounters();
+        List<WatchlistItemDTO> items = watchlistItemService.getWatchlistItems(watchlist.getId());
+
+        WatchlistSummaryDTO summary = watchlistService.getWatchlistSummary(watchlist.getId());
+        assertEquals(List.of(1, 1, 1), List.copyOf(summary.getStatusCounts().values()));
+        assertEquals(3, summary.getItemCount());
+        assertNull(summary.getAverageRating());
+
+        assertNotNull(watchlistItemService.addMovieToWatchlist(watchlist.getId(), firstId + 10, WatchlistStatus.VU));
+        assertNull(watchlistItemService.addMovieToWatchlist(watchlist.getId(), firstId + 10, WatchlistStatus.VU), "duplicate");
+        assertNotNull(watchlistItemService.updateWatchlistItem(items.get(0).getId(), WatchlistStatus.VU, 8, null));
+        assertNotNull(watchlistItemService.updateWatchlistItem(items.get(0).getId(), null, 6, "Rated again"));
+        assertTrue(watchlistItemService.removeMovieFromWatchlist(items.get(2).getId()));
+
+        summary = watchlistService.getWatchlistSummary(watchlist.getId());
+        assertEquals(0, summary.getStatusCounts().get("À_VOIR"));
+        assertEquals(3, summary.getStatusCounts().get("VU"));
+        assertEquals(0, summary.getStatusCounts().get("EN_COURS"));
+        assertEquals(3, summary.getItemCount());
+        assertEquals(1, summary.getRatingCount());
+        assertEquals(6.0, summary.getAverageRating());
+
+        // Recomputing from the items finds the same values
+        watchlistRepository.recomputeCounters();
+        WatchlistSummaryDTO recomputed = watchlistService.getWatchlistSummary(watchlist.getId());
+        assertEquals(summary.getStatusCounts(), recomputed.getStatusCounts());
+        assertEquals(summary.getRatingCount(), recomputed.getRatingCount());
+        assertEquals(summary.getAverageRating(), recomputed.getAverageRating());
+    }
+
+    @Test
+    void pagingThroughEachSortListsEveryItemOnceInOrder() {
+        int count = 30;
+        Watchlist watchlist = watchlistWithItems(count);
+        List<WatchlistItemDTO> items = watchlistItemService.getWatchlistItems(watchlist.getId());
+        // Ties on the rating and the release date; some items without rating, movie or release date
+        Integer[] ratings = new Integer[count];
+        LocalDate[] releaseDates = new LocalDate[count];
+        String[] titles = new String[count];
+        for (int i = 0; i < count; i++) {
+            WatchlistItemDTO item = items.get(i);
+            ratings[i] = i % 4 != 0 ? i % 5 : null;
+            releaseDates[i] = i % 3 != 0 && i < count - 1 ? LocalDate.of(2000 + i % 4, 1, 1) : null;
+            titles[i] = i < count - 1 ? "Query count movie " + i : null;
+            jdbcTemplate.update("UPDATE watchlist_item SET rating = ? WHERE id = ?", ratings[i], item.getId());
+            jdbcTemplate.update("UPDATE movie SET release_date = ? WHERE id = ?", releaseDates[i], item.getMovieId());
+        }
+        watchlistItemRepository.refreshMovieValues(items.stream().map(WatchlistItemDTO::getMovieId).toList());
+
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            indexes.add(i);
+        }
+        Comparator<Integer> byId = Comparator.comparing(i -> items.get(i).getId());
+        assertPages(watchlist, WatchlistItemService.SORT_ADDED, indexes.stream().sorted(byId.reversed()).toList(), items);
+        assertPages(watchlist, WatchlistItemService.SORT_RATING, sorted(indexes, i -> ratings[i],
+                Comparator.<Integer, Integer>comparing(i -> ratings[i]).thenComparing(byId).reversed(), byId), items);
+        assertPages(watchlist, WatchlistItemService.SORT_TITLE, sorted(indexes, i -> titles[i],
+                Comparator.<Integer, String>comparing(i -> titles[i]).thenComparing(byId), byId), items);
+        assertPages(watchlist, WatchlistItemService.SORT_RELEASE_DATE, sorted(indexes, i -> releaseDates[i],
+                Comparator.<Integer, LocalDate>comparing(i -> releaseDates[i]).thenComparing(byId).reversed(), byId), items);
+
+        String cursor = watchlistItemService.getWatchlistItemPage(watchlist.getId(), WatchlistItemService.SORT_RATING, 5, null)
+                .getNextCursor();
+        assertThrows(IllegalArgumentException.class,
+                () -> watchlistItemService.getWatchlistItemPage(watchlist.getId(), WatchlistItemService.SORT_TITLE, 5, cursor));
+        assertThrows(IllegalArgumentException.class,
+                () -> watchlistItemService.getWatchlistItemPage(watchlist.getId(), "notes", 5, null));
+    }
+
+    @Test
+    void theChangesSinceAVersionHoldTheCurrentValuesAndTombstones() {
+        Watchlist watchlist = watchlistWithItems(3);
+        Long userId = users.get(users.size() - 1).getId();
+        List<WatchlistItemDTO> items = watchlistItemService.getWatchlistItems(watchlist.getId());
+        long movieId = firstMovieId(watchlist) + 500;
+        movieRepository.save(Movie.builder().id(movieId).title("Added later").build());
+        movieIds.add(movieId);
+
+        // Items written without the services are only in the whole state
+        WatchlistChangesDTO state = watchlistChangeService.getChanges(userId, null);
+        assertTrue(state.isReset());
+        assertEquals(0, state.getVersion());
+        assertEquals(List.of(watchlist.getId()), state.getWatchlists().stream().map(WatchlistHeaderDTO::getId).toList());
+        assertEquals(3, state.getItems().size());
+
+        // Versions 1 to 5
+        Long addedId = watchlistItemService.addMovieToWatchlist(watchlist.getId(), movieId, WatchlistStatus.À_VOIR).getId();
+        watchlistItemService.updateWatchlistItem(items.get(0).getId(), WatchlistStatus.VU, 4, null);
+        watchlistItemService.removeMovieFromWatchlist(items.get(1).getId());
+        WatchlistDTO second = watchlistService.createWatchlist(
+                Watchlist.builder().name("Second").user(userRepository.findById(userId).orElseThrow()).build(), userId);
+        watchlistService.deleteWatchlist(second.getId());
+
+        WatchlistChangesDTO changes = watchlistChangeService.getChanges(userId, 0L);
+        assertFalse(changes.isReset());
+        assertEquals(5, changes.getVersion());
+        assertTrue(changes.getWatchlists().isEmpty(), "a watchlist created then deleted is only a tombstone");
+        assertEquals(List.of(second.getId()), changes.getDeletedWatchlistIds());
+        assertEquals(List.of(items.get(1).getId()), changes.getDeletedItemIds());
+        assertEquals(List.of(items.get(0).getId(), addedId),
+                changes.getItems().stream().map(WatchlistSyncItemDTO::getId).toList());
+        WatchlistSyncItemDTO updated = changes.getItems().get(0);
+        assertEquals(watchlist.getId(), updated.getWatchlistId());
+        assertEquals("VU", updated.getStatus());
+        assertEquals(4, updated.getRating());
+        assertEquals("Added later", changes.getItems().get(1).getMovieTitle());
+
+        WatchlistChangesDTO sinceUpdate = watchlistChangeService.getChanges(userId, 2L);
+        assertTrue(sinceUpdate.getItems().isEmpty());
+        assertEquals(List.of(items.get(1).getId()), sinceUpdate.getDeletedItemIds());
+
+        WatchlistChangesDTO upToDate = watchlistChangeService.getChanges(userId, 5L);
+        assertFalse(upToDate.isReset());
+        assertTrue(upToDate.getItems().isEmpty() && upToDate.getDeletedItemIds().isEmpty());
+
+        // A version this log never gave out, e.g. from before a database restore
+        WatchlistChangesDTO unknown = watchlistChangeService.getChanges(userId, 99L);
+        assertTrue(unknown.isReset());
+        assertEquals(5, unknown.getVersion());
+        assertEquals(3, unknown.getItems().size());
+    }
+
+    /**
+     * The items with a value in the given order, then those without, by ID
+     */
+    private static List<Integer> sorted(List<Integer> indexes, Function<Integer, Object> value,
+                                        Comparator<Integer> withValue, Comparator<Integer> withoutValue) {
+        List<Integer> order = new ArrayList<>(indexes.stream().filter(i -> value.apply(i) != null).sorted(withValue).toList());
+        order.addAll(indexes.stream().filter(i -> value.apply(i) == null).sorted(withoutValue).toList());
+        return order;
+    }
+
+    private void assertPages(Watchlist watchlist, String sort, List<Integer> expected, List<WatchlistItemDTO> items) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            WatchlistItemPageDTO page = watchlistItemService.getWatchlistItemPage(watchlist.getId(), sort, 7, cursor);
+            // Two statements only on the page where the items with a value end
+            assertTrue(statistics.getPrepareStatementCount() <= 2, sort + ": " + statistics.getPrepareStatementCount());
+            assertTrue(page.getItems().size() <= 7);
+            page.getItems().forEach(item -> listed.add(item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected.stream().map(i -> items.get(i).getId()).toList(), listed, sort);
+    }
+
+    private long firstMovieId(Watchlist watchlist) {
+        return watchlistItemService.getWatchlistItems(watchlist.getId()).get(0).getMovieId();
+    }
+
+    private Watchlist watchlistWithItems(int count) {
+        String name = "query-count-" + System.nanoTime();
+        User user = userRepository.save(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password("secret")
+                .role("USER")
+                .build());
+        users.add(user);
+        Watchlist watchlist = watchlistRepository.save(Watchlist.builder()
+                .name("Query count")
+                .user(user)
+                .build());
+
+        List<Movie> movies = new ArrayList<>();
+        List<WatchlistItem> items = new ArrayList<>();
+        long firstId = BASE_MOVIE_ID + 1_000L * users.size();
+        for (int i = 0; i < count; i++) {
+            long movieId = firstId + i;
+            // The last movie is left out of the catalog
+            if (i < count - 1) {
+                movies.add(Movie.builder().id(movieId).title("Query count movie " + i).build());
+                movieIds.add(movieId);
+            }
+            items.add(WatchlistItem.builder()
+                    .watchlist(watchlist)
+                    .movieId(movieId)
+                    .status(WatchlistStatus.values()[i % 3])
+                    .build());
+        }
+        movieRepository.saveAll(movies);
+        watchlistItemRepository.saveAll(items);
+        return watchlist;
+    }
+}
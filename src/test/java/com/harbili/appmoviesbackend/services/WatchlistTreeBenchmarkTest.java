@@ -0,0 +1,160 @@
+package com.harbili.appmoviesbackend.services;
+
+import com.harbili.appmoviesbackend.dto.WatchlistDTO;
+import com.harbili.appmoviesbackend.dto.WatchlistItemDTO;
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.harbili.appmoviesbackend.entities.User;
+import com.harbili.appmoviesbackend.entities.Watchlist;
+import com.harbili.appmoviesbackend.repositories.MovieRepository;
+import com.harbili.appmoviesbackend.repositories.UserRepository;
+import com.harbili.appmoviesbackend.repositories.WatchlistRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares building the watchlists of a user one watchlist at a time with the single tree query
+ *
+ * Run with: mvn test -Dtest=WatchlistTreeBenchmarkTest -Dbenchmark=true [-Dbenchmark.users=10]
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class WatchlistTreeBenchmarkTest {
+
+    private static final long BASE_MOVIE_ID = 920_000_000L;
+    private static final int LISTS_PER_USER = 20;
+    private static final int ITEMS_PER_LIST = 200;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private WatchlistService watchlistService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WatchlistRepository watchlistRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (Long userId : userIds) {
+            jdbcTemplate.update("DELETE i FROM watchlist_item i JOIN watchlist w ON w.id = i.watchlist_id WHERE w.user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM watchlist WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM user WHERE id = ?", userId);
+        }
+        jdbcTemplate.update("DELETE FROM movie WHERE id >= ?", BASE_MOVIE_ID);
+    }
+
+    @Test
+    void comparePerWatchlistQueriesWithTheTreeQuery() {
+        int users = Integer.getInteger("benchmark.users", 10);
+        seed(users);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Warm-up: JIT, connection pool and query plan caches
+        for (Long userId : userIds) {
+            perWatchlist(userId);
+            watchlistService.getWatchlistsByUserId(userId);
+        }
+
+        statistics.clear();
+        long start = System.nanoTime();
+        long perWatchlistItems = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Long userId : userIds) {
+                perWatchlistItems += countItems(perWatchlist(userId));
+            }
+        }
+        double perWatchlistMillis = (System.nanoTime() - start) / 1e6 / (ROUNDS * users);
+        double perWatchlistStatements = (double) statistics.getPrepareStatementCount() / (ROUNDS * users);
+
+        statistics.clear();
+        start = System.nanoTime();
+        long treeItems = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Long userId : userIds) {
+                treeItems += countItems(watchlistService.getWatchlistsByUserId(userId));
+            }
+        }
+        double treeMillis = (System.nanoTime() - start) / 1e6 / (ROUNDS * users);
+        double treeStatements = (double) statistics.getPrepareStatementCount() / (ROUNDS * users);
+
+        System.out.printf("[DEBUG_LOG] %d lists of %d items per user%n", LISTS_PER_USER, ITEMS_PER_LIST);
+        System.out.printf("[DEBUG_LOG] per watchlist: %.2f ms, %.1f statements per user%n", perWatchlistMillis, perWatchlistStatements);
+        System.out.printf("[DEBUG_LOG] tree query:    %.2f ms, %.1f statements per user%n", treeMillis, treeStatements);
+
+        assertEquals(perWatchlistItems, treeItems);
+        assertEquals((long) ROUNDS * users * LISTS_PER_USER * ITEMS_PER_LIST, treeItems);
+        assertEquals(2.0, treeStatements);
+    }
+
+    /**
+     * The previous shape of getWatchlistsByUserId: the items are read once per watchlist
+     */
+    private List<WatchlistDTO> perWatchlist(Long userId) {
+        List<WatchlistDTO> watchlists = new ArrayList<>();
+        for (Watchlist watchlist : watchlistRepository.findByUserId(userId)) {
+            List<WatchlistItemDTO> items = watchlistService.getWatchlistItems(watchlist.getId());
+            watchlists.add(new WatchlistDTO(watchlist.getId(), watchlist.getName(), watchlist.getDescription(), items));
+        }
+        return watchlists;
+    }
+
+    private static long countItems(List<WatchlistDTO> watchlists) {
+        return watchlists.stream().mapToLong(watchlist -> watchlist.getItems().size()).sum();
+    }
+
+    private void seed(int users) {
+        int movieCount = LISTS_PER_USER * ITEMS_PER_LIST;
+        List<Movie> movies = new ArrayList<>(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            movies.add(Movie.builder().id(BASE_MOVIE_ID + i).title("Benchmark movie " + i).build());
+        }
+        movieRepository.upsertAll(movies);
+
+        for (int u = 0; u < users; u++) {
+            String name = "tree-benchmark-" + u + "-" + System.nanoTime();
+            User user = userRepository.save(User.builder()
+                    .username(name)
+                    .email(name + "@example.com")
+                    .password("secret")
+                    .role("USER")
+                    .build());
+            userIds.add(user.getId());
+            for (int l = 0; l < LISTS_PER_USER; l++) {
+                Watchlist watchlist = watchlistRepository.save(Watchlist.builder()
+                        .name("List " + l)
+                        .user(user)
+                        .build());
+                List<Object[]> items = new ArrayList<>(ITEMS_PER_LIST);
+                for (int i = 0; i < ITEMS_PER_LIST; i++) {
+                    items.add(new Object[]{watchlist.getId(), BASE_MOVIE_ID + l * ITEMS_PER_LIST + i, "VU", 1 + i % 10});
+                }
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO watchlist_item (watchlist_id, movie_id, status, rating) VALUES (?, ?, ?, ?)", items);
+            }
+        }
+    }
+}
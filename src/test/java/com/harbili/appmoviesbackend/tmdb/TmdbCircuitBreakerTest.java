@@ -0,0 +1,30 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmdbCircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailuresAndClosesAfterSuccessfulTrial() throws InterruptedException {
+        TmdbCircuitBreaker breaker = new TmdbCircuitBreaker(2, Duration.ofMillis(50), new SimpleMeterRegistry());
+
+        breaker.onFailure();
+        assertEquals(TmdbCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure();
+        assertEquals(TmdbCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(), "Calls are rejected while the circuit is open");
+
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire(), "One trial call is allowed after the open duration");
+        assertFalse(breaker.tryAcquire(), "Only one trial call at a time");
+
+        breaker.onSuccess();
+        assertEquals(TmdbCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+}
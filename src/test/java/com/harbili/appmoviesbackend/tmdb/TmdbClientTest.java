@@ -0,0 +1,149 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the response cache behaviour of TmdbClient against a local HTTP stub
+ */
+class TmdbClientTest {
+
+    private static final String MOVIE_JSON = "{\"id\":550,\"title\":\"Fight Club\",\"release_date\":\"1999-10-15\"}";
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer tmdbStub;
+    private boolean stubRunning;
+    private final List<String> ifNoneMatchHeaders = new CopyOnWriteArrayList<>();
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tmdbStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        tmdbStub.createContext("/3/movie/550", this::handleMovie);
+        tmdbStub.createContext("/3/movie/551", exchange -> {
+            if (flakyCalls.incrementAndGet() == 1) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            handleMovie(exchange);
+        });
+        tmdbStub.start();
+        stubRunning = true;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (stubRunning) {
+            tmdbStub.stop(0);
+        }
+    }
+
+    @Test
+    void freshEntryIsServedWithoutCallingTmdb() throws IOException {
+        TmdbClient client = client(Duration.ofHours(1), Duration.ZERO);
+
+        assertEquals("Fight Club", client.getMovie(550).getTitle());
+        assertEquals("Fight Club", client.getMovie(550).getTitle());
+
+        assertEquals(1, ifNoneMatchHeaders.size());
+    }
+
+    @Test
+    void staleEntryIsServedAndRevalidatedConditionally() throws IOException, InterruptedException {
+        TmdbClient client = client(Duration.ZERO, Duration.ofDays(1));
+        client.getMovie(550);
+
+        Movie movie = client.getMovie(550);
+        assertEquals("Fight Club", movie.getTitle());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (ifNoneMatchHeaders.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("\"v1\"", ifNoneMatchHeaders.get(1), "The refresh should be a conditional GET");
+    }
+
+    @Test
+    void cachedEntryIsServedWhenTmdbIsDown() throws IOException {
+        TmdbClient client = client(Duration.ZERO, Duration.ZERO);
+        client.getMovie(550);
+        tmdbStub.stop(0);
+        stubRunning = false;
+
+        assertEquals("Fight Club", client.getMovie(550).getTitle());
+    }
+
+    @Test
+    void serverErrorsAreRetried() throws IOException {
+        TmdbClient client = client(Duration.ofHours(1), Duration.ZERO);
+
+        assertEquals("Fight Club", client.getMovie(551).getTitle());
+        assertEquals(2, flakyCalls.get());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedBeyondTheMaximumSize() throws IOException {
+        TmdbResponseCache cache = new TmdbResponseCache(cacheDir.toString(), true, Duration.ofHours(1), Duration.ZERO,
+                DataSize.ofBytes(2500));
+        String body = "x".repeat(1000);
+        cache.write(new CachedResponse("/movie/1", null, null, 0, 3600, body));
+        cache.write(new CachedResponse("/movie/2", null, null, 0, 3600, body));
+        // Reading the first entry makes the second the least recently used
+        assertNotNull(cache.read("/movie/1"));
+        cache.write(new CachedResponse("/movie/3", null, null, 0, 3600, body));
+
+        assertNotNull(cache.read("/movie/1"));
+        assertNull(cache.read("/movie/2"));
+        assertNotNull(cache.read("/movie/3"));
+    }
+
+    private TmdbClient client(Duration ttl, Duration staleWhileRevalidate) throws IOException {
+        TmdbResponseCache cache = new TmdbResponseCache(cacheDir.toString(), true, ttl, staleWhileRevalidate,
+                DataSize.ofMegabytes(10));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new TmdbClient("http://localhost:" + tmdbStub.getAddress().getPort() + "/3", "test-key",
+                Duration.ofSeconds(1), Duration.ofSeconds(1), cache,
+                new TmdbRateLimiter(100, 100, meterRegistry),
+                new TmdbCircuitBreaker(5, Duration.ofSeconds(30), meterRegistry),
+                meterRegistry);
+    }
+
+    private void handleMovie(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        ifNoneMatchHeaders.add(ifNoneMatch != null ? ifNoneMatch : "");
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        if ("\"v1\"".equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = MOVIE_JSON.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
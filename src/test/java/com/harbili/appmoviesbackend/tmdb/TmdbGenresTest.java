@@ -0,0 +1,38 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmdbGenresTest {
+
+    @AfterEach
+    void restoreNames() {
+        TmdbGenres.updateNames(Map.of());
+    }
+
+    @Test
+    void encodesIdsAndNamesToTheSameMask() {
+        long mask = TmdbGenres.maskOfIds(List.of(18, 53, 424242));
+
+        assertEquals(2, Long.bitCount(mask));
+        assertEquals(mask, TmdbGenres.maskOfNames(List.of("thriller", "DRAMA", "Unknown")));
+        assertEquals(List.of("Drama", "Thriller"), TmdbGenres.namesOf(mask));
+        assertEquals(List.of(), TmdbGenres.namesOf(0));
+    }
+
+    @Test
+    void usesTheNamesOfTheTmdbList() {
+        long mask = TmdbGenres.maskOfIds(List.of(35, 878));
+
+        List<Integer> unknown = TmdbGenres.updateNames(Map.of(35, "Comédie", 878, "Science-Fiction", 4242, "New"));
+
+        assertEquals(List.of(4242), unknown);
+        assertEquals(List.of("Comédie", "Science-Fiction"), TmdbGenres.namesOf(mask));
+        assertEquals(mask, TmdbGenres.maskOfNames(List.of("comedie", "Science Fiction")));
+    }
+}
@@ -0,0 +1,90 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harbili.appmoviesbackend.entities.Movie;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming TMDB parser with the former Map-based mapping
+ *
+ * Run the main method (e.g. from the IDE, test classpath); the GC profiler
+ * reports the bytes allocated per parsed page (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TmdbMovieParserBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String discoverPage;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("{\"page\":1,\"results\":[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"adult\":false,\"backdrop_path\":\"/backdrop").append(i).append(".jpg\",")
+                    .append("\"genre_ids\":[18,53,80],\"id\":").append(1000 + i).append(',')
+                    .append("\"original_language\":\"en\",\"original_title\":\"Original title ").append(i).append("\",")
+                    .append("\"overview\":\"A reasonably long overview for movie ").append(i)
+                    .append(", long enough to look like the real TMDB payloads we receive every day.\",")
+                    .append("\"popularity\":").append(100.5 + i).append(',')
+                    .append("\"poster_path\":\"/poster").append(i).append(".jpg\",")
+                    .append("\"release_date\":\"20").append(10 + i % 10).append("-0").append(1 + i % 9).append("-15\",")
+                    .append("\"title\":\"Movie title ").append(i).append("\",")
+                    .append("\"video\":false,\"vote_average\":7.4,\"vote_count\":").append(1200 + i).append('}');
+        }
+        json.append("],\"total_pages\":500,\"total_results\":10000}");
+        discoverPage = json.toString();
+    }
+
+    @Benchmark
+    public TmdbPage streaming() throws IOException {
+        return TmdbMovieParser.parsePage(discoverPage, 1);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public TmdbPage mapBased() throws IOException {
+        Map<String, Object> response = MAPPER.readValue(discoverPage, Map.class);
+        List<Map<String, Object>> results = (List<Map<String, Object>>) response.get("results");
+        List<Movie> movies = new ArrayList<>(results.size());
+        for (Map<String, Object> movieData : results) {
+            Movie movie = new Movie();
+            movie.setId(((Number) movieData.get("id")).longValue());
+            movie.setTitle((String) movieData.get("title"));
+            movie.setOverview((String) movieData.get("overview"));
+            movie.setPosterPath((String) movieData.get("poster_path"));
+            String releaseDate = (String) movieData.get("release_date");
+            if (releaseDate != null && !releaseDate.isEmpty()) {
+                movie.setReleaseDate(LocalDate.parse(releaseDate));
+            }
+            movies.add(movie);
+        }
+        return new TmdbPage(1, ((Number) response.get("total_pages")).intValue(), movies);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TmdbMovieParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.harbili.appmoviesbackend.tmdb;
+
+import com.harbili.appmoviesbackend.entities.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmdbMovieParserTest {
+
+    @Test
+    void parsesDiscoverPageAndSkipsUnknownFields() throws IOException {
+        String json = "{\"page\":2,\"results\":[{\"adult\":false,\"genre_ids\":[18,53],\"id\":550,"
+                + "\"title\":\"Fight Club\",\"overview\":\"An insomniac...\",\"poster_path\":\"/fc.jpg\","
+                + "\"release_date\":\"1999-10-15\",\"extra\":{\"nested\":[1,2,{\"deep\":true}]}},"
+                + "{\"id\":680,\"title\":\"Pulp Fiction\",\"release_date\":\"\",\"poster_path\":null}],"
+                + "\"total_pages\":42,\"total_results\":840}";
+
+        TmdbPage page = TmdbMovieParser.parsePage(json, 2);
+
+        assertEquals(2, page.getPage());
+        assertEquals(42, page.getTotalPages());
+        assertEquals(2, page.getMovies().size());
+
+        Movie fightClub = page.getMovies().get(0);
+        assertEquals(550L, fightClub.getId());
+        assertEquals("Fight Club", fightClub.getTitle());
+        assertEquals("/fc.jpg", fightClub.getPosterPath());
+        assertEquals(LocalDate.of(1999, 10, 15), fightClub.getReleaseDate());
+        assertEquals(List.of("Drama", "Thriller"), fightClub.getGenres());
+
+        Movie pulpFiction = page.getMovies().get(1);
+        assertNull(pulpFiction.getReleaseDate());
+        assertNull(pulpFiction.getPosterPath());
+    }
+
+    @Test
+    void parsesMovieDetailsWithGenres() throws IOException {
+        String json = "{\"id\":155,\"title\":\"The Dark Knight\",\"belongs_to_collection\":null,"
+                + "\"genres\":[{\"id\":18,\"name\":\"Drama\"},{\"id\":28,\"name\":\"Action\"}]}";
+
+        Movie movie = TmdbMovieParser.parseMovie(json);
+
+        assertEquals(155L, movie.getId());
+        assertEquals(List.of("Action", "Drama"), movie.getGenres());
+        assertNull(TmdbMovieParser.parseMovie("{\"status_code\":34}"));
+    }
+
+    @Test
+    void parsesGenreList() throws IOException {
+        Map<Integer, String> genres = TmdbMovieParser.parseGenres(
+                "{\"genres\":[{\"id\":28,\"name\":\"Action\"},{\"id\":878,\"name\":\"Science-Fiction\"}]}");
+
+        assertEquals(Map.of(28, "Action", 878, "Science-Fiction"), genres);
+    }
+
+    @Test
+    void parsesChangedIdsWithoutAdultTitles() throws IOException {
+        List<Long> ids = new ArrayList<>();
+
+        int totalPages = TmdbMovieParser.parseChanges(
+                "{\"results\":[{\"id\":5,\"adult\":false},{\"id\":6,\"adult\":true},{\"id\":7}],\"page\":1,\"total_pages\":3}", ids);
+
+        assertEquals(3, totalPages);
+        assertEquals(List.of(5L, 7L), ids);
+    }
+}